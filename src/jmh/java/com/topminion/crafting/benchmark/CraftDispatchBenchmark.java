@@ -0,0 +1,80 @@
+package com.topminion.crafting.benchmark;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.listeners.CraftListener;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.standins.StandIns;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.ShapedRecipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of CraftListener.onCraft for a vanilla recipe (filtered out) and for one of our recipes
+ * The custom benchmark also completes the queued craft, as the craft queue would on the next tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CraftDispatchBenchmark {
+
+    private File dataFolder;
+    private TopMinionCrafting plugin;
+    private CraftListener listener;
+    private CraftItemEvent vanillaCraft;
+    private CraftItemEvent customCraft;
+
+    @Setup
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("tmc-bench").toFile();
+        // Measure the craft path, not the rate limiter rejecting the same player's repeated clicks
+        Files.writeString(new File(dataFolder, "config.yml").toPath(), "settings:\n  rate_limit:\n    crafts_per_second: 0\n");
+        plugin = StandIns.enablePlugin(dataFolder);
+        plugin.getItemUtil().setItemSource(new StandIns.FakeItemSource());
+        listener = new CraftListener(plugin);
+
+        Player player = StandIns.player("BenchPlayer");
+        ItemStack stick = new ItemStack(Material.STICK);
+        vanillaCraft = StandIns.craftEvent(player, new ShapedRecipe(NamespacedKey.minecraft("stick"), stick), stick, false);
+
+        NamespacedKey minerKey = new NamespacedKey(plugin, "minion_miner");
+        RecipeManager.RecipeData miner = plugin.getRecipeManager().getRecipe(minerKey);
+        ItemStack minion = plugin.getItemUtil().getResultItem(miner);
+        customCraft = StandIns.craftEvent(player, new ShapedRecipe(minerKey, minion), minion,
+                StandIns.grid(miner.getDefinition()), false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        plugin.onDisable();
+        StandIns.delete(dataFolder);
+    }
+
+    @Benchmark
+    public boolean vanillaRecipe() {
+        listener.onCraft(vanillaCraft);
+        return vanillaCraft.isCancelled();
+    }
+
+    @Benchmark
+    public int customRecipe() {
+        listener.onCraft(customCraft);
+        plugin.getCraftQueue().run();
+        return plugin.getCraftQueue().size();
+    }
+}
@@ -0,0 +1,71 @@
+package com.topminion.crafting.benchmark;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.standins.StandIns;
+import com.topminion.crafting.utils.ItemUtil;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ItemUtil result item creation from a cached template, and after the TopMinion config changed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ItemCreationBenchmark {
+
+    private File dataFolder;
+    private TopMinionCrafting plugin;
+    private ItemUtil itemUtil;
+    private StandIns.FakeItemSource source;
+    private RecipeManager.RecipeData minion;
+    private RecipeManager.RecipeData upgrade;
+
+    @Setup
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("tmc-bench").toFile();
+        plugin = StandIns.enablePlugin(dataFolder);
+        itemUtil = plugin.getItemUtil();
+        source = new StandIns.FakeItemSource();
+        itemUtil.setItemSource(source);
+
+        minion = plugin.getRecipeManager().getRecipe(new NamespacedKey(plugin, "minion_miner"));
+        upgrade = plugin.getRecipeManager().getRecipe(new NamespacedKey(plugin, "upgrade_fuel"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        plugin.onDisable();
+        StandIns.delete(dataFolder);
+    }
+
+    @Benchmark
+    public ItemStack cachedMinion() {
+        return itemUtil.getResultItem(minion);
+    }
+
+    @Benchmark
+    public ItemStack cachedUpgrade() {
+        return itemUtil.getResultItem(upgrade);
+    }
+
+    @Benchmark
+    public ItemStack rebuiltMinion() {
+        source.reload();
+        return itemUtil.getResultItem(minion);
+    }
+}
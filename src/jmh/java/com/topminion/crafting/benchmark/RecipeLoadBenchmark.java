@@ -0,0 +1,75 @@
+package com.topminion.crafting.benchmark;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.standins.StandIns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup loading of a large generated recipe folder
+ * Cold loads parse every file; warm loads read the definitions from recipe-cache.bin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecipeLoadBenchmark {
+
+    @Param({"1000", "10000"})
+    public int recipes;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private File dataFolder;
+    private TopMinionCrafting plugin;
+    private RecipeManager recipeManager;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("tmc-bench").toFile();
+        StandIns.generateRecipes(dataFolder, recipes / 2, recipes / 2);
+        plugin = StandIns.enablePlugin(dataFolder);
+        plugin.getItemUtil().setItemSource(new StandIns.FakeItemSource());
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareLoad() {
+        if (cache.equals("cold")) {
+            new File(dataFolder, "recipe-cache.bin").delete();
+        }
+        // A new manager starts with an empty registry and reads the cache file, like a server start
+        recipeManager = new RecipeManager(plugin);
+    }
+
+    @TearDown(Level.Invocation)
+    public void finishLoad() {
+        recipeManager.unregisterRecipes();
+        recipeManager.shutdown();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        plugin.onDisable();
+        StandIns.delete(dataFolder);
+    }
+
+    @Benchmark
+    public int load() {
+        recipeManager.loadRecipes();
+        return recipeManager.getMinionRecipeCount();
+    }
+}
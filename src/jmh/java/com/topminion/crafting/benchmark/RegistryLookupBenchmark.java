@@ -0,0 +1,73 @@
+package com.topminion.crafting.benchmark;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.standins.StandIns;
+import org.bukkit.NamespacedKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recipe lookups in RecipeManager with a growing number of registered recipes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegistryLookupBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"10", "1000", "10000"})
+    public int recipes;
+
+    private File dataFolder;
+    private TopMinionCrafting plugin;
+    private RecipeManager recipeManager;
+    private NamespacedKey[] hits;
+    private NamespacedKey[] misses;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("tmc-bench").toFile();
+        StandIns.generateRecipes(dataFolder, recipes, 0);
+        plugin = StandIns.enablePlugin(dataFolder);
+        recipeManager = plugin.getRecipeManager();
+
+        // Keys are created up front; the craft path gets them from the recipe, not by allocation
+        hits = new NamespacedKey[KEYS];
+        misses = new NamespacedKey[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            hits[i] = new NamespacedKey(plugin, "minion_generated_" + (i % recipes));
+            misses[i] = new NamespacedKey(plugin, "minion_missing_" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        plugin.onDisable();
+        StandIns.delete(dataFolder);
+    }
+
+    @Benchmark
+    public RecipeManager.RecipeData hit() {
+        return recipeManager.getRecipe(hits[next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    public RecipeManager.RecipeData miss() {
+        return recipeManager.getRecipe(misses[next++ & (KEYS - 1)]);
+    }
+}
@@ -1,37 +1,118 @@
 package com.topminion.crafting;
 
+import com.topminion.crafting.audit.AuditLog;
+import com.topminion.crafting.autocrafter.AutoCrafterManager;
+import com.topminion.crafting.commands.CraftingCommand;
+import com.topminion.crafting.config.Settings;
+import com.topminion.crafting.gui.RecipeBrowser;
+import com.topminion.crafting.listeners.AutoCrafterListener;
 import com.topminion.crafting.listeners.CraftListener;
+import com.topminion.crafting.listeners.MenuListener;
+import com.topminion.crafting.listeners.TopMinionListener;
+import com.topminion.crafting.managers.CraftQueue;
+import com.topminion.crafting.managers.CraftRateLimiter;
 import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.managers.RecipeWatcher;
+import com.topminion.crafting.metrics.CraftMetrics;
+import com.topminion.crafting.metrics.MetricsExporter;
+import com.topminion.crafting.scheduler.TaskScheduler;
+import com.topminion.crafting.utils.ItemUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.util.function.Supplier;
 
 public class TopMinionCrafting extends JavaPlugin {
 
     private static TopMinionCrafting instance;
     private RecipeManager recipeManager;
+    private ItemUtil itemUtil;
+    private CraftQueue craftQueue;
+    private CraftRateLimiter rateLimiter;
+    private RecipeWatcher recipeWatcher;
+    private final CraftMetrics metrics = new CraftMetrics();
+    private MetricsExporter metricsExporter;
+    private AuditLog auditLog;
+    private AutoCrafterManager autoCrafters;
+    private RecipeBrowser recipeBrowser;
+    private TaskScheduler taskScheduler;
+    private volatile Settings settings;
+
+    public TopMinionCrafting() {
+        super();
+    }
+
+    /**
+     * Create the plugin outside of a server, e.g. for benchmarks against stand-ins
+     */
+    protected TopMinionCrafting(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
         instance = this;
 
+        // Main thread on Bukkit/Paper, region threads on Folia
+        taskScheduler = TaskScheduler.create(this);
+        if (taskScheduler.isFolia()) {
+            getLogger().info("Running on Folia, crafts are completed on each player's region thread");
+        }
+
         // Save default config
         saveDefaultConfig();
+        settings = Settings.load(getConfig());
 
         // Copy default recipe files if they don't exist
         copyDefaultRecipes();
 
         // Initialize managers
         recipeManager = new RecipeManager(this);
+        itemUtil = new ItemUtil(this);
+        itemUtil.initialize();
+
+        // Log completed crafts to audit/crafts.log
+        auditLog = new AuditLog(this);
+        auditLog.reloadSettings();
 
         // Register listeners
-        Bukkit.getPluginManager().registerEvents(new CraftListener(this), this);
+        rateLimiter = new CraftRateLimiter(this);
+        CraftListener craftListener = new CraftListener(this);
+        // The queue completes crafts on the player's thread (the player's region on Folia)
+        craftQueue = new CraftQueue(this, craftListener::completeCraft);
+        craftQueue.start();
+        Bukkit.getPluginManager().registerEvents(craftListener, this);
+        Bukkit.getPluginManager().registerEvents(new TopMinionListener(this), this);
+        recipeBrowser = new RecipeBrowser(this);
+        Bukkit.getPluginManager().registerEvents(new MenuListener(this, recipeBrowser), this);
 
         // Load recipes
         recipeManager.loadRecipes();
 
+        // Placed auto-crafters, run by one timer in batches per chunk
+        autoCrafters = new AutoCrafterManager(this);
+        autoCrafters.load();
+        autoCrafters.start();
+        Bukkit.getPluginManager().registerEvents(new AutoCrafterListener(this, autoCrafters), this);
+
+        // /topminioncrafting and its subcommands
+        getCommand("topminioncrafting").setExecutor(new CraftingCommand(this));
+
+        // Optionally reload changed recipe files automatically
+        recipeWatcher = new RecipeWatcher(this);
+        if (settings.isWatchRecipes()) {
+            recipeWatcher.start();
+        }
+
+        // Optionally write metrics to a file for scraping
+        metricsExporter = new MetricsExporter(this, metrics);
+        metricsExporter.start();
+
         getLogger().info("TopMinion-Crafting has been enabled!");
         getLogger().info("Loaded " + recipeManager.getMinionRecipeCount() + " minion recipes");
         getLogger().info("Loaded " + recipeManager.getUpgradeRecipeCount() + " upgrade recipes");
@@ -41,6 +122,13 @@ public class TopMinionCrafting extends JavaPlugin {
      * Copy default recipe files from resources to plugin data folder
      */
     private void copyDefaultRecipes() {
+        // The defaults would overlay the archive's recipes of the same name
+        String archive = settings.getRecipeArchive();
+        if (!archive.isEmpty() && new File(getDataFolder(), archive).isFile()) {
+            debug("Recipe archive found, not copying default recipe files");
+            return;
+        }
+
         // Minion recipes
         String[] minionRecipes = {"miner.yml", "farmer.yml", "fisher.yml", "lumberjack.yml", "slayer.yml"};
         for (String recipe : minionRecipes) {
@@ -58,55 +146,147 @@ public class TopMinionCrafting extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // Complete crafts that are still queued
+        if (craftQueue != null) {
+            craftQueue.stop();
+        }
+
+        if (recipeWatcher != null) {
+            recipeWatcher.stop();
+        }
+
+        // Also saves crafters placed or broken since the last cycle
+        if (autoCrafters != null) {
+            autoCrafters.stop();
+        }
+
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+
+        // Write the crafts completed above before the plugin is gone
+        if (auditLog != null) {
+            auditLog.stop();
+        }
+
         // Unregister all custom recipes
         if (recipeManager != null) {
             recipeManager.unregisterRecipes();
+            recipeManager.shutdown();
         }
 
         getLogger().info("TopMinion-Crafting has been disabled!");
     }
 
-    @Override
-    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        if (command.getName().equalsIgnoreCase("topminioncrafting")) {
-            if (args.length > 0 && args[0].equalsIgnoreCase("reload")) {
-                if (!sender.hasPermission("topminioncrafting.admin")) {
-                    sender.sendMessage(colorize(getConfig().getString("settings.messages.no_permission")));
-                    return true;
-                }
-
-                // Reload config
-                reloadConfig();
-
-                // Unregister old recipes
-                recipeManager.unregisterRecipes();
-
-                // Reload recipes
-                recipeManager.loadRecipes();
-
-                sender.sendMessage(colorize(getConfig().getString("settings.messages.reload_success")));
-                return true;
-            }
+    /**
+     * Reload config.yml and the recipe files, restarting what depends on the settings
+     *
+     * @param done Run once the recipes are applied
+     */
+    public void reload(Runnable done) {
+        reloadConfig();
+        settings = Settings.load(getConfig());
+        craftQueue.reloadSettings();
+
+        recipeWatcher.stop();
+        if (settings.isWatchRecipes()) {
+            recipeWatcher.start();
         }
-        return false;
+
+        metricsExporter.stop();
+        metricsExporter.start();
+        auditLog.reloadSettings();
+        autoCrafters.stop();
+        autoCrafters.start();
+
+        // Parse recipe files off the main thread, then apply what changed
+        recipeManager.reloadRecipes(() -> {
+            recipeBrowser.invalidate();
+            done.run();
+        });
     }
 
     public RecipeManager getRecipeManager() {
         return recipeManager;
     }
 
+    public CraftQueue getCraftQueue() {
+        return craftQueue;
+    }
+
+    public CraftRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Get the scheduler for the running server (Bukkit/Paper or Folia)
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
+    public RecipeBrowser getRecipeBrowser() {
+        return recipeBrowser;
+    }
+
+    public ItemUtil getItemUtil() {
+        return itemUtil;
+    }
+
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    public AutoCrafterManager getAutoCrafters() {
+        return autoCrafters;
+    }
+
+    public CraftMetrics getMetrics() {
+        return metrics;
+    }
+
     public static TopMinionCrafting getInstance() {
         return instance;
     }
 
+    /**
+     * Get the current settings snapshot
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Send a rendered message, skipping messages that were configured empty
+     */
+    public void send(CommandSender sender, String message) {
+        if (!message.isEmpty()) {
+            sender.sendMessage(message);
+        }
+    }
+
     public String colorize(String message) {
         if (message == null) return "";
         return ChatColor.translateAlternateColorCodes('&', message);
     }
 
+    public boolean isDebugEnabled() {
+        Settings current = settings;
+        return current != null && current.isDebug();
+    }
+
     public void debug(String message) {
-        if (getConfig().getBoolean("settings.debug", false)) {
+        if (isDebugEnabled()) {
             getLogger().info("[DEBUG] " + message);
         }
     }
+
+    /**
+     * Log a debug message that is only built when debug mode is on
+     */
+    public void debug(Supplier<String> message) {
+        if (isDebugEnabled()) {
+            getLogger().info("[DEBUG] " + message.get());
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package com.topminion.crafting.audit;
+
+import java.util.UUID;
+
+/**
+ * One line of the craft audit log: who crafted which recipe, how often and when
+ *
+ * Lines are tab separated: time (epoch millis), player UUID, player name, recipe key,
+ * type (minion/upgrade), result id and number of crafts.
+ */
+public final class AuditEntry {
+
+    private final long time;
+    private final UUID playerId;
+    private final String playerName;
+    private final String recipe;
+    private final String type;
+    private final String resultId;
+    private final int crafts;
+
+    public AuditEntry(long time, UUID playerId, String playerName, String recipe, String type, String resultId, int crafts) {
+        this.time = time;
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.recipe = recipe;
+        this.type = type;
+        this.resultId = resultId;
+        this.crafts = crafts;
+    }
+
+    /**
+     * Parse a log line
+     *
+     * @return The entry, or null if the line is not a valid entry (e.g. cut off by a crash)
+     */
+    public static AuditEntry parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 7) return null;
+
+        try {
+            return new AuditEntry(Long.parseLong(fields[0]), UUID.fromString(fields[1]), fields[2],
+                    fields[3], fields[4], fields[5], Integer.parseInt(fields[6]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Append the entry as a log line, including the line break
+     */
+    public void appendTo(StringBuilder out) {
+        out.append(time).append('\t')
+                .append(playerId).append('\t')
+                .append(playerName).append('\t')
+                .append(recipe).append('\t')
+                .append(type).append('\t')
+                .append(resultId).append('\t')
+                .append(crafts).append('\n');
+    }
+
+    /**
+     * @return The time of the craft in epoch milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * @return The recipe key, without the namespace
+     */
+    public String getRecipe() {
+        return recipe;
+    }
+
+    /**
+     * @return "minion" or "upgrade"
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return The minion or upgrade id
+     */
+    public String getResultId() {
+        return resultId;
+    }
+
+    /**
+     * @return The number of crafts (more than one for shift-click crafts)
+     */
+    public int getCrafts() {
+        return crafts;
+    }
+}
@@ -0,0 +1,285 @@
+package com.topminion.crafting.audit;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.config.Settings;
+import com.topminion.crafting.managers.RecipeManager;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of completed crafts in audit/crafts.log
+ *
+ * Crafts are queued without locking and written in batches by a background thread, so recording
+ * never blocks the thread that completed the craft. Once the file reaches its maximum size it is
+ * rotated to crafts.log.1, crafts.log.2 and so on, keeping a configured number of old files.
+ */
+public class AuditLog implements Runnable {
+
+    public static final String FOLDER = "audit";
+    public static final String FILE_NAME = "crafts.log";
+
+    // Wake the writer early once this many entries are waiting
+    private static final int BATCH_SIZE = 512;
+    // Entries beyond this are dropped (and counted) instead of growing the queue without limit
+    private static final int MAX_PENDING = 100_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TopMinionCrafting plugin;
+    private final Queue<AuditEntry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final File folder;
+
+    private volatile boolean enabled;
+    private volatile long maxFileBytes;
+    private volatile int maxFiles;
+    private volatile long flushNanos;
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    // Writer thread only
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(256);
+    private FileChannel channel;
+
+    public AuditLog(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), FOLDER);
+    }
+
+    /**
+     * Apply the audit settings and start the writer if auditing is enabled
+     * The writer keeps running once started, so entries queued before a reload are never lost.
+     */
+    public void reloadSettings() {
+        Settings settings = plugin.getSettings();
+        maxFileBytes = settings.getAuditMaxFileBytes();
+        maxFiles = settings.getAuditMaxFiles();
+        flushNanos = TimeUnit.MILLISECONDS.toNanos(settings.getAuditFlushInterval());
+        enabled = settings.isAudit();
+
+        if (enabled && thread == null) {
+            folder.mkdirs();
+            running = true;
+            Thread writer = new Thread(this, "TopMinionCrafting-AuditLog");
+            writer.setDaemon(true);
+            thread = writer;
+            writer.start();
+        }
+    }
+
+    /**
+     * Stop the writer after it wrote everything still queued
+     */
+    public void stop() {
+        Thread writer = thread;
+        if (writer == null) return;
+
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Queue a completed craft; never blocks
+     *
+     * @param crafts The number of crafts (more than one for shift-click crafts)
+     */
+    public void record(Player player, RecipeManager.RecipeData data, int crafts) {
+        record(player.getUniqueId(), player.getName(), data, crafts);
+    }
+
+    /**
+     * Queue a completed craft of a player who may be offline, e.g. the owner of an auto-crafter
+     */
+    public void record(UUID playerId, String playerName, RecipeManager.RecipeData data, int crafts) {
+        if (!enabled) return;
+
+        if (pendingCount.incrementAndGet() > MAX_PENDING) {
+            pendingCount.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        pending.offer(new AuditEntry(System.currentTimeMillis(), playerId, playerName,
+                data.getKey().getKey(), data.getType().getLabel(), data.getDefinition().getResultId(), crafts));
+
+        if (pendingCount.get() == BATCH_SIZE) {
+            Thread writer = thread;
+            if (writer != null) LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                LockSupport.parkNanos(this, flushNanos);
+                writeBatch();
+            }
+            writeBatch();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Write everything queued so far, then rotate the file if it grew too large
+     */
+    private void writeBatch() {
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            plugin.getLogger().warning("Audit log could not keep up, " + lost + " craft(s) were not logged");
+        }
+        if (pending.isEmpty()) return;
+
+        try {
+            FileChannel out = open();
+            AuditEntry entry;
+            while ((entry = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                line.setLength(0);
+                entry.appendTo(line);
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > buffer.remaining()) {
+                    flush(out);
+                }
+                buffer.put(bytes);
+            }
+            flush(out);
+
+            if (out.size() >= maxFileBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            buffer.clear();
+            plugin.getLogger().warning("Could not write audit log: " + e.getMessage());
+            close();
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(new File(folder, FILE_NAME).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void flush(FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Move crafts.log to crafts.log.1 (and older files one further), dropping the oldest file
+     */
+    private void rotate() throws IOException {
+        close();
+        int keep = maxFiles;
+        Files.deleteIfExists(file(keep).toPath());
+        for (int i = keep - 1; i >= 0; i--) {
+            File source = file(i);
+            if (source.exists()) {
+                Files.move(source.toPath(), file(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        plugin.debug("Rotated audit log");
+    }
+
+    private void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+
+    /**
+     * @param index 0 for the current file, 1 and up for rotated files
+     */
+    private File file(int index) {
+        return new File(folder, index == 0 ? FILE_NAME : FILE_NAME + "." + index);
+    }
+
+    /**
+     * Find the latest crafts of a player, off the main thread
+     *
+     * The files are read line by line from the oldest to the current one, keeping only the last
+     * matches, so the log is never loaded as a whole. Crafts from the last flush interval may not
+     * be written yet.
+     *
+     * @param player A player name (case-insensitive) or UUID
+     * @param limit The maximum number of entries
+     * @param callback Called on an async thread with the entries, oldest first
+     */
+    public void query(String player, int limit, Consumer<List<AuditEntry>> callback) {
+        plugin.getTaskScheduler().runAsync(() -> {
+            boolean uuid = player.length() == 36 && player.indexOf('-') > 0;
+            Deque<AuditEntry> found = new ArrayDeque<>(limit);
+
+            for (int i = maxFiles; i >= 0; i--) {
+                File file = file(i);
+                if (!file.exists()) continue;
+
+                try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    String text;
+                    while ((text = reader.readLine()) != null) {
+                        if (!matches(text, player, uuid ? 1 : 2)) continue;
+
+                        AuditEntry entry = AuditEntry.parse(text);
+                        if (entry == null) continue;
+                        if (found.size() == limit) found.removeFirst();
+                        found.addLast(entry);
+                    }
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Could not read audit log " + file.getName() + ": " + e.getMessage());
+                }
+            }
+
+            callback.accept(new ArrayList<>(found));
+        });
+    }
+
+    /**
+     * Compare one field of a line without splitting it, so non-matching lines cost no allocations
+     */
+    private static boolean matches(String line, String value, int field) {
+        int start = 0;
+        for (int i = 0; i < field; i++) {
+            start = line.indexOf('\t', start) + 1;
+            if (start == 0) return false;
+        }
+        int end = line.indexOf('\t', start);
+        return end - start == value.length() && line.regionMatches(true, start, value, 0, value.length());
+    }
+}
@@ -0,0 +1,93 @@
+package com.topminion.crafting.autocrafter;
+
+import com.topminion.crafting.recipes.RecipeRequirements;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.BlockFace;
+
+import java.util.UUID;
+
+/**
+ * A placed auto-crafter: its block, the recipe it crafts and the player who placed it
+ *
+ * The cycle state (when to run next, which side the container is on) is only touched by the
+ * thread that owns the crafter's chunk, except for {@link AutoCrafterManager#wake}.
+ */
+public final class AutoCrafter {
+
+    private final UUID worldId;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final Material block;
+    private final NamespacedKey recipe;
+    private final UUID ownerId;
+    private final String ownerName;
+
+    // Cycle state
+    volatile long wakeAt;
+    int sleep;
+    BlockFace containerFace;
+    RecipeRequirements requirements;
+
+    public AutoCrafter(UUID worldId, int x, int y, int z, Material block, NamespacedKey recipe, UUID ownerId, String ownerName) {
+        this.worldId = worldId;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.block = block;
+        this.recipe = recipe;
+        this.ownerId = ownerId;
+        this.ownerName = ownerName;
+    }
+
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    /**
+     * @return The block type the crafter was placed as; any other type means it was removed
+     */
+    public Material getBlock() {
+        return block;
+    }
+
+    public NamespacedKey getRecipe() {
+        return recipe;
+    }
+
+    /**
+     * @return The player who placed the crafter, credited with its crafts in the audit log
+     */
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public int getChunkX() {
+        return x >> 4;
+    }
+
+    public int getChunkZ() {
+        return z >> 4;
+    }
+
+    boolean isAt(int x, int y, int z) {
+        return this.x == x && this.y == y && this.z == z;
+    }
+}
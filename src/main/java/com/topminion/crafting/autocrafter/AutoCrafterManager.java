@@ -0,0 +1,491 @@
+package com.topminion.crafting.autocrafter;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.config.MessageTemplate;
+import com.topminion.crafting.config.Settings;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.recipes.RecipeRequirements;
+import com.topminion.crafting.scheduler.TaskHandle;
+import com.topminion.crafting.scheduler.TaskScheduler;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs all placed auto-crafters from a single timer
+ *
+ * Crafters are grouped by chunk. Each cycle, every chunk with a crafter that is due is handed to
+ * the thread that owns it (the main thread, or the chunk's region thread on Folia), which runs
+ * all crafters of that chunk in one batch. Unloaded chunks are parked until they load again.
+ *
+ * A crafter that could not craft sleeps for 1, 2, 4, ... cycles, up to
+ * settings.autocrafter.max_sleep_cycles. A player or hopper changing its container wakes it
+ * right away; minions put items into containers without an event, so those are noticed once
+ * the crafter wakes up by itself.
+ */
+public class AutoCrafterManager implements Runnable {
+
+    public static final String FILE_NAME = "autocrafters.yml";
+
+    // The side checked first for the crafter's container
+    private static final BlockFace[] FACES = {
+            BlockFace.UP, BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST, BlockFace.DOWN
+    };
+
+    private final TopMinionCrafting plugin;
+    private final File file;
+    // World UID -> chunk key -> the crafters in that chunk
+    private final Map<UUID, Map<Long, ChunkCrafters>> worlds = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile boolean dirty;
+
+    // Timer thread only
+    private long cycle;
+    private TaskHandle task;
+
+    public AutoCrafterManager(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), FILE_NAME);
+    }
+
+    /**
+     * Start the cycle timer, if auto-crafters are enabled
+     */
+    public void start() {
+        if (!plugin.getSettings().isAutoCrafter()) return;
+
+        long period = plugin.getSettings().getAutoCrafterCycleTicks();
+        task = plugin.getTaskScheduler().runGlobalTimer(this, period, period);
+        plugin.debug(() -> "Running " + count.get() + " auto-crafter(s) every " + period + " ticks");
+    }
+
+    /**
+     * Stop the cycle timer and save crafters that were placed or removed since the last save
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (dirty) {
+            save(false);
+        }
+    }
+
+    /**
+     * Load the placed crafters from autocrafters.yml
+     */
+    public void load() {
+        if (!file.isFile()) return;
+
+        int invalid = 0;
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        for (String line : yaml.getStringList("crafters")) {
+            AutoCrafter crafter = parse(line);
+            if (crafter == null) {
+                invalid++;
+                continue;
+            }
+            add(crafter);
+        }
+        dirty = false;
+
+        if (invalid > 0) {
+            plugin.getLogger().warning("Skipped " + invalid + " invalid auto-crafter(s) in " + FILE_NAME);
+        }
+        plugin.debug(() -> "Loaded " + count.get() + " auto-crafter(s)");
+    }
+
+    /**
+     * Register a crafter that was just placed
+     *
+     * @param block The placed block
+     * @param recipe The recipe the crafter crafts
+     * @param owner The player who placed it
+     */
+    public AutoCrafter place(Block block, NamespacedKey recipe, Player owner) {
+        AutoCrafter crafter = new AutoCrafter(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ(),
+                block.getType(), recipe, owner.getUniqueId(), owner.getName());
+        add(crafter);
+        return crafter;
+    }
+
+    /**
+     * @return The crafter at a block, or null if the block is not an auto-crafter
+     */
+    public AutoCrafter get(Block block) {
+        Map<Long, ChunkCrafters> chunks = worlds.get(block.getWorld().getUID());
+        return chunks != null ? find(chunks, block.getX(), block.getY(), block.getZ()) : null;
+    }
+
+    public void remove(AutoCrafter crafter) {
+        Map<Long, ChunkCrafters> chunks = worlds.get(crafter.getWorldId());
+        if (chunks == null) return;
+
+        chunks.computeIfPresent(chunkKey(crafter.getChunkX(), crafter.getChunkZ()), (key, chunk) -> {
+            if (chunk.crafters.remove(crafter)) {
+                count.decrementAndGet();
+                dirty = true;
+            }
+            return chunk.crafters.isEmpty() ? null : chunk;
+        });
+    }
+
+    private void add(AutoCrafter crafter) {
+        int chunkX = crafter.getChunkX();
+        int chunkZ = crafter.getChunkZ();
+        worlds.computeIfAbsent(crafter.getWorldId(), id -> new ConcurrentHashMap<>())
+                .compute(chunkKey(chunkX, chunkZ), (key, chunk) -> {
+                    if (chunk == null) chunk = new ChunkCrafters(chunkX, chunkZ);
+                    chunk.crafters.add(crafter);
+                    chunk.wakeAt = 0;
+                    return chunk;
+                });
+        count.incrementAndGet();
+        dirty = true;
+    }
+
+    /**
+     * @return The number of placed crafters
+     */
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * Wake the crafters next to a container whose contents changed
+     */
+    public void wakeAround(Location location) {
+        if (count.get() == 0 || location == null || location.getWorld() == null) return;
+
+        Map<Long, ChunkCrafters> chunks = worlds.get(location.getWorld().getUID());
+        if (chunks == null) return;
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        wake(chunks, x + 1, y, z);
+        wake(chunks, x - 1, y, z);
+        wake(chunks, x, y + 1, z);
+        wake(chunks, x, y - 1, z);
+        wake(chunks, x, y, z + 1);
+        wake(chunks, x, y, z - 1);
+    }
+
+    private void wake(Map<Long, ChunkCrafters> chunks, int x, int y, int z) {
+        ChunkCrafters chunk = chunks.get(chunkKey(x >> 4, z >> 4));
+        if (chunk == null) return;
+
+        for (AutoCrafter crafter : chunk.crafters) {
+            if (crafter.isAt(x, y, z)) {
+                crafter.wakeAt = 0;
+                chunk.wakeAt = 0;
+            }
+        }
+    }
+
+    /**
+     * Resume the crafters of a chunk that was parked while it was unloaded
+     */
+    public void chunkLoaded(Chunk loaded) {
+        if (count.get() == 0) return;
+
+        Map<Long, ChunkCrafters> chunks = worlds.get(loaded.getWorld().getUID());
+        if (chunks == null) return;
+
+        ChunkCrafters chunk = chunks.get(chunkKey(loaded.getX(), loaded.getZ()));
+        if (chunk != null) chunk.wakeAt = 0;
+    }
+
+    /**
+     * One cycle: hand every chunk with a due crafter to the thread that owns it
+     */
+    @Override
+    public void run() {
+        long now = ++cycle;
+        if (dirty) {
+            save(true);
+        }
+
+        TaskScheduler scheduler = plugin.getTaskScheduler();
+        for (Map.Entry<UUID, Map<Long, ChunkCrafters>> entry : worlds.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            if (world == null) continue;
+
+            for (ChunkCrafters chunk : entry.getValue().values()) {
+                // Skip chunks whose last batch has not run yet (a busy region on Folia)
+                if (chunk.wakeAt > now || chunk.running) continue;
+
+                chunk.running = true;
+                scheduler.runAtRegion(world, chunk.x, chunk.z, () -> runChunk(world, chunk, now));
+            }
+        }
+    }
+
+    /**
+     * Run the due crafters of one chunk, on the thread that owns the chunk
+     */
+    private void runChunk(World world, ChunkCrafters chunk, long now) {
+        try {
+            // Parked until the chunk loads again, see chunkLoaded
+            if (!world.isChunkLoaded(chunk.x, chunk.z)) {
+                chunk.wakeAt = Long.MAX_VALUE;
+                return;
+            }
+
+            long start = System.nanoTime();
+            long next = Long.MAX_VALUE;
+            for (AutoCrafter crafter : chunk.crafters) {
+                if (crafter.wakeAt <= now) {
+                    runCrafter(world, crafter, now);
+                }
+                next = Math.min(next, crafter.wakeAt);
+            }
+            chunk.wakeAt = next;
+            plugin.getMetrics().getAutoCrafter().recordSince(start);
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Error while running auto-crafters in chunk " + chunk.x + "," + chunk.z + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            chunk.running = false;
+        }
+    }
+
+    private void runCrafter(World world, AutoCrafter crafter, long now) {
+        Block block = world.getBlockAt(crafter.getX(), crafter.getY(), crafter.getZ());
+
+        // Removed without a BlockBreakEvent, e.g. by an explosion or a world editor
+        if (block.getType() != crafter.getBlock()) {
+            remove(crafter);
+            plugin.debug(() -> "Auto-crafter at " + crafter.getX() + "," + crafter.getY() + "," + crafter.getZ() + " is gone, removed it");
+            return;
+        }
+
+        if (craft(crafter, block) > 0) {
+            crafter.sleep = 0;
+            crafter.wakeAt = now + 1;
+        } else {
+            crafter.sleep = Math.min(Math.max(1, crafter.sleep * 2), plugin.getSettings().getAutoCrafterMaxSleep());
+            crafter.wakeAt = now + crafter.sleep;
+        }
+    }
+
+    /**
+     * Craft as often as the container's contents allow, with a single update of the container
+     *
+     * @return The number of crafts performed
+     */
+    private int craft(AutoCrafter crafter, Block block) {
+        // Removed or disabled recipes leave the crafter idle until the recipe is back
+        RecipeManager.RecipeData data = plugin.getRecipeManager().getRecipe(crafter.getRecipe());
+        if (data == null) return 0;
+
+        Inventory inventory = findContainer(crafter, block);
+        if (inventory == null) return 0;
+
+        RecipeRequirements requirements = crafter.requirements;
+        if (requirements == null || requirements.getDefinition() != data.getDefinition()) {
+            requirements = new RecipeRequirements(data.getDefinition());
+            crafter.requirements = requirements;
+        }
+
+        ItemStack[] contents = inventory.getStorageContents();
+        int crafts = requirements.getMaxCrafts(contents, plugin.getSettings().getAutoCrafterMaxCrafts());
+        if (crafts == 0) return 0;
+
+        ItemStack result = plugin.getItemUtil().getResultItem(data);
+        if (result == null) {
+            plugin.getMetrics().recordFailure();
+            return 0;
+        }
+
+        crafts = requirements.craft(contents, result, crafts);
+        if (crafts <= 0) return 0;
+        inventory.setStorageContents(contents);
+
+        plugin.getMetrics().recordCraft(data.getKey(), crafts);
+        plugin.getAuditLog().record(crafter.getOwnerId(), crafter.getOwnerName(), data, crafts);
+
+        int crafted = crafts;
+        plugin.debug(() -> "Auto-crafter of " + crafter.getOwnerName() + " crafted " + crafted + "x " + data.getKey().getKey());
+        return crafts;
+    }
+
+    /**
+     * Find the container next to a crafter, trying the side it was found on last time first
+     * Only sides inside the crafter's own chunk are checked: the batch owns just that chunk, and
+     * a neighbouring chunk may be unloaded or, on Folia, belong to another region.
+     */
+    private Inventory findContainer(AutoCrafter crafter, Block block) {
+        BlockFace last = crafter.containerFace;
+        if (last != null) {
+            Inventory inventory = getContainer(block.getRelative(last));
+            if (inventory != null) return inventory;
+        }
+
+        for (BlockFace face : FACES) {
+            if (face == last || !isInChunk(crafter, face)) continue;
+
+            Inventory inventory = getContainer(block.getRelative(face));
+            if (inventory != null) {
+                crafter.containerFace = face;
+                return inventory;
+            }
+        }
+        crafter.containerFace = null;
+        return null;
+    }
+
+    private static Inventory getContainer(Block block) {
+        BlockState state = block.getState();
+        return state instanceof Container ? ((Container) state).getInventory() : null;
+    }
+
+    private static boolean isInChunk(AutoCrafter crafter, BlockFace face) {
+        return (crafter.getX() + face.getModX()) >> 4 == crafter.getChunkX()
+                && (crafter.getZ() + face.getModZ()) >> 4 == crafter.getChunkZ();
+    }
+
+    /**
+     * Create the item that places an auto-crafter for a recipe
+     *
+     * @param recipe The recipe to craft
+     * @param material The block of the item
+     */
+    public ItemStack createItem(NamespacedKey recipe, Material material) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            Settings settings = plugin.getSettings();
+            meta.setDisplayName(settings.getAutoCrafterName().render("recipe", recipe.getKey()));
+            List<String> lore = new ArrayList<>();
+            for (MessageTemplate line : settings.getAutoCrafterLore()) {
+                lore.add(line.render("recipe", recipe.getKey()));
+            }
+            meta.setLore(lore);
+            item.setItemMeta(meta);
+        }
+        ItemTags.tagAutoCrafter(item, recipe.getKey());
+        return item;
+    }
+
+    /**
+     * Write all crafters to autocrafters.yml, one line per crafter
+     *
+     * @param async Write the file off the calling thread
+     */
+    private void save(boolean async) {
+        dirty = false;
+
+        List<String> lines = new ArrayList<>(count.get());
+        for (Map<Long, ChunkCrafters> chunks : worlds.values()) {
+            for (ChunkCrafters chunk : chunks.values()) {
+                for (AutoCrafter crafter : chunk.crafters) {
+                    lines.add(format(crafter));
+                }
+            }
+        }
+
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("crafters", lines);
+        String content = yaml.saveToString();
+        if (async) {
+            plugin.getTaskScheduler().runAsync(() -> write(content));
+        } else {
+            write(content);
+        }
+    }
+
+    private synchronized void write(String content) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(temp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not save auto-crafters to " + FILE_NAME + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Format a crafter as world,x,y,z,block,recipe,owner uuid,owner name
+     */
+    private static String format(AutoCrafter crafter) {
+        return crafter.getWorldId() + "," + crafter.getX() + "," + crafter.getY() + "," + crafter.getZ() + ","
+                + crafter.getBlock().name() + "," + crafter.getRecipe().getKey() + ","
+                + crafter.getOwnerId() + "," + crafter.getOwnerName();
+    }
+
+    /**
+     * @return The crafter, or null if the line is not valid
+     */
+    private AutoCrafter parse(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 8) return null;
+
+        try {
+            Material block = Material.getMaterial(fields[4]);
+            if (block == null) return null;
+            return new AutoCrafter(UUID.fromString(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]), block, new NamespacedKey(plugin, fields[5]), UUID.fromString(fields[6]), fields[7]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static AutoCrafter find(Map<Long, ChunkCrafters> chunks, int x, int y, int z) {
+        ChunkCrafters chunk = chunks.get(chunkKey(x >> 4, z >> 4));
+        if (chunk == null) return null;
+
+        for (AutoCrafter crafter : chunk.crafters) {
+            if (crafter.isAt(x, y, z)) return crafter;
+        }
+        return null;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The crafters of one chunk and the cycle at which the first of them is due
+     */
+    private static final class ChunkCrafters {
+        private final int x;
+        private final int z;
+        // Changed rarely (placing and breaking), read every cycle
+        private final List<AutoCrafter> crafters = new CopyOnWriteArrayList<>();
+        private volatile long wakeAt;
+        private volatile boolean running;
+
+        ChunkCrafters(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+}
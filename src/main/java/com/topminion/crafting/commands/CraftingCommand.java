@@ -0,0 +1,333 @@
+package com.topminion.crafting.commands;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.audit.AuditEntry;
+import com.topminion.crafting.config.Settings;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.metrics.CraftMetrics;
+import com.topminion.crafting.metrics.LatencyHistogram;
+import com.topminion.crafting.recipes.RecipeRequirements;
+import com.topminion.crafting.utils.CraftingUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Handles /topminioncrafting and its subcommands
+ */
+public class CraftingCommand implements CommandExecutor {
+
+    private static final DateTimeFormatter AUDIT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final TopMinionCrafting plugin;
+
+    public CraftingCommand(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) return false;
+
+        Settings settings = plugin.getSettings();
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "reload":
+                if (!sender.hasPermission("topminioncrafting.admin")) {
+                    plugin.send(sender, settings.getNoPermission().render());
+                    return true;
+                }
+
+                plugin.reload(() -> plugin.send(sender, plugin.getSettings().getReloadSuccess().render()));
+                return true;
+
+            case "recipes":
+                if (!(sender instanceof Player)) {
+                    plugin.send(sender, settings.getPlayersOnly().render());
+                    return true;
+                }
+                if (!sender.hasPermission("topminioncrafting.recipes")) {
+                    plugin.send(sender, settings.getNoPermission().render());
+                    return true;
+                }
+
+                plugin.getRecipeBrowser().openList((Player) sender, 0);
+                return true;
+
+            case "audit":
+                audit(sender, label, args);
+                return true;
+
+            case "autocrafter":
+                giveAutoCrafter(sender, label, args);
+                return true;
+
+            case "craft":
+                craft(sender, label, args);
+                return true;
+
+            case "stats":
+                if (!sender.hasPermission("topminioncrafting.admin")) {
+                    plugin.send(sender, settings.getNoPermission().render());
+                    return true;
+                }
+
+                sendStats(sender);
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private void audit(CommandSender sender, String label, String[] args) {
+        if (!sender.hasPermission("topminioncrafting.admin")) {
+            plugin.send(sender, plugin.getSettings().getNoPermission().render());
+            return;
+        }
+        if (args.length < 2) {
+            plugin.send(sender, plugin.getSettings().getAuditUsage().render("label", label));
+            return;
+        }
+
+        int limit = 10;
+        if (args.length > 2) {
+            try {
+                limit = Math.max(1, Math.min(100, Integer.parseInt(args[2])));
+            } catch (NumberFormatException e) {
+                plugin.send(sender, plugin.getSettings().getAuditInvalidLimit().render("limit", args[2]));
+                return;
+            }
+        }
+
+        // The log is scanned off the main thread; the answer goes back to the sender's thread
+        String player = args[1];
+        plugin.getAuditLog().query(player, limit, entries -> {
+            Runnable reply = () -> sendAudit(sender, player, entries);
+            if (sender instanceof Player) {
+                plugin.getTaskScheduler().runAtEntity((Player) sender, reply);
+            } else {
+                plugin.getTaskScheduler().runGlobal(reply);
+            }
+        });
+    }
+
+    private void giveAutoCrafter(CommandSender sender, String label, String[] args) {
+        Settings settings = plugin.getSettings();
+        if (!sender.hasPermission("topminioncrafting.admin")) {
+            plugin.send(sender, settings.getNoPermission().render());
+            return;
+        }
+        if (args.length < 2 || (args.length < 3 && !(sender instanceof Player))) {
+            plugin.send(sender, settings.getAutoCrafterUsage().render("label", label));
+            return;
+        }
+
+        RecipeManager.RecipeData data = findRecipe(args[1]);
+        if (data == null) {
+            plugin.send(sender, settings.getUnknownRecipe().render("recipe", args[1]));
+            return;
+        }
+
+        Player target = args.length > 2 ? Bukkit.getPlayerExact(args[2]) : (Player) sender;
+        if (target == null) {
+            plugin.send(sender, settings.getPlayerNotFound().render("player", args[2]));
+            return;
+        }
+
+        ItemStack item = plugin.getAutoCrafters().createItem(data.getKey(), settings.getAutoCrafterBlock());
+        plugin.getTaskScheduler().runAtEntity(target, () -> CraftingUtil.giveItems(target, item, 1));
+        plugin.send(sender, settings.getAutoCrafterGiven().render("recipe", data.getKey().getKey(), "player", target.getName()));
+    }
+
+    private void craft(CommandSender sender, String label, String[] args) {
+        Settings settings = plugin.getSettings();
+        if (!(sender instanceof Player)) {
+            plugin.send(sender, settings.getPlayersOnly().render());
+            return;
+        }
+        if (args.length < 2) {
+            plugin.send(sender, settings.getCraftUsage().render("label", label));
+            return;
+        }
+
+        RecipeManager.RecipeData data = findRecipe(args[1]);
+        if (data == null) {
+            plugin.send(sender, settings.getUnknownRecipe().render("recipe", args[1]));
+            return;
+        }
+
+        int amount = 1;
+        if (args.length > 2) {
+            try {
+                amount = args[2].equalsIgnoreCase("all") ? Integer.MAX_VALUE : Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                amount = 0;
+            }
+            if (amount < 1) {
+                plugin.send(sender, settings.getCraftInvalidAmount().render("amount", args[2]));
+                return;
+            }
+        }
+
+        craftFromInventory((Player) sender, data, amount);
+    }
+
+    /**
+     * Look up one of our recipes by its key without the namespace, e.g. minion_miner
+     *
+     * @return The recipe, or null if there is none with that key
+     */
+    private RecipeManager.RecipeData findRecipe(String key) {
+        try {
+            return plugin.getRecipeManager().getRecipe(new NamespacedKey(plugin, key.toLowerCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Craft a recipe straight from a player's inventory, as often as requested and possible
+     * The ingredients are counted in one pass and the inventory is written back once.
+     */
+    private void craftFromInventory(Player player, RecipeManager.RecipeData data, int amount) {
+        Settings settings = plugin.getSettings();
+        CraftMetrics metrics = plugin.getMetrics();
+        long start = System.nanoTime();
+        try {
+            if (!player.hasPermission(data.getPermission())) {
+                metrics.recordDenied();
+                plugin.send(player, settings.getNoPermission().render());
+                return;
+            }
+            // The whole command counts as one craft, like a shift-click
+            if (!plugin.getRateLimiter().tryAcquire(player, data)) {
+                metrics.recordThrottled();
+                if (plugin.getRateLimiter().shouldWarn(player)) {
+                    plugin.send(player, settings.getCraftThrottled().render());
+                }
+                return;
+            }
+
+            RecipeRequirements requirements = new RecipeRequirements(data.getDefinition());
+            PlayerInventory inventory = player.getInventory();
+            ItemStack[] contents = inventory.getStorageContents();
+            int crafts = requirements.getMaxCrafts(contents, amount);
+            if (crafts == 0) {
+                plugin.send(player, settings.getCraftMissingIngredients().render("recipe", data.getKey().getKey()));
+                return;
+            }
+
+            ItemStack result = plugin.getItemUtil().getResultItem(data);
+            if (result == null) {
+                metrics.recordFailure();
+                plugin.send(player, settings.getItemCreationFailed().render());
+                plugin.getLogger().warning("Failed to create " + data.getType().getLabel() + " item for recipe: " + data.getKey());
+                return;
+            }
+
+            crafts = requirements.craft(contents, result, crafts);
+            if (crafts == RecipeRequirements.MISSING_INGREDIENTS) {
+                plugin.send(player, settings.getCraftMissingIngredients().render("recipe", data.getKey().getKey()));
+                return;
+            }
+            if (crafts == 0) {
+                plugin.send(player, settings.getCraftNoSpace().render("recipe", data.getKey().getKey()));
+                return;
+            }
+            inventory.setStorageContents(contents);
+
+            metrics.recordCraft(data.getKey(), crafts);
+            plugin.getAuditLog().record(player, data, crafts);
+            if (data.getType() == RecipeManager.RecipeType.MINION) {
+                plugin.send(player, settings.getMinionCrafted().render("minion", data.getDefinition().getResultId()));
+            } else {
+                plugin.send(player, settings.getUpgradeCrafted().render("upgrade", data.getDefinition().getResultId()));
+            }
+
+            int crafted = crafts;
+            plugin.debug(() -> "Player " + player.getName() + " crafted " + crafted + "x " + data.getKey().getKey() + " by command");
+        } finally {
+            metrics.getCraftHandler().recordSince(start);
+        }
+    }
+
+    /**
+     * Send the craft counters and latency timings
+     */
+    private void sendStats(CommandSender sender) {
+        Settings settings = plugin.getSettings();
+        CraftMetrics metrics = plugin.getMetrics();
+        long uptime = (System.currentTimeMillis() - metrics.getStartedAt()) / 1000;
+        plugin.send(sender, settings.getStatsHeader().render("uptime", String.valueOf(uptime)));
+        plugin.send(sender, settings.getStatsCounts().render(
+                "crafted", String.valueOf(metrics.getCrafted()),
+                "denied", String.valueOf(metrics.getDenied()),
+                "failed", String.valueOf(metrics.getFailed()),
+                "throttled", String.valueOf(metrics.getThrottled()),
+                "queued", String.valueOf(plugin.getCraftQueue().size()),
+                "autocrafters", String.valueOf(plugin.getAutoCrafters().size())));
+
+        // Top recipes by craft count
+        List<Map.Entry<String, Long>> recipes = new ArrayList<>();
+        for (Map.Entry<NamespacedKey, LongAdder> entry : metrics.getCraftsByRecipe().entrySet()) {
+            recipes.add(Map.entry(entry.getKey().getKey(), entry.getValue().sum()));
+        }
+        recipes.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (int i = 0; i < Math.min(5, recipes.size()); i++) {
+            plugin.send(sender, settings.getStatsRecipe().render(
+                    "recipe", recipes.get(i).getKey(), "crafts", String.valueOf(recipes.get(i).getValue())));
+        }
+
+        sendLatency(sender, "Craft handler", metrics.getCraftHandler());
+        sendLatency(sender, "Item creation", metrics.getItemCreation());
+        sendLatency(sender, "Recipe reload", metrics.getReload());
+        sendLatency(sender, "Auto-crafter chunk", metrics.getAutoCrafter());
+    }
+
+    /**
+     * Send the result of an audit query, oldest craft first
+     */
+    private void sendAudit(CommandSender sender, String player, List<AuditEntry> entries) {
+        Settings settings = plugin.getSettings();
+        if (entries.isEmpty()) {
+            plugin.send(sender, settings.getAuditEmpty().render("player", player));
+            return;
+        }
+
+        plugin.send(sender, settings.getAuditHeader().render("count", String.valueOf(entries.size()), "player", player));
+        for (AuditEntry entry : entries) {
+            plugin.send(sender, settings.getAuditEntry().render(
+                    "time", AUDIT_TIME.format(Instant.ofEpochMilli(entry.getTime())),
+                    "player", entry.getPlayerName(),
+                    "crafts", String.valueOf(entry.getCrafts()),
+                    "recipe", entry.getRecipe()));
+        }
+    }
+
+    private void sendLatency(CommandSender sender, String timer, LatencyHistogram histogram) {
+        plugin.send(sender, plugin.getSettings().getStatsLatency().render(
+                "timer", timer,
+                "calls", String.valueOf(histogram.getCount()),
+                "mean", formatMillis(histogram.getMeanNanos()),
+                "p99", formatMillis(histogram.getPercentileNanos(0.99)),
+                "max", formatMillis(histogram.getMaxNanos())));
+    }
+
+    private static String formatMillis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,180 @@
+package com.topminion.crafting.config;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * Titles, button names and lore lines of the recipe browser, from settings.messages.browser
+ * Part of the {@link Settings} snapshot.
+ */
+public final class BrowserTexts {
+
+    private final MessageTemplate listTitle;
+    private final MessageTemplate detailTitle;
+    private final MessageTemplate entryLevel;
+    private final MessageTemplate entryClick;
+    private final MessageTemplate previousPage;
+    private final MessageTemplate nextPage;
+    private final MessageTemplate back;
+    private final MessageTemplate infoName;
+    private final MessageTemplate infoLore;
+    private final MessageTemplate shaped;
+    private final MessageTemplate shapedHint;
+    private final MessageTemplate shapeless;
+    private final MessageTemplate shapelessHint;
+    private final MessageTemplate permission;
+    private final MessageTemplate unavailableName;
+    private final MessageTemplate unavailableLore;
+    private final MessageTemplate ingredientMinion;
+    private final MessageTemplate ingredientMinionLevel;
+    private final MessageTemplate ingredientUpgrade;
+    private final MessageTemplate ingredientModelData;
+    private final MessageTemplate ingredientTag;
+
+    BrowserTexts(FileConfiguration config) {
+        this.listTitle = text(config, "list_title", "&8Recipes ({page}/{pages})");
+        this.detailTitle = text(config, "detail_title", "&8Recipe: {recipe}");
+        this.entryLevel = text(config, "entry_level", "&7Level: &f{level}");
+        this.entryClick = text(config, "entry_click", "&eClick to view the recipe");
+        this.previousPage = text(config, "previous_page", "&ePrevious page");
+        this.nextPage = text(config, "next_page", "&eNext page");
+        this.back = text(config, "back", "&eBack");
+        this.infoName = text(config, "info_name", "&e{count} recipe(s)");
+        this.infoLore = text(config, "info_lore", "&7Page {page} of {pages}");
+        this.shaped = text(config, "shaped", "&eShaped recipe");
+        this.shapedHint = text(config, "shaped_hint", "&7Place the items as shown");
+        this.shapeless = text(config, "shapeless", "&eShapeless recipe");
+        this.shapelessHint = text(config, "shapeless_hint", "&7Place the items anywhere in the grid");
+        this.permission = text(config, "permission", "&7Permission: &f{permission}");
+        this.unavailableName = text(config, "unavailable_name", "&c{id}");
+        this.unavailableLore = text(config, "unavailable_lore", "&7Item unavailable");
+        this.ingredientMinion = text(config, "ingredient_minion", "&7Crafted {minion} minion");
+        this.ingredientMinionLevel = text(config, "ingredient_minion_level", "&7Crafted {minion} minion, level {level}");
+        this.ingredientUpgrade = text(config, "ingredient_upgrade", "&7Crafted {upgrade} upgrade");
+        this.ingredientModelData = text(config, "ingredient_model_data", "&7Custom model data: &f{model_data}");
+        this.ingredientTag = text(config, "ingredient_tag", "&7Tag {tag}: &f{value}");
+    }
+
+    private static MessageTemplate text(FileConfiguration config, String name, String fallback) {
+        return MessageTemplate.compile(config.getString("settings.messages.browser." + name, fallback));
+    }
+
+    /**
+     * @return The title of a list page, with {page} and {pages} placeholders
+     */
+    public MessageTemplate getListTitle() {
+        return listTitle;
+    }
+
+    /**
+     * @return The title of a recipe's detail page, with a {recipe} placeholder
+     */
+    public MessageTemplate getDetailTitle() {
+        return detailTitle;
+    }
+
+    /**
+     * @return The lore line of tier recipes in the list, with a {level} placeholder
+     */
+    public MessageTemplate getEntryLevel() {
+        return entryLevel;
+    }
+
+    public MessageTemplate getEntryClick() {
+        return entryClick;
+    }
+
+    public MessageTemplate getPreviousPage() {
+        return previousPage;
+    }
+
+    public MessageTemplate getNextPage() {
+        return nextPage;
+    }
+
+    public MessageTemplate getBack() {
+        return back;
+    }
+
+    /**
+     * @return The name of the info button, with a {count} placeholder
+     */
+    public MessageTemplate getInfoName() {
+        return infoName;
+    }
+
+    /**
+     * @return The lore of the info button, with {page} and {pages} placeholders
+     */
+    public MessageTemplate getInfoLore() {
+        return infoLore;
+    }
+
+    public MessageTemplate getShaped() {
+        return shaped;
+    }
+
+    public MessageTemplate getShapedHint() {
+        return shapedHint;
+    }
+
+    public MessageTemplate getShapeless() {
+        return shapeless;
+    }
+
+    public MessageTemplate getShapelessHint() {
+        return shapelessHint;
+    }
+
+    /**
+     * @return The permission line of a detail page, with a {permission} placeholder
+     */
+    public MessageTemplate getPermission() {
+        return permission;
+    }
+
+    /**
+     * @return The name shown for a result item that cannot be created, with an {id} placeholder
+     */
+    public MessageTemplate getUnavailableName() {
+        return unavailableName;
+    }
+
+    public MessageTemplate getUnavailableLore() {
+        return unavailableLore;
+    }
+
+    /**
+     * @return The lore of a minion ingredient, with a {minion} placeholder
+     */
+    public MessageTemplate getIngredientMinion() {
+        return ingredientMinion;
+    }
+
+    /**
+     * @return The lore of a minion ingredient of a given level, with {minion} and {level} placeholders
+     */
+    public MessageTemplate getIngredientMinionLevel() {
+        return ingredientMinionLevel;
+    }
+
+    /**
+     * @return The lore of an upgrade ingredient, with an {upgrade} placeholder
+     */
+    public MessageTemplate getIngredientUpgrade() {
+        return ingredientUpgrade;
+    }
+
+    /**
+     * @return The lore of an ingredient with custom model data, with a {model_data} placeholder
+     */
+    public MessageTemplate getIngredientModelData() {
+        return ingredientModelData;
+    }
+
+    /**
+     * @return The lore of an ingredient tag, with {tag} and {value} placeholders
+     */
+    public MessageTemplate getIngredientTag() {
+        return ingredientTag;
+    }
+}
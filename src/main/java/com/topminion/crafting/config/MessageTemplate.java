@@ -0,0 +1,140 @@
+package com.topminion.crafting.config;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message that is colorized once and pre-split into literal text and {placeholder} segments
+ * Rendering is a single pass over the segments into one StringBuilder.
+ */
+public final class MessageTemplate {
+
+    private static final MessageTemplate EMPTY = new MessageTemplate(new String[]{""}, new boolean[]{false}, 0);
+
+    // Literal text, or the placeholder name where isPlaceholder is true
+    private final String[] segments;
+    private final boolean[] isPlaceholder;
+    private final int literalLength;
+
+    private MessageTemplate(String[] segments, boolean[] isPlaceholder, int literalLength) {
+        this.segments = segments;
+        this.isPlaceholder = isPlaceholder;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Colorize and split a message
+     *
+     * @param message The raw message with &amp; color codes, may be null
+     * @return The compiled template
+     */
+    public static MessageTemplate compile(String message) {
+        if (message == null || message.isEmpty()) return EMPTY;
+
+        String colored = ChatColor.translateAlternateColorCodes('&', message);
+        List<String> segments = new ArrayList<>();
+        List<Boolean> placeholders = new ArrayList<>();
+        int literalLength = 0;
+
+        int start = 0;
+        while (start < colored.length()) {
+            int open = colored.indexOf('{', start);
+            int close = open < 0 ? -1 : colored.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            if (open > start) {
+                segments.add(colored.substring(start, open));
+                placeholders.add(false);
+                literalLength += open - start;
+            }
+            segments.add(colored.substring(open + 1, close));
+            placeholders.add(true);
+            start = close + 1;
+        }
+        if (start < colored.length()) {
+            segments.add(colored.substring(start));
+            placeholders.add(false);
+            literalLength += colored.length() - start;
+        }
+
+        boolean[] isPlaceholder = new boolean[placeholders.size()];
+        for (int i = 0; i < isPlaceholder.length; i++) {
+            isPlaceholder[i] = placeholders.get(i);
+        }
+        return new MessageTemplate(segments.toArray(new String[0]), isPlaceholder, literalLength);
+    }
+
+    /**
+     * @return true if the message is empty and should not be sent
+     */
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /**
+     * Render the message without placeholders
+     */
+    public String render() {
+        return render(null, null);
+    }
+
+    /**
+     * Render the message, replacing one placeholder
+     * Unknown placeholders are kept as {name}.
+     *
+     * @param name The placeholder name, without braces
+     * @param value The replacement
+     */
+    public String render(String name, String value) {
+        if (segments.length == 1 && !isPlaceholder[0]) return segments[0];
+
+        StringBuilder builder = new StringBuilder(literalLength + (value != null ? value.length() : 0) + 8);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (!isPlaceholder[i]) {
+                builder.append(segment);
+            } else if (segment.equals(name)) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(segment).append('}');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Render the message, replacing several placeholders
+     * Unknown placeholders are kept as {name}.
+     *
+     * @param placeholders Placeholder names, without braces, each followed by its replacement
+     */
+    public String render(String... placeholders) {
+        if (segments.length == 1 && !isPlaceholder[0]) return segments[0];
+
+        StringBuilder builder = new StringBuilder(literalLength + placeholders.length * 8);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (!isPlaceholder[i]) {
+                builder.append(segment);
+                continue;
+            }
+
+            String value = null;
+            for (int j = 0; j + 1 < placeholders.length; j += 2) {
+                if (segment.equals(placeholders[j])) {
+                    value = placeholders[j + 1];
+                    break;
+                }
+            }
+            if (value != null) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(segment).append('}');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,447 @@
+package com.topminion.crafting.config;
+
+import com.topminion.crafting.managers.CraftRateLimiter;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable snapshot of the settings section of config.yml
+ * Created on enable and on every reload; messages are compiled into {@link MessageTemplate}s.
+ */
+public final class Settings {
+
+    private final boolean debug;
+    private final boolean watchRecipes;
+    private final boolean recipeCache;
+    private final String recipeArchive;
+    private final boolean detectConflicts;
+    private final int craftQueueBudget;
+    private final CraftRateLimiter.Limit rateLimit;
+    private final boolean metricsExport;
+    private final String metricsFormat;
+    private final String metricsFile;
+    private final int metricsInterval;
+    private final boolean audit;
+    private final long auditMaxFileBytes;
+    private final int auditMaxFiles;
+    private final int auditFlushInterval;
+    private final boolean autoCrafter;
+    private final Material autoCrafterBlock;
+    private final int autoCrafterCycleTicks;
+    private final int autoCrafterMaxCrafts;
+    private final int autoCrafterMaxSleep;
+    private final MessageTemplate autoCrafterName;
+    private final List<MessageTemplate> autoCrafterLore;
+
+    private final MessageTemplate reloadSuccess;
+    private final MessageTemplate noPermission;
+    private final MessageTemplate playersOnly;
+    private final MessageTemplate minionCrafted;
+    private final MessageTemplate upgradeCrafted;
+    private final MessageTemplate itemCreationFailed;
+    private final MessageTemplate craftThrottled;
+    private final MessageTemplate minionTierLore;
+    private final BrowserTexts browserTexts;
+    private final MessageTemplate statsHeader;
+    private final MessageTemplate statsCounts;
+    private final MessageTemplate statsRecipe;
+    private final MessageTemplate statsLatency;
+    private final MessageTemplate auditUsage;
+    private final MessageTemplate auditInvalidLimit;
+    private final MessageTemplate auditEmpty;
+    private final MessageTemplate auditHeader;
+    private final MessageTemplate auditEntry;
+    private final MessageTemplate autoCrafterUsage;
+    private final MessageTemplate autoCrafterGiven;
+    private final MessageTemplate unknownRecipe;
+    private final MessageTemplate playerNotFound;
+    private final MessageTemplate craftUsage;
+    private final MessageTemplate craftInvalidAmount;
+    private final MessageTemplate craftMissingIngredients;
+    private final MessageTemplate craftNoSpace;
+
+    private Settings(FileConfiguration config) {
+        String prefix = config.getString("settings.prefix", "") + " ";
+
+        this.debug = config.getBoolean("settings.debug", false);
+        this.watchRecipes = config.getBoolean("settings.watch_recipes", false);
+        this.recipeCache = config.getBoolean("settings.recipe_cache", true);
+        this.recipeArchive = config.getString("settings.recipe_archive", "recipes.zip");
+        this.detectConflicts = config.getBoolean("settings.detect_conflicts", true);
+        this.craftQueueBudget = Math.max(1, config.getInt("settings.craft_queue.per_tick_budget", 200));
+        double craftsPerSecond = config.getDouble("settings.rate_limit.crafts_per_second", 15);
+        this.rateLimit = new CraftRateLimiter.Limit(craftsPerSecond,
+                config.getInt("settings.rate_limit.burst", (int) Math.ceil(craftsPerSecond * 2)));
+        this.metricsExport = config.getBoolean("settings.metrics.export.enabled", false);
+        this.metricsFormat = config.getString("settings.metrics.export.format", "prometheus").toLowerCase(Locale.ROOT);
+        this.metricsFile = config.getString("settings.metrics.export.file", "metrics.prom");
+        this.metricsInterval = Math.max(1, config.getInt("settings.metrics.export.interval_seconds", 60));
+        this.audit = config.getBoolean("settings.audit.enabled", true);
+        this.auditMaxFileBytes = Math.max(1, config.getInt("settings.audit.max_file_mb", 16)) * 1024L * 1024L;
+        this.auditMaxFiles = Math.max(1, config.getInt("settings.audit.max_files", 5));
+        this.auditFlushInterval = Math.max(50, config.getInt("settings.audit.flush_interval_ms", 1000));
+        this.autoCrafter = config.getBoolean("settings.autocrafter.enabled", true);
+        Material block = Material.matchMaterial(config.getString("settings.autocrafter.block", "CRAFTING_TABLE"));
+        this.autoCrafterBlock = block != null && block.isBlock() ? block : Material.CRAFTING_TABLE;
+        this.autoCrafterCycleTicks = Math.max(1, config.getInt("settings.autocrafter.cycle_ticks", 40));
+        this.autoCrafterMaxCrafts = Math.max(1, config.getInt("settings.autocrafter.max_crafts_per_cycle", 8));
+        this.autoCrafterMaxSleep = Math.max(1, config.getInt("settings.autocrafter.max_sleep_cycles", 16));
+        this.autoCrafterName = MessageTemplate.compile(config.getString("settings.autocrafter.item_name", "&6Auto-Crafter &7({recipe})"));
+        List<String> lore = config.isList("settings.autocrafter.item_lore")
+                ? config.getStringList("settings.autocrafter.item_lore")
+                : List.of("&7Crafts &f{recipe} &7from the", "&7container placed next to it");
+        List<MessageTemplate> loreTemplates = new ArrayList<>(lore.size());
+        for (String line : lore) {
+            loreTemplates.add(MessageTemplate.compile(line));
+        }
+        this.autoCrafterLore = Collections.unmodifiableList(loreTemplates);
+
+        this.reloadSuccess = MessageTemplate.compile(config.getString("settings.messages.reload_success"));
+        this.noPermission = MessageTemplate.compile(config.getString("settings.messages.no_permission"));
+        this.playersOnly = MessageTemplate.compile(config.getString("settings.messages.players_only", "&cOnly players can do that."));
+        this.minionCrafted = MessageTemplate.compile(prefix + config.getString("settings.messages.minion_crafted", "&aYou crafted a minion!"));
+        this.upgradeCrafted = MessageTemplate.compile(prefix + config.getString("settings.messages.upgrade_crafted", "&aYou crafted an upgrade!"));
+        this.itemCreationFailed = MessageTemplate.compile(prefix + config.getString("settings.messages.error_item_creation_failed",
+                "&cFailed to create item! Check server console for details."));
+        String throttled = config.getString("settings.messages.craft_throttled", "");
+        this.craftThrottled = MessageTemplate.compile(throttled.isEmpty() ? "" : prefix + throttled);
+        this.minionTierLore = MessageTemplate.compile(config.getString("settings.minion_tier_lore", "&7Tier {level}"));
+        this.browserTexts = new BrowserTexts(config);
+        this.statsHeader = message(config, "stats_header", "&6TopMinion-Crafting stats &7(last {uptime}s)");
+        this.statsCounts = message(config, "stats_counts", "&7Crafts: &a{crafted} &7Denied: &e{denied} &7Failed: &c{failed}"
+                + " &7Throttled: &e{throttled} &7Queued: &f{queued} &7Auto-crafters: &f{autocrafters}");
+        this.statsRecipe = message(config, "stats_recipe", "&7  {recipe}: &f{crafts}");
+        this.statsLatency = message(config, "stats_latency", "&7{timer}: &f{calls} &7calls, mean &f{mean}ms&7, p99 < &f{p99}ms&7, max &f{max}ms");
+        this.auditUsage = message(config, "audit_usage", "&cUsage: /{label} audit <player> [limit]");
+        this.auditInvalidLimit = message(config, "audit_invalid_limit", "&cInvalid limit: {limit}");
+        this.auditEmpty = message(config, "audit_empty", "&7No logged crafts for &f{player}");
+        this.auditHeader = message(config, "audit_header", "&6Last {count} craft(s) of &f{player}");
+        this.auditEntry = message(config, "audit_entry", "&7{time} &f{player} &7crafted &f{crafts}x {recipe}");
+        this.autoCrafterUsage = message(config, "autocrafter_usage", "&cUsage: /{label} autocrafter <recipe> [player]");
+        this.autoCrafterGiven = message(config, "autocrafter_given", "&aGave an auto-crafter for &f{recipe} &ato &f{player}");
+        this.unknownRecipe = message(config, "error_unknown_recipe", "&cUnknown recipe: {recipe}");
+        this.playerNotFound = message(config, "error_player_not_found", "&cPlayer not found: {player}");
+        this.craftUsage = message(config, "craft_usage", "&cUsage: /{label} craft <recipe> [amount|all]");
+        this.craftInvalidAmount = message(config, "craft_invalid_amount", "&cInvalid amount: {amount}");
+        this.craftMissingIngredients = message(config, "craft_missing_ingredients", "&cYou don't have the ingredients for {recipe}");
+        this.craftNoSpace = message(config, "craft_no_space", "&cNot enough inventory space to craft {recipe}");
+    }
+
+    /**
+     * Compile a message from settings.messages, falling back to a default for configs written
+     * before the message existed
+     */
+    private static MessageTemplate message(FileConfiguration config, String name, String fallback) {
+        return MessageTemplate.compile(config.getString("settings.messages." + name, fallback));
+    }
+
+    /**
+     * Read the settings from a loaded config
+     */
+    public static Settings load(FileConfiguration config) {
+        return new Settings(config);
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public boolean isWatchRecipes() {
+        return watchRecipes;
+    }
+
+    public boolean isRecipeCache() {
+        return recipeCache;
+    }
+
+    /**
+     * @return The recipe archive file name, relative to the plugin folder; empty if disabled
+     */
+    public String getRecipeArchive() {
+        return recipeArchive;
+    }
+
+    public boolean isDetectConflicts() {
+        return detectConflicts;
+    }
+
+    public int getCraftQueueBudget() {
+        return craftQueueBudget;
+    }
+
+    /**
+     * @return The default craft rate limit for recipes without their own rate_limit
+     */
+    public CraftRateLimiter.Limit getRateLimit() {
+        return rateLimit;
+    }
+
+    public boolean isMetricsExport() {
+        return metricsExport;
+    }
+
+    /**
+     * @return "prometheus" or "json", lower case
+     */
+    public String getMetricsFormat() {
+        return metricsFormat;
+    }
+
+    /**
+     * @return The export file name, relative to the plugin folder
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    public boolean isAudit() {
+        return audit;
+    }
+
+    /**
+     * @return The size at which the audit log is rotated, in bytes
+     */
+    public long getAuditMaxFileBytes() {
+        return auditMaxFileBytes;
+    }
+
+    /**
+     * @return The number of rotated audit files to keep, at least 1
+     */
+    public int getAuditMaxFiles() {
+        return auditMaxFiles;
+    }
+
+    /**
+     * @return The time between audit log writes, in milliseconds
+     */
+    public int getAuditFlushInterval() {
+        return auditFlushInterval;
+    }
+
+    public boolean isAutoCrafter() {
+        return autoCrafter;
+    }
+
+    /**
+     * @return The block of new auto-crafter items, CRAFTING_TABLE if the configured one is not a block
+     */
+    public Material getAutoCrafterBlock() {
+        return autoCrafterBlock;
+    }
+
+    /**
+     * @return The ticks between auto-crafter cycles
+     */
+    public int getAutoCrafterCycleTicks() {
+        return autoCrafterCycleTicks;
+    }
+
+    /**
+     * @return The maximum crafts of one auto-crafter per cycle
+     */
+    public int getAutoCrafterMaxCrafts() {
+        return autoCrafterMaxCrafts;
+    }
+
+    /**
+     * @return The most cycles an idle auto-crafter is skipped for
+     */
+    public int getAutoCrafterMaxSleep() {
+        return autoCrafterMaxSleep;
+    }
+
+    /**
+     * @return The display name of auto-crafter items, with a {recipe} placeholder
+     */
+    public MessageTemplate getAutoCrafterName() {
+        return autoCrafterName;
+    }
+
+    /**
+     * @return The lore lines of auto-crafter items, with a {recipe} placeholder
+     */
+    public List<MessageTemplate> getAutoCrafterLore() {
+        return autoCrafterLore;
+    }
+
+    public MessageTemplate getReloadSuccess() {
+        return reloadSuccess;
+    }
+
+    public MessageTemplate getNoPermission() {
+        return noPermission;
+    }
+
+    public MessageTemplate getPlayersOnly() {
+        return playersOnly;
+    }
+
+    /**
+     * @return The prefixed message, with a {minion} placeholder
+     */
+    public MessageTemplate getMinionCrafted() {
+        return minionCrafted;
+    }
+
+    /**
+     * @return The prefixed message, with an {upgrade} placeholder
+     */
+    public MessageTemplate getUpgradeCrafted() {
+        return upgradeCrafted;
+    }
+
+    public MessageTemplate getItemCreationFailed() {
+        return itemCreationFailed;
+    }
+
+    /**
+     * @return The prefixed message, or an empty template if players are not told
+     */
+    public MessageTemplate getCraftThrottled() {
+        return craftThrottled;
+    }
+
+    /**
+     * @return The lore line added to minions above level 1, with a {level} placeholder; empty to add none
+     */
+    public MessageTemplate getMinionTierLore() {
+        return minionTierLore;
+    }
+
+    /**
+     * @return The texts of the recipe browser
+     */
+    public BrowserTexts getBrowserTexts() {
+        return browserTexts;
+    }
+
+    /**
+     * @return The first line of /tmc stats, with an {uptime} placeholder in seconds
+     */
+    public MessageTemplate getStatsHeader() {
+        return statsHeader;
+    }
+
+    /**
+     * @return The counters line of /tmc stats, with {crafted}, {denied}, {failed}, {throttled},
+     * {queued} and {autocrafters} placeholders
+     */
+    public MessageTemplate getStatsCounts() {
+        return statsCounts;
+    }
+
+    /**
+     * @return One of the most crafted recipes, with {recipe} and {crafts} placeholders
+     */
+    public MessageTemplate getStatsRecipe() {
+        return statsRecipe;
+    }
+
+    /**
+     * @return One latency timer, with {timer}, {calls}, {mean}, {p99} and {max} placeholders
+     */
+    public MessageTemplate getStatsLatency() {
+        return statsLatency;
+    }
+
+    /**
+     * @return The usage of /tmc audit, with a {label} placeholder
+     */
+    public MessageTemplate getAuditUsage() {
+        return auditUsage;
+    }
+
+    /**
+     * @return The reply to a limit that is not a number, with a {limit} placeholder
+     */
+    public MessageTemplate getAuditInvalidLimit() {
+        return auditInvalidLimit;
+    }
+
+    /**
+     * @return The reply when a player has no logged crafts, with a {player} placeholder
+     */
+    public MessageTemplate getAuditEmpty() {
+        return auditEmpty;
+    }
+
+    /**
+     * @return The first line of /tmc audit, with {count} and {player} placeholders
+     */
+    public MessageTemplate getAuditHeader() {
+        return auditHeader;
+    }
+
+    /**
+     * @return One logged craft, with {time}, {player}, {crafts} and {recipe} placeholders
+     */
+    public MessageTemplate getAuditEntry() {
+        return auditEntry;
+    }
+
+    /**
+     * @return The usage of /tmc autocrafter, with a {label} placeholder
+     */
+    public MessageTemplate getAutoCrafterUsage() {
+        return autoCrafterUsage;
+    }
+
+    /**
+     * @return The reply to giving an auto-crafter, with {recipe} and {player} placeholders
+     */
+    public MessageTemplate getAutoCrafterGiven() {
+        return autoCrafterGiven;
+    }
+
+    /**
+     * @return The reply to a recipe key that does not exist, with a {recipe} placeholder
+     */
+    public MessageTemplate getUnknownRecipe() {
+        return unknownRecipe;
+    }
+
+    /**
+     * @return The reply to a player name that is not online, with a {player} placeholder
+     */
+    public MessageTemplate getPlayerNotFound() {
+        return playerNotFound;
+    }
+
+    /**
+     * @return The usage of /tmc craft, with a {label} placeholder
+     */
+    public MessageTemplate getCraftUsage() {
+        return craftUsage;
+    }
+
+    /**
+     * @return The reply to an amount that is not a positive number or "all", with an {amount} placeholder
+     */
+    public MessageTemplate getCraftInvalidAmount() {
+        return craftInvalidAmount;
+    }
+
+    /**
+     * @return The reply when the inventory lacks ingredients, with a {recipe} placeholder
+     */
+    public MessageTemplate getCraftMissingIngredients() {
+        return craftMissingIngredients;
+    }
+
+    /**
+     * @return The reply when the results do not fit into the inventory, with a {recipe} placeholder
+     */
+    public MessageTemplate getCraftNoSpace() {
+        return craftNoSpace;
+    }
+}
@@ -0,0 +1,61 @@
+package com.topminion.crafting.gui;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+import java.util.List;
+
+/**
+ * Holder of an open recipe browser inventory, used to recognize clicks in it
+ * Remembers what the inventory shows, so a click can be resolved without looking at the items.
+ */
+public class BrowserMenu implements InventoryHolder {
+
+    private final int page;
+    private final NamespacedKey recipe;
+    private final List<NamespacedKey> entries;
+    private Inventory inventory;
+
+    /**
+     * @param page The list page, or the list page to go back to from a detail page
+     * @param recipe The recipe shown on a detail page, or null for a list page
+     * @param entries The recipe in each slot of a list page
+     */
+    BrowserMenu(int page, NamespacedKey recipe, List<NamespacedKey> entries) {
+        this.page = page;
+        this.recipe = recipe;
+        this.entries = entries;
+    }
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * @return The recipe shown on a detail page, or null for a list page
+     */
+    public NamespacedKey getRecipe() {
+        return recipe;
+    }
+
+    public boolean isDetail() {
+        return recipe != null;
+    }
+
+    /**
+     * @return The recipe in a slot of a list page, or null
+     */
+    public NamespacedKey getEntry(int slot) {
+        return slot >= 0 && slot < entries.size() ? entries.get(slot) : null;
+    }
+}
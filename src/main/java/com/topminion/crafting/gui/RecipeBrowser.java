@@ -0,0 +1,346 @@
+package com.topminion.crafting.gui;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.config.BrowserTexts;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.recipes.Ingredient;
+import com.topminion.crafting.recipes.RecipeDefinition;
+import com.topminion.crafting.recipes.RecipeRegistry;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inventory menu listing all recipes, with a detail page per recipe showing its crafting grid
+ *
+ * Pages are built the first time someone opens them and cached as inventory contents: list pages
+ * per (page, permission set), since players only see the recipes they may craft, and detail pages
+ * per recipe. Opening a cached page only copies the contents into a new inventory. The cache is
+ * dropped when the recipe registry changes and on reload.
+ */
+public class RecipeBrowser {
+
+    public static final int SIZE = 54;
+    public static final int PAGE_SIZE = 45;
+    public static final int PREVIOUS_SLOT = 45;
+    public static final int INFO_SLOT = 49;
+    public static final int NEXT_SLOT = 53;
+    public static final int BACK_SLOT = 49;
+
+    private static final int[] GRID_SLOTS = {10, 11, 12, 19, 20, 21, 28, 29, 30};
+    private static final int TYPE_SLOT = 23;
+    private static final int RESULT_SLOT = 25;
+
+    private final TopMinionCrafting plugin;
+    private volatile Pages pages;
+
+    public RecipeBrowser(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Drop all cached pages, e.g. after the result items changed
+     */
+    public void invalidate() {
+        pages = null;
+    }
+
+    /**
+     * Open a list page
+     *
+     * @param page The page index, clamped to the pages the player can see
+     */
+    public void openList(Player player, int page) {
+        Pages current = getPages();
+        String permissions = current.getPermissionKey(player);
+        List<RecipeManager.RecipeData> recipes = current.getRecipes(permissions);
+
+        int pageCount = Math.max(1, (recipes.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        int index = Math.max(0, Math.min(page, pageCount - 1));
+        Page cached = current.lists.computeIfAbsent(permissions + ":" + index, k -> buildList(recipes, index, pageCount));
+
+        BrowserMenu menu = new BrowserMenu(index, null, cached.entries);
+        open(player, menu, getTexts().getListTitle().render(
+                "page", String.valueOf(index + 1), "pages", String.valueOf(pageCount)), cached.contents);
+    }
+
+    /**
+     * Open the detail page of a recipe
+     *
+     * @param backPage The list page the back button returns to
+     */
+    public void openDetail(Player player, NamespacedKey key, int backPage) {
+        Pages current = getPages();
+        RecipeManager.RecipeData data = current.registry.get(key);
+        if (data == null) {
+            openList(player, backPage);
+            return;
+        }
+
+        Page cached = current.details.computeIfAbsent(key, k -> buildDetail(data));
+        BrowserMenu menu = new BrowserMenu(backPage, key, Collections.emptyList());
+        open(player, menu, getTexts().getDetailTitle().render("recipe", data.getDefinition().getName()), cached.contents);
+    }
+
+    private void open(Player player, BrowserMenu menu, String title, ItemStack[] contents) {
+        Inventory inventory = Bukkit.createInventory(menu, SIZE, title);
+        menu.setInventory(inventory);
+        inventory.setContents(contents);
+        player.openInventory(inventory);
+    }
+
+    /**
+     * Get the cached pages of the current registry snapshot
+     */
+    private Pages getPages() {
+        RecipeRegistry registry = plugin.getRecipeManager().getRegistry();
+        Pages current = pages;
+        if (current == null || current.registry != registry) {
+            current = new Pages(registry);
+            pages = current;
+        }
+        return current;
+    }
+
+    private BrowserTexts getTexts() {
+        return plugin.getSettings().getBrowserTexts();
+    }
+
+    private Page buildList(List<RecipeManager.RecipeData> recipes, int page, int pageCount) {
+        BrowserTexts texts = getTexts();
+        ItemStack[] contents = new ItemStack[SIZE];
+        List<NamespacedKey> entries = new ArrayList<>(PAGE_SIZE);
+
+        for (int i = page * PAGE_SIZE; i < Math.min(recipes.size(), (page + 1) * PAGE_SIZE); i++) {
+            RecipeManager.RecipeData data = recipes.get(i);
+            ItemStack icon = getResult(data);
+            List<String> lore = new ArrayList<>();
+            if (data instanceof RecipeManager.MinionRecipeData && ((RecipeManager.MinionRecipeData) data).getLevel() > 1) {
+                lore.add(texts.getEntryLevel().render("level", String.valueOf(((RecipeManager.MinionRecipeData) data).getLevel())));
+            }
+            lore.add(texts.getEntryClick().render());
+            contents[entries.size()] = addLore(icon, lore);
+            entries.add(data.getKey());
+        }
+
+        ItemStack filler = createIcon(Material.GRAY_STAINED_GLASS_PANE, " ");
+        for (int slot = PAGE_SIZE; slot < SIZE; slot++) {
+            contents[slot] = filler;
+        }
+        if (page > 0) {
+            contents[PREVIOUS_SLOT] = createIcon(Material.ARROW, texts.getPreviousPage().render());
+        }
+        if (page < pageCount - 1) {
+            contents[NEXT_SLOT] = createIcon(Material.ARROW, texts.getNextPage().render());
+        }
+        contents[INFO_SLOT] = createIcon(Material.BOOK, texts.getInfoName().render("count", String.valueOf(recipes.size())),
+                texts.getInfoLore().render("page", String.valueOf(page + 1), "pages", String.valueOf(pageCount)));
+
+        return new Page(contents, Collections.unmodifiableList(entries));
+    }
+
+    private Page buildDetail(RecipeManager.RecipeData data) {
+        BrowserTexts texts = getTexts();
+        ItemStack[] contents = new ItemStack[SIZE];
+        ItemStack filler = createIcon(Material.BLACK_STAINED_GLASS_PANE, " ");
+        for (int slot = 0; slot < SIZE; slot++) {
+            contents[slot] = filler;
+        }
+
+        // Lay out the crafting grid
+        RecipeDefinition definition = data.getDefinition();
+        for (int slot : GRID_SLOTS) {
+            contents[slot] = null;
+        }
+        if (definition.isShaped()) {
+            List<String> shape = definition.getShape();
+            for (int row = 0; row < Math.min(3, shape.size()); row++) {
+                String line = shape.get(row);
+                for (int column = 0; column < Math.min(3, line.length()); column++) {
+                    Ingredient ingredient = definition.getShapedIngredients().get(line.charAt(column));
+                    if (ingredient != null) {
+                        contents[GRID_SLOTS[row * 3 + column]] = createIngredientIcon(ingredient);
+                    }
+                }
+            }
+        } else {
+            List<Ingredient> ingredients = definition.getShapelessIngredients();
+            for (int i = 0; i < Math.min(GRID_SLOTS.length, ingredients.size()); i++) {
+                contents[GRID_SLOTS[i]] = createIngredientIcon(ingredients.get(i));
+            }
+        }
+
+        contents[TYPE_SLOT] = createIcon(Material.CRAFTING_TABLE,
+                (definition.isShaped() ? texts.getShaped() : texts.getShapeless()).render(),
+                (definition.isShaped() ? texts.getShapedHint() : texts.getShapelessHint()).render(),
+                texts.getPermission().render("permission", data.getPermission()));
+        contents[RESULT_SLOT] = getResult(data);
+        contents[BACK_SLOT] = createIcon(Material.ARROW, texts.getBack().render());
+
+        return new Page(contents, Collections.emptyList());
+    }
+
+    /**
+     * The result item of a recipe, or its placeholder if the item cannot be created
+     */
+    private ItemStack getResult(RecipeManager.RecipeData data) {
+        ItemStack result = plugin.getItemUtil().getResultItem(data);
+        if (result != null) return result;
+        BrowserTexts texts = getTexts();
+        return createIcon(data.getType().getPlaceholder(), texts.getUnavailableName().render("id", data.getDefinition().getResultId()),
+                texts.getUnavailableLore().render());
+    }
+
+    /**
+     * Show an ingredient with its amount; crafted minions and upgrades are shown as the real item
+     */
+    private ItemStack createIngredientIcon(Ingredient ingredient) {
+        BrowserTexts texts = getTexts();
+        Map<NamespacedKey, String> tags = ingredient.getTags();
+        List<String> lore = new ArrayList<>();
+        ItemStack item = null;
+
+        String minionId = tags.get(ItemTags.MINION_ID);
+        String upgradeId = tags.get(ItemTags.UPGRADE_ID);
+        if (minionId != null) {
+            String level = tags.get(ItemTags.MINION_LEVEL);
+            item = plugin.getItemUtil().getMinionItem(null, minionId, level != null ? parseLevel(level) : 1);
+            lore.add(level != null ? texts.getIngredientMinionLevel().render("minion", minionId, "level", level)
+                    : texts.getIngredientMinion().render("minion", minionId));
+        } else if (upgradeId != null) {
+            item = plugin.getItemUtil().getUpgradeItem(upgradeId);
+            lore.add(texts.getIngredientUpgrade().render("upgrade", upgradeId));
+        }
+        if (item == null) {
+            item = new ItemStack(ingredient.getMaterial());
+        }
+
+        if (ingredient.getCustomModelData() != null) {
+            lore.add(texts.getIngredientModelData().render("model_data", String.valueOf(ingredient.getCustomModelData())));
+        }
+        for (Map.Entry<NamespacedKey, String> tag : tags.entrySet()) {
+            if (!tag.getKey().getNamespace().equals(ItemTags.NAMESPACE)) {
+                lore.add(texts.getIngredientTag().render("tag", tag.getKey().toString(), "value", tag.getValue()));
+            }
+        }
+
+        item.setAmount(ingredient.getAmount());
+        return lore.isEmpty() ? item : addLore(item, lore);
+    }
+
+    private static int parseLevel(String level) {
+        try {
+            return Integer.parseInt(level);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * @param name The rendered name, already colorized
+     * @param lore The rendered lore lines, already colorized
+     */
+    private static ItemStack createIcon(Material material, String name, String... lore) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            if (lore.length > 0) {
+                meta.setLore(List.of(lore));
+            }
+            item.setItemMeta(meta);
+        }
+        return item;
+    }
+
+    private static ItemStack addLore(ItemStack item, List<String> lore) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return item;
+
+        List<String> lines = meta.hasLore() ? new ArrayList<>(meta.getLore()) : new ArrayList<>();
+        if (!lines.isEmpty()) lines.add("");
+        lines.addAll(lore);
+        meta.setLore(lines);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    /**
+     * The pages built for one registry snapshot
+     */
+    private static final class Pages {
+        private final RecipeRegistry registry;
+        private final List<String> permissions;
+        private final List<RecipeManager.RecipeData> sorted;
+        private final Map<String, List<RecipeManager.RecipeData>> recipesByPermissions = new ConcurrentHashMap<>();
+        private final Map<String, Page> lists = new ConcurrentHashMap<>();
+        private final Map<NamespacedKey, Page> details = new ConcurrentHashMap<>();
+
+        Pages(RecipeRegistry registry) {
+            this.registry = registry;
+
+            TreeSet<String> distinct = new TreeSet<>();
+            for (RecipeManager.RecipeData data : registry.getRecipes()) {
+                distinct.add(data.getPermission());
+            }
+            this.permissions = new ArrayList<>(distinct);
+
+            // Minions before upgrades, then by result and level
+            List<RecipeManager.RecipeData> recipes = new ArrayList<>(registry.getRecipes());
+            recipes.sort(Comparator.comparing((RecipeManager.RecipeData data) -> data.getType())
+                    .thenComparing(data -> data.getDefinition().getResultId())
+                    .thenComparingInt(data -> data.getDefinition().getLevel())
+                    .thenComparing(data -> data.getKey().toString()));
+            this.sorted = recipes;
+        }
+
+        /**
+         * @return Which of the recipe permissions the player has, one character per permission
+         */
+        String getPermissionKey(Player player) {
+            StringBuilder key = new StringBuilder(permissions.size());
+            for (String permission : permissions) {
+                key.append(player.hasPermission(permission) ? '1' : '0');
+            }
+            return key.toString();
+        }
+
+        List<RecipeManager.RecipeData> getRecipes(String permissionKey) {
+            return recipesByPermissions.computeIfAbsent(permissionKey, key -> {
+                List<RecipeManager.RecipeData> visible = new ArrayList<>();
+                for (RecipeManager.RecipeData data : sorted) {
+                    if (key.charAt(permissions.indexOf(data.getPermission())) == '1') {
+                        visible.add(data);
+                    }
+                }
+                return visible;
+            });
+        }
+    }
+
+    /**
+     * Built inventory contents, never modified once cached
+     */
+    private static final class Page {
+        private final ItemStack[] contents;
+        private final List<NamespacedKey> entries;
+
+        Page(ItemStack[] contents, List<NamespacedKey> entries) {
+            this.contents = contents;
+            this.entries = entries;
+        }
+    }
+}
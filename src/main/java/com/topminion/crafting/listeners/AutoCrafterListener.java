@@ -0,0 +1,100 @@
+package com.topminion.crafting.listeners;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.autocrafter.AutoCrafter;
+import com.topminion.crafting.autocrafter.AutoCrafterManager;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+
+/**
+ * Places and breaks auto-crafters, and wakes them when their container changes
+ */
+public class AutoCrafterListener implements Listener {
+
+    public static final String PERMISSION = "topminioncrafting.autocrafter";
+
+    private final TopMinionCrafting plugin;
+    private final AutoCrafterManager autoCrafters;
+
+    public AutoCrafterListener(TopMinionCrafting plugin, AutoCrafterManager autoCrafters) {
+        this.plugin = plugin;
+        this.autoCrafters = autoCrafters;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlaceCheck(BlockPlaceEvent event) {
+        String recipe = ItemTags.readAutoCrafter(event.getItemInHand());
+        if (recipe == null) return;
+
+        // The owner needs the recipe's own permission too, it is not checked again while crafting.
+        // A recipe that is missing right now cannot be checked, so placing it is denied.
+        Player player = event.getPlayer();
+        NamespacedKey key = toKey(recipe);
+        RecipeManager.RecipeData data = key != null ? plugin.getRecipeManager().getRecipe(key) : null;
+        if (data == null || !player.hasPermission(PERMISSION) || !player.hasPermission(data.getPermission())) {
+            event.setCancelled(true);
+            plugin.send(player, plugin.getSettings().getNoPermission().render());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlace(BlockPlaceEvent event) {
+        String recipe = ItemTags.readAutoCrafter(event.getItemInHand());
+        NamespacedKey key = recipe != null ? toKey(recipe) : null;
+        if (key == null) return;
+
+        // Registered only once no protection plugin cancelled the placement
+        Player player = event.getPlayer();
+        autoCrafters.place(event.getBlockPlaced(), key, player);
+        plugin.debug(() -> player.getName() + " placed an auto-crafter for " + recipe);
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onBreak(BlockBreakEvent event) {
+        Block block = event.getBlock();
+        AutoCrafter crafter = autoCrafters.get(block);
+        if (crafter == null) return;
+
+        // Drop the auto-crafter item instead of the plain block
+        autoCrafters.remove(crafter);
+        event.setDropItems(false);
+        block.getWorld().dropItemNaturally(block.getLocation(), autoCrafters.createItem(crafter.getRecipe(), crafter.getBlock()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        autoCrafters.wakeAround(event.getInventory().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMove(InventoryMoveItemEvent event) {
+        autoCrafters.wakeAround(event.getDestination().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        autoCrafters.chunkLoaded(event.getChunk());
+    }
+
+    /**
+     * @return The key of a recipe tag, or null if the tag is not a valid key
+     */
+    private NamespacedKey toKey(String recipe) {
+        try {
+            return new NamespacedKey(plugin, recipe);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,172 +1,316 @@
 package com.topminion.crafting.listeners;
 
 import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.managers.CraftQueue;
 import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.metrics.CraftMetrics;
+import com.topminion.crafting.recipes.ItemFingerprint;
+import com.topminion.crafting.recipes.RecipeMatcher;
+import com.topminion.crafting.utils.CraftingUtil;
 import com.topminion.crafting.utils.ItemUtil;
-import org.bukkit.Bukkit;
+import com.topminion.crafting.utils.RecipeKeyResolver;
 import org.bukkit.NamespacedKey;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Recipe;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /**
- * Listens for craft events to replace placeholder items with actual TopMinion items
+ * Listens for craft events to show and hand out the actual TopMinion items
+ *
+ * The result slot is filled with the real minion/upgrade item when the grid matches one of our
+ * recipes, so the vanilla craft path gives out the correct item without any rebuild afterwards.
+ * Which recipe matches, including the amount per slot, is decided by the {@link RecipeMatcher}.
  */
 public class CraftListener implements Listener {
 
     private final TopMinionCrafting plugin;
     private final ItemUtil itemUtil;
+    private final String namespace;
+
+    // Item fingerprints per open crafting grid, dropped once the inventory is gone
+    // Synchronized, since on Folia craft events arrive on several region threads
+    private final Map<Inventory, ItemFingerprint.Cache> fingerprints = Collections.synchronizedMap(new WeakHashMap<>());
 
     public CraftListener(TopMinionCrafting plugin) {
         this.plugin = plugin;
-        this.itemUtil = new ItemUtil(plugin);
+        this.itemUtil = plugin.getItemUtil();
+        this.namespace = plugin.getName().toLowerCase(Locale.ROOT);
     }
 
+    /**
+     * Show the real result item (or nothing, if the viewer may not craft it) in the result slot
+     */
     @EventHandler(priority = EventPriority.HIGHEST)
-    public void onCraft(CraftItemEvent event) {
-        if (!(event.getWhoClicked() instanceof Player)) return;
+    public void onPrepareCraft(PrepareItemCraftEvent event) {
+        // Vanilla matched one of our recipes by material; the matcher picks the recipe by amounts too
+        if (lookup(event.getRecipe()) == null) return;
 
-        Player player = (Player) event.getWhoClicked();
-        Recipe recipe = event.getRecipe();
+        RecipeMatcher.Match match = match(event.getInventory(), event.getInventory().getMatrix());
+        if (match == null) {
+            event.getInventory().setResult(null);
+            return;
+        }
 
-        // Get the recipe's NamespacedKey
-        NamespacedKey recipeKey = null;
-        try {
-            // Try to get the key using reflection for compatibility across versions
-            java.lang.reflect.Method getKeyMethod = recipe.getClass().getMethod("getKey");
-            recipeKey = (NamespacedKey) getKeyMethod.invoke(recipe);
-        } catch (Exception e) {
-            plugin.debug("Could not get recipe key: " + e.getMessage());
+        RecipeManager.RecipeData data = match.getRecipe();
+        HumanEntity viewer = event.getView().getPlayer();
+        if (!viewer.hasPermission(data.getPermission())) {
+            event.getInventory().setResult(null);
             return;
         }
 
-        if (recipeKey == null) return;
+        event.getInventory().setResult(itemUtil.getResultItem(data));
+    }
 
-        RecipeManager recipeManager = plugin.getRecipeManager();
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onCraft(CraftItemEvent event) {
+        if (!(event.getWhoClicked() instanceof Player)) return;
 
-        // Check if it's a minion recipe
-        if (recipeManager.isMinionRecipe(recipeKey)) {
-            handleMinionCraft(event, player, recipeKey);
-        }
-        // Check if it's an upgrade recipe
-        else if (recipeManager.isUpgradeRecipe(recipeKey)) {
-            handleUpgradeCraft(event, player, recipeKey);
+        long start = System.nanoTime();
+        RecipeManager.RecipeData recipe = lookup(event.getRecipe());
+        if (recipe == null) return;
+
+        Player player = (Player) event.getWhoClicked();
+        CraftMetrics metrics = plugin.getMetrics();
+        try {
+            // Reject autoclicker spam before any matching or item handling
+            if (!plugin.getRateLimiter().tryAcquire(player, recipe)) {
+                event.setCancelled(true);
+                metrics.recordThrottled();
+                if (plugin.getRateLimiter().shouldWarn(player)) {
+                    plugin.send(player, plugin.getSettings().getCraftThrottled().render());
+                }
+                return;
+            }
+            handleCraft(event, player, metrics);
+        } finally {
+            metrics.getCraftHandler().recordSince(start);
         }
     }
 
-    /**
-     * Handle crafting of a minion
-     */
-    private void handleMinionCraft(CraftItemEvent event, Player player, NamespacedKey recipeKey) {
-        RecipeManager.MinionRecipeData data = plugin.getRecipeManager().getMinionRecipeData(recipeKey);
-        if (data == null) {
-            plugin.getLogger().warning("Minion recipe data not found for key: " + recipeKey);
+    private void handleCraft(CraftItemEvent event, Player player, CraftMetrics metrics) {
+        // The grid may not hold enough items for any recipe anymore
+        RecipeMatcher.Match match = match(event.getInventory(), event.getInventory().getMatrix());
+        if (match == null) {
+            event.setCancelled(true);
             return;
         }
+        RecipeManager.RecipeData data = match.getRecipe();
 
         // Check permission
         if (!player.hasPermission(data.getPermission())) {
             event.setCancelled(true);
-            player.sendMessage(plugin.colorize(plugin.getConfig().getString("settings.messages.no_permission")));
+            metrics.recordDenied();
+            plugin.send(player, plugin.getSettings().getNoPermission().render());
             return;
         }
 
-        // Get the actual minion item from TopMinion API
-        ItemStack minionItem = itemUtil.getMinionItem(player, data.getMinionId(), data.getLevel());
+        // The result slot was filled during PrepareItemCraftEvent; an empty result
+        // means the TopMinion item could not be created
+        ItemStack result = event.getInventory().getResult();
+        if (result == null || result.getType().isAir()) {
+            event.setCancelled(true);
+            metrics.recordFailure();
+            plugin.send(player, plugin.getSettings().getItemCreationFailed().render());
+            plugin.getLogger().warning("Failed to create " + data.getType().getLabel() + " item for recipe: " + data.getKey());
+            return;
+        }
 
-        if (minionItem == null) {
+        // Shift-click crafts everything at once instead of letting vanilla repeat the craft per item,
+        // and vanilla can only take one item per slot, so recipes with amounts are crafted by the plugin
+        CraftQueue.CraftMode mode = event.isShiftClick() ? CraftQueue.CraftMode.BULK
+                : data.getDefinition().hasAmounts() ? CraftQueue.CraftMode.SINGLE
+                : CraftQueue.CraftMode.VANILLA;
+        if (mode != CraftQueue.CraftMode.VANILLA) {
             event.setCancelled(true);
-            player.sendMessage(plugin.colorize(plugin.getConfig().getString("settings.prefix") + " &cError: Could not create minion item!"));
-            plugin.getLogger().warning("Failed to create minion item for: " + data.getMinionId());
+        } else if (!deliversResult(event, player, result)) {
+            // Vanilla will not craft either, so there is nothing to record
             return;
         }
 
-        // Cancel the event and give the correct item
-        event.setCancelled(true);
+        plugin.getCraftQueue().submit(new CraftQueue.PendingCraft(player, event.getInventory(), data,
+                mode != CraftQueue.CraftMode.VANILLA ? result.clone() : null, mode));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        plugin.getRateLimiter().evict(event.getPlayer().getUniqueId());
+        plugin.getCraftQueue().evict(event.getPlayer().getUniqueId());
+    }
 
-        // Schedule for next tick to avoid inventory issues
-        Bukkit.getScheduler().runTask(plugin, () -> {
-            // Remove ingredients from crafting matrix
-            removeIngredients(event);
+    /**
+     * Complete a queued craft: perform plugin crafts and send the success message
+     * Called by the craft queue on the tick after the craft event.
+     */
+    public void completeCraft(CraftQueue.PendingCraft craft) {
+        Player player = craft.getPlayer();
+        if (!player.isOnline()) return;
 
-            // Give the minion item to the player
-            player.getInventory().addItem(minionItem);
+        RecipeManager.RecipeData data = craft.getRecipe();
+        int crafts = 1;
+        if (craft.getMode() != CraftQueue.CraftMode.VANILLA) {
+            CraftingInventory inventory = craft.getInventory();
 
-            // Send success message
-            String message = plugin.getConfig().getString("settings.messages.minion_crafted", "&aYou crafted a minion!");
-            message = message.replace("{minion}", data.getMinionId());
-            player.sendMessage(plugin.colorize(plugin.getConfig().getString("settings.prefix") + " " + message));
+            // The grid may have been closed or changed since the click
+            if (!inventory.equals(player.getOpenInventory().getTopInventory())) return;
+            ItemStack[] matrix = inventory.getMatrix();
+            RecipeMatcher.Match match = match(inventory, matrix);
+            if (match == null || !match.getRecipe().getKey().equals(data.getKey())) return;
 
-            plugin.debug("Player " + player.getName() + " crafted minion: " + data.getMinionId());
-        });
+            crafts = craft.getMode() == CraftQueue.CraftMode.BULK
+                    ? craftBulk(player, inventory, matrix, match.getSlotAmounts(), craft.getResult())
+                    : craftSingle(player, inventory, matrix, match.getSlotAmounts(), craft.getResult());
+            if (crafts == 0) return;
+        }
+
+        plugin.getMetrics().recordCraft(data.getKey(), crafts);
+        plugin.getAuditLog().record(player, data, crafts);
+
+        switch (data.getType()) {
+            case MINION:
+                handleMinionCraft(player, (RecipeManager.MinionRecipeData) data);
+                break;
+            case UPGRADE:
+                handleUpgradeCraft(player, (RecipeManager.UpgradeRecipeData) data);
+                break;
+        }
     }
 
     /**
-     * Handle crafting of an upgrade
+     * Resolve one of our registered recipes, or null for vanilla and other plugins' recipes
      */
-    private void handleUpgradeCraft(CraftItemEvent event, Player player, NamespacedKey recipeKey) {
-        RecipeManager.UpgradeRecipeData data = plugin.getRecipeManager().getUpgradeRecipeData(recipeKey);
-        if (data == null) {
-            plugin.getLogger().warning("Upgrade recipe data not found for key: " + recipeKey);
-            return;
-        }
+    private RecipeManager.RecipeData lookup(Recipe recipe) {
+        // Get the recipe's NamespacedKey - recipes from other namespaces are filtered out here
+        NamespacedKey recipeKey = RecipeKeyResolver.getKey(recipe, namespace);
+        if (recipeKey == null) return null;
 
-        // Check permission
-        if (!player.hasPermission(data.getPermission())) {
-            event.setCancelled(true);
-            player.sendMessage(plugin.colorize(plugin.getConfig().getString("settings.messages.no_permission")));
-            return;
+        // Single lookup for our own namespace
+        return plugin.getRecipeManager().getRecipe(recipeKey);
+    }
+
+    /**
+     * Match the grid of a crafting inventory with the fingerprints cached for it
+     */
+    private RecipeMatcher.Match match(CraftingInventory inventory, ItemStack[] matrix) {
+        ItemFingerprint.Cache cache = fingerprints.computeIfAbsent(inventory, k -> new ItemFingerprint.Cache());
+        return plugin.getRecipeManager().match(matrix, cache);
+    }
+
+    /**
+     * Craft as many results as the matrix and the player's inventory allow in a single pass
+     *
+     * @return The number of crafts performed
+     */
+    private int craftBulk(Player player, CraftingInventory inventory, ItemStack[] matrix, int[] slotAmounts, ItemStack result) {
+        int perCraft = result.getAmount();
+        int available = CraftingUtil.getMaxCrafts(matrix, slotAmounts);
+        if (available == 0) return 0;
+
+        // Only craft what fits, like vanilla shift-clicking does
+        int crafts = Math.min(available, CraftingUtil.getFreeSpace(player.getInventory(), result, available * perCraft) / perCraft);
+        if (crafts == 0) return 0;
+
+        List<ItemStack> remainders = CraftingUtil.consumeMatrix(inventory, matrix, slotAmounts, crafts);
+        CraftingUtil.giveItems(player, result.clone(), crafts * perCraft);
+        giveRemainders(player, remainders);
+        player.updateInventory();
+
+        plugin.debug(() -> "Player " + player.getName() + " bulk crafted " + crafts + "x " + result.getType());
+        return crafts;
+    }
+
+    /**
+     * Craft once onto the cursor, like a normal click on the result slot
+     *
+     * @return 1 if crafted, 0 if the cursor holds something else or is full
+     */
+    private int craftSingle(Player player, CraftingInventory inventory, ItemStack[] matrix, int[] slotAmounts, ItemStack result) {
+        ItemStack cursor = player.getItemOnCursor();
+        if (!fitsOnCursor(cursor, result)) return 0;
+
+        if (isEmpty(cursor)) {
+            player.setItemOnCursor(result);
+        } else {
+            cursor.setAmount(cursor.getAmount() + result.getAmount());
+            player.setItemOnCursor(cursor);
         }
 
-        // Get the actual upgrade item from TopMinion API
-        ItemStack upgradeItem = itemUtil.getUpgradeItem(data.getUpgradeId());
+        giveRemainders(player, CraftingUtil.consumeMatrix(inventory, matrix, slotAmounts, 1));
+        player.updateInventory();
+        return 1;
+    }
 
-        if (upgradeItem == null) {
-            event.setCancelled(true);
-            player.sendMessage(plugin.colorize(plugin.getConfig().getString("settings.prefix") + " &cError: Could not create upgrade item!"));
-            plugin.getLogger().warning("Failed to create upgrade item for: " + data.getUpgradeId());
-            return;
+    /**
+     * Check whether vanilla will hand out the result of an uncancelled click on the result slot
+     * Vanilla silently does nothing when the cursor or the hotbar slot has no room for it.
+     */
+    private static boolean deliversResult(CraftItemEvent event, Player player, ItemStack result) {
+        switch (event.getClick()) {
+            case LEFT:
+            case RIGHT:
+                return fitsOnCursor(player.getItemOnCursor(), result);
+            case NUMBER_KEY:
+                return isEmpty(player.getInventory().getItem(event.getHotbarButton()));
+            case DROP:
+            case CONTROL_DROP:
+                return true;
+            default:
+                return false;
         }
+    }
 
-        // Cancel the event and give the correct item
-        event.setCancelled(true);
+    /**
+     * @return true if the result can be put on or added to the item on the cursor
+     */
+    private static boolean fitsOnCursor(ItemStack cursor, ItemStack result) {
+        if (isEmpty(cursor)) return true;
+        return cursor.isSimilar(result) && cursor.getAmount() + result.getAmount() <= cursor.getMaxStackSize();
+    }
 
-        // Schedule for next tick to avoid inventory issues
-        Bukkit.getScheduler().runTask(plugin, () -> {
-            // Remove ingredients from crafting matrix
-            removeIngredients(event);
+    private static boolean isEmpty(ItemStack item) {
+        return item == null || item.getType().isAir();
+    }
 
-            // Give the upgrade item to the player
-            player.getInventory().addItem(upgradeItem);
+    /**
+     * Give the player the crafting remainders (empty buckets, bottles) that stayed out of the grid
+     */
+    private void giveRemainders(Player player, List<ItemStack> remainders) {
+        for (ItemStack remainder : remainders) {
+            CraftingUtil.giveItems(player, remainder, remainder.getAmount());
+        }
+    }
 
-            // Send success message
-            String message = plugin.getConfig().getString("settings.messages.upgrade_crafted", "&aYou crafted an upgrade!");
-            message = message.replace("{upgrade}", data.getUpgradeId());
-            player.sendMessage(plugin.colorize(plugin.getConfig().getString("settings.prefix") + " " + message));
+    /**
+     * Handle crafting of a minion
+     */
+    private void handleMinionCraft(Player player, RecipeManager.MinionRecipeData data) {
+        // Send success message
+        plugin.send(player, plugin.getSettings().getMinionCrafted().render("minion", data.getMinionId()));
 
-            plugin.debug("Player " + player.getName() + " crafted upgrade: " + data.getUpgradeId());
-        });
+        plugin.debug(() -> "Player " + player.getName() + " crafted minion: " + data.getMinionId());
     }
 
     /**
-     * Remove ingredients from the crafting matrix
+     * Handle crafting of an upgrade
      */
-    private void removeIngredients(CraftItemEvent event) {
-        org.bukkit.inventory.CraftingInventory craftingInventory = event.getInventory();
-        ItemStack[] matrix = craftingInventory.getMatrix();
-
-        for (int i = 0; i < matrix.length; i++) {
-            ItemStack item = matrix[i];
-            if (item != null && !item.getType().isAir()) {
-                item.setAmount(item.getAmount() - 1);
-                matrix[i] = item;
-            }
-        }
+    private void handleUpgradeCraft(Player player, RecipeManager.UpgradeRecipeData data) {
+        // Send success message
+        plugin.send(player, plugin.getSettings().getUpgradeCrafted().render("upgrade", data.getUpgradeId()));
 
-        craftingInventory.setMatrix(matrix);
+        plugin.debug(() -> "Player " + player.getName() + " crafted upgrade: " + data.getUpgradeId());
     }
 }
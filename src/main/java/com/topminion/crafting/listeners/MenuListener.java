@@ -0,0 +1,67 @@
+package com.topminion.crafting.listeners;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.gui.BrowserMenu;
+import com.topminion.crafting.gui.RecipeBrowser;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+
+/**
+ * Handles clicks in the recipe browser; items can never be taken out of it
+ */
+public class MenuListener implements Listener {
+
+    private final TopMinionCrafting plugin;
+    private final RecipeBrowser browser;
+
+    public MenuListener(TopMinionCrafting plugin, RecipeBrowser browser) {
+        this.plugin = plugin;
+        this.browser = browser;
+    }
+
+    @EventHandler
+    public void onClick(InventoryClickEvent event) {
+        if (!(event.getInventory().getHolder() instanceof BrowserMenu)) return;
+        event.setCancelled(true);
+
+        // Only clicks in the menu itself, not in the player's inventory below
+        if (!(event.getWhoClicked() instanceof Player) || event.getRawSlot() >= RecipeBrowser.SIZE) return;
+        Player player = (Player) event.getWhoClicked();
+        BrowserMenu menu = (BrowserMenu) event.getInventory().getHolder();
+        int slot = event.getRawSlot();
+
+        if (menu.isDetail()) {
+            if (slot == RecipeBrowser.BACK_SLOT) {
+                later(player, () -> browser.openList(player, menu.getPage()));
+            }
+            return;
+        }
+
+        NamespacedKey recipe = menu.getEntry(slot);
+        if (recipe != null) {
+            later(player, () -> browser.openDetail(player, recipe, menu.getPage()));
+        } else if (slot == RecipeBrowser.PREVIOUS_SLOT) {
+            later(player, () -> browser.openList(player, menu.getPage() - 1));
+        } else if (slot == RecipeBrowser.NEXT_SLOT) {
+            later(player, () -> browser.openList(player, menu.getPage() + 1));
+        }
+    }
+
+    @EventHandler
+    public void onDrag(InventoryDragEvent event) {
+        if (event.getInventory().getHolder() instanceof BrowserMenu) {
+            event.setCancelled(true);
+        }
+    }
+
+    /**
+     * Switch inventories on the next tick, not while the click is still being handled
+     */
+    private void later(Player player, Runnable task) {
+        plugin.getTaskScheduler().runAtEntityLater(player, task);
+    }
+}
@@ -0,0 +1,36 @@
+package com.topminion.crafting.listeners;
+
+import com.topminion.crafting.TopMinionCrafting;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+
+/**
+ * Re-resolves the cached TopMinion handles when TopMinion itself is disabled or re-enabled
+ */
+public class TopMinionListener implements Listener {
+
+    private final TopMinionCrafting plugin;
+
+    public TopMinionListener(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        if (!event.getPlugin().getName().equals("TopMinion")) return;
+
+        plugin.debug("TopMinion was enabled, resolving API handles");
+        plugin.getItemUtil().initialize();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        if (!event.getPlugin().getName().equals("TopMinion")) return;
+
+        plugin.debug("TopMinion was disabled, clearing cached items");
+        plugin.getItemUtil().invalidate();
+    }
+}
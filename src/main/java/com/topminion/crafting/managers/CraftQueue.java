@@ -0,0 +1,207 @@
+package com.topminion.crafting.managers;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.scheduler.TaskHandle;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Queue of pending craft completions, drained by a single repeating task
+ *
+ * Instead of scheduling one task per craft, crafts are queued and completed on the next tick,
+ * at most {@code settings.craft_queue.per_tick_budget} per tick. Anything over the budget
+ * waits for the following tick, which smooths out bursts of crafts.
+ * Folia has no thread that may touch every player, so there each player gets a queue of their
+ * own, drained by one task on the player's region thread per tick in which they crafted.
+ */
+public class CraftQueue implements Runnable {
+
+    private final TopMinionCrafting plugin;
+    private final Consumer<PendingCraft> handler;
+    private final Queue<PendingCraft> pending = new ConcurrentLinkedQueue<>();
+    // Folia only: per-player queues
+    private final Map<UUID, PlayerQueue> players = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile int perTickBudget;
+    private TaskHandle task;
+
+    public CraftQueue(TopMinionCrafting plugin, Consumer<PendingCraft> handler) {
+        this.plugin = plugin;
+        this.handler = handler;
+    }
+
+    /**
+     * Start the drain task (Bukkit/Paper only, Folia drains per player)
+     */
+    public void start() {
+        reloadSettings();
+        if (task == null && !plugin.getTaskScheduler().isFolia()) {
+            task = plugin.getTaskScheduler().runGlobalTimer(this, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop the drain task and complete everything still queued
+     * On Folia the players' threads cannot be reached anymore once the plugin is disabling, so
+     * the remaining completions are dropped; their crafts were either done by vanilla already or
+     * cancelled with the ingredients still in the grid.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (!plugin.getTaskScheduler().isFolia()) {
+            drain(pending, Integer.MAX_VALUE);
+            return;
+        }
+
+        int dropped = size.getAndSet(0);
+        players.clear();
+        if (dropped > 0) {
+            plugin.getLogger().warning("Dropped " + dropped + " queued craft completion(s) on shutdown");
+        }
+    }
+
+    /**
+     * Re-read the per-tick budget from the settings
+     */
+    public void reloadSettings() {
+        perTickBudget = plugin.getSettings().getCraftQueueBudget();
+    }
+
+    /**
+     * Queue a craft to be completed on the next tick
+     * On Folia this must be called from the player's region thread, as craft events are.
+     */
+    public void submit(PendingCraft craft) {
+        size.incrementAndGet();
+        if (!plugin.getTaskScheduler().isFolia()) {
+            pending.offer(craft);
+            return;
+        }
+
+        Player player = craft.getPlayer();
+        PlayerQueue queue = players.computeIfAbsent(player.getUniqueId(), id -> new PlayerQueue());
+        queue.crafts.offer(craft);
+        schedule(player, queue);
+    }
+
+    /**
+     * Forget the queued crafts of a player who quit
+     * Their drain task is dropped by the scheduler together with the player.
+     */
+    public void evict(UUID player) {
+        PlayerQueue queue = players.remove(player);
+        if (queue != null) {
+            size.addAndGet(-queue.crafts.size());
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void run() {
+        drain(pending, perTickBudget);
+    }
+
+    private void schedule(Player player, PlayerQueue queue) {
+        if (!queue.scheduled.compareAndSet(false, true)) return;
+
+        plugin.getTaskScheduler().runAtEntityLater(player, () -> {
+            queue.scheduled.set(false);
+            drain(queue.crafts, perTickBudget);
+            if (!queue.crafts.isEmpty()) {
+                schedule(player, queue);
+            }
+        });
+    }
+
+    private void drain(Queue<PendingCraft> crafts, int budget) {
+        PendingCraft craft;
+        for (int i = 0; i < budget && (craft = crafts.poll()) != null; i++) {
+            size.decrementAndGet();
+            try {
+                handler.accept(craft);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Error completing craft for " + craft.getPlayer().getName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * The queued crafts of one player on Folia
+     */
+    private static final class PlayerQueue {
+        private final Queue<PendingCraft> crafts = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    /**
+     * How a queued craft is completed
+     */
+    public enum CraftMode {
+        /** Vanilla already crafted the item; only the message is left */
+        VANILLA,
+        /** A normal click the plugin completes, because a slot needs more than one item */
+        SINGLE,
+        /** A shift-click: craft as many as possible into the player's inventory */
+        BULK
+    }
+
+    /**
+     * A craft waiting to be completed
+     */
+    public static class PendingCraft {
+        private final Player player;
+        private final CraftingInventory inventory;
+        private final RecipeManager.RecipeData recipe;
+        private final ItemStack result;
+        private final CraftMode mode;
+
+        public PendingCraft(Player player, CraftingInventory inventory, RecipeManager.RecipeData recipe, ItemStack result, CraftMode mode) {
+            this.player = player;
+            this.inventory = inventory;
+            this.recipe = recipe;
+            this.result = result;
+            this.mode = mode;
+        }
+
+        public Player getPlayer() {
+            return player;
+        }
+
+        public CraftingInventory getInventory() {
+            return inventory;
+        }
+
+        public RecipeManager.RecipeData getRecipe() {
+            return recipe;
+        }
+
+        /**
+         * @return The result item, or null for vanilla crafts
+         */
+        public ItemStack getResult() {
+            return result;
+        }
+
+        public CraftMode getMode() {
+            return mode;
+        }
+    }
+}
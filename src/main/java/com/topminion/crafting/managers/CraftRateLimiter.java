@@ -0,0 +1,153 @@
+package com.topminion.crafting.managers;
+
+import com.topminion.crafting.TopMinionCrafting;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player token buckets that reject crafts clicked faster than a recipe allows
+ *
+ * Each bucket is a single long: the time at which the bucket will be full again (the GCRA form
+ * of a token bucket). Taking a token is one compare-and-set, so checks never lock or allocate.
+ * Recipes with their own rate_limit get a separate bucket per player; all other recipes share
+ * the default bucket from settings.rate_limit. Buckets are dropped when the player quits.
+ * A throttled player is told at most once per {@link #WARN_COOLDOWN_NANOS}, so the warning
+ * does not flood the chat with the spam it rejects.
+ */
+public class CraftRateLimiter {
+
+    public static final long WARN_COOLDOWN_NANOS = 3_000_000_000L;
+
+    private final TopMinionCrafting plugin;
+    private final Map<UUID, Buckets> players = new ConcurrentHashMap<>();
+
+    public CraftRateLimiter(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Take a token for a craft of a recipe
+     *
+     * @return false if the player crafts this recipe too fast
+     */
+    public boolean tryAcquire(Player player, RecipeManager.RecipeData data) {
+        Limit limit = data.getDefinition().getRateLimit();
+        boolean own = limit != null;
+        if (!own) {
+            limit = plugin.getSettings().getRateLimit();
+        }
+        if (limit.isUnlimited()) return true;
+
+        UUID id = player.getUniqueId();
+        Buckets buckets = players.get(id);
+        if (buckets == null) {
+            buckets = players.computeIfAbsent(id, key -> new Buckets());
+        }
+        return take(own ? buckets.forRecipe(data.getKey()) : buckets.shared, limit, System.nanoTime());
+    }
+
+    /**
+     * Check whether a throttled player should be told, at most once per cooldown
+     *
+     * @return true if the player was not warned within the cooldown
+     */
+    public boolean shouldWarn(Player player) {
+        Buckets buckets = players.get(player.getUniqueId());
+        if (buckets == null) return true;
+
+        long now = System.nanoTime();
+        long last = buckets.warnedAt.get();
+        return (last == Long.MIN_VALUE || now - last >= WARN_COOLDOWN_NANOS) && buckets.warnedAt.compareAndSet(last, now);
+    }
+
+    /**
+     * Forget a player's buckets
+     */
+    public void evict(UUID player) {
+        players.remove(player);
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    /**
+     * Take a token from a bucket at a point in time
+     *
+     * @param now The time in nanoseconds, on the same clock as the bucket
+     * @return false if the bucket has no token left
+     */
+    static boolean take(AtomicLong bucket, Limit limit, long now) {
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            // More than burst - 1 intervals ahead means no token is left
+            if (start - now > limit.toleranceNanos) return false;
+            if (bucket.compareAndSet(fullAt, start + limit.intervalNanos)) return true;
+        }
+    }
+
+    /**
+     * The buckets of one player
+     */
+    private static final class Buckets {
+        private final AtomicLong shared = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong warnedAt = new AtomicLong(Long.MIN_VALUE);
+        private final Map<NamespacedKey, AtomicLong> recipes = new ConcurrentHashMap<>();
+
+        AtomicLong forRecipe(NamespacedKey recipe) {
+            AtomicLong bucket = recipes.get(recipe);
+            if (bucket == null) {
+                bucket = recipes.computeIfAbsent(recipe, key -> new AtomicLong(Long.MIN_VALUE));
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * A craft rate: a sustained number of crafts per second and a burst allowed on top of it
+     */
+    public static final class Limit {
+
+        public static final Limit UNLIMITED = new Limit(0, 1);
+
+        private final double craftsPerSecond;
+        private final int burst;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+
+        /**
+         * @param craftsPerSecond Sustained crafts per second; 0 or less for no limit
+         * @param burst Crafts allowed in quick succession, at least 1
+         */
+        public Limit(double craftsPerSecond, int burst) {
+            this.craftsPerSecond = craftsPerSecond;
+            this.burst = Math.max(1, burst);
+            this.intervalNanos = craftsPerSecond > 0 ? (long) (1_000_000_000L / craftsPerSecond) : 0;
+            this.toleranceNanos = intervalNanos * (this.burst - 1);
+        }
+
+        public double getCraftsPerSecond() {
+            return craftsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public boolean isUnlimited() {
+            return intervalNanos <= 0;
+        }
+
+        @Override
+        public String toString() {
+            return isUnlimited() ? "unlimited" : String.format(Locale.ROOT, "%.2f/s (burst %d)", craftsPerSecond, burst);
+        }
+    }
+}
@@ -1,371 +1,777 @@
 package com.topminion.crafting.managers;
 
 import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.recipes.Ingredient;
+import com.topminion.crafting.recipes.ItemFingerprint;
+import com.topminion.crafting.recipes.RecipeCache;
+import com.topminion.crafting.recipes.RecipeConflicts;
+import com.topminion.crafting.recipes.RecipeDefinition;
+import com.topminion.crafting.recipes.RecipeMatcher;
+import com.topminion.crafting.recipes.RecipeParser;
+import com.topminion.crafting.recipes.RecipeRegistry;
+import com.topminion.crafting.utils.RecipeSync;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
 import org.bukkit.inventory.ShapedRecipe;
 import org.bukkit.inventory.ShapelessRecipe;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * Manages all crafting recipes for minions and upgrades
  * Loads from individual recipe files in MinionRecipes/ and UpgradeRecipes/ folders
+ *
+ * Recipe files are parsed in parallel on a worker pool into immutable {@link RecipeDefinition}s;
+ * only the final Bukkit registration runs on the main thread. Reloads are applied as a diff
+ * by content hash, so only added, changed and removed files touch the server's recipe list.
+ * Lookups go through an immutable {@link RecipeRegistry} snapshot that is swapped atomically.
+ *
+ * Recipes can also be shipped as one zip archive (settings.recipe_archive) holding the same
+ * MinionRecipes/ and UpgradeRecipes/ folders. The archive is read in a single sequential pass;
+ * a loose file with the same name overlays the archive entry.
  */
 public class RecipeManager {
 
+    // Recipe files are a few KB; anything far bigger in the archive is a mistake
+    private static final int MAX_ARCHIVE_ENTRY_SIZE = 1024 * 1024;
+
     private final TopMinionCrafting plugin;
-    private final Map<String, NamespacedKey> minionRecipeKeys;
-    private final Map<String, NamespacedKey> upgradeRecipeKeys;
-    private final Map<String, MinionRecipeData> minionRecipeData;
-    private final Map<String, UpgradeRecipeData> upgradeRecipeData;
+    private final RecipeParser parser;
+    private final RecipeCache cache;
+    private final AtomicReference<RecipeRegistry> registry;
+    private ExecutorService loaderPool;
+
+    // Every load, reload and watcher change takes the next generation before it reads any file.
+    // Each recipe file remembers the generation it was last applied from (main thread only), so a
+    // slower reload that read a file before a newer change cannot revert that change.
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<NamespacedKey, Long> appliedGenerations = new HashMap<>();
 
     public RecipeManager(TopMinionCrafting plugin) {
         this.plugin = plugin;
-        this.minionRecipeKeys = new HashMap<>();
-        this.upgradeRecipeKeys = new HashMap<>();
-        this.minionRecipeData = new HashMap<>();
-        this.upgradeRecipeData = new HashMap<>();
+        this.parser = new RecipeParser(plugin);
+        this.cache = new RecipeCache(plugin);
+        this.registry = new AtomicReference<>(RecipeRegistry.empty());
     }
 
     /**
      * Load all recipes from individual files
+     * Blocks the calling (main) thread until every file is parsed.
      */
     public void loadRecipes() {
-        loadMinionRecipesFromFiles();
-        loadUpgradeRecipesFromFiles();
+        long start = System.nanoTime();
+        long generation = generations.incrementAndGet();
+        ParseResult result = parseRecipeFiles();
+        applyChanges(toFullUpdate(result.definitions), generation);
+        plugin.getMetrics().getReload().recordSince(start);
+
+        for (RecipeType type : RecipeType.values()) {
+            int files = result.fileCounts.getOrDefault(type, 0);
+            if (files == 0) continue;
+            plugin.getLogger().info("Loaded " + getRecipeCount(type) + " " + type.getLabel()
+                    + " recipe(s) from " + files + " file(s)");
+        }
     }
 
     /**
-     * Load minion recipes from individual files in MinionRecipes/ folder
+     * Re-parse all recipe files off the main thread, then apply what changed on the main thread
+     *
+     * @param callback Run on the main thread (global region thread on Folia) once the changes are registered
      */
-    private void loadMinionRecipesFromFiles() {
-        File minionRecipesFolder = new File(plugin.getDataFolder(), "MinionRecipes");
+    public void reloadRecipes(Runnable callback) {
+        long start = System.nanoTime();
+        long generation = generations.incrementAndGet();
+        plugin.getTaskScheduler().runAsync(() -> {
+            ParseResult result = parseRecipeFiles();
+            plugin.getTaskScheduler().runGlobal(() -> {
+                // Drop cached result items so changes in TopMinion are picked up
+                plugin.getItemUtil().invalidate();
+
+                applyChanges(toFullUpdate(result.definitions), generation);
+                plugin.getMetrics().getReload().recordSince(start);
+                callback.run();
+            });
+        });
+    }
 
-        // Create folder if it doesn't exist
-        if (!minionRecipesFolder.exists()) {
-            minionRecipesFolder.mkdirs();
-            plugin.getLogger().info("Created MinionRecipes folder");
+    /**
+     * Re-parse a set of changed, added or deleted recipe files and apply only those changes
+     * May be called from any thread; the files are parsed on the calling thread and the pool.
+     *
+     * @param files Recipe files inside MinionRecipes/ or UpgradeRecipes/
+     */
+    public void reloadFiles(Collection<File> files) {
+        long start = System.nanoTime();
+        long generation = generations.incrementAndGet();
+        Map<NamespacedKey, Future<RecipeDefinition>> pending = new LinkedHashMap<>();
+        ExecutorService pool = getLoaderPool();
+
+        for (File file : files) {
+            RecipeType type = RecipeType.fromFolder(file.getParentFile().getName());
+            if (type == null || !file.getName().endsWith(".yml")) continue;
+
+            // A deleted loose file may uncover the archive's version of the recipe
+            if (!file.isFile() && getArchive() != null) {
+                plugin.debug(() -> "Recipe file " + file.getName() + " was deleted, reloading all recipes for the archive");
+                reloadRecipes(() -> { });
+                return;
+            }
+
+            NamespacedKey key = createKey(type, file.getName().replace(".yml", ""));
+            if (file.isFile()) {
+                pending.put(key, parse(pool, type, file));
+            } else {
+                pending.put(key, null);
+                if (isCacheEnabled()) cache.put(file, 0, 0, null);
+            }
+        }
+
+        Map<NamespacedKey, RecipeDefinition> updates = new LinkedHashMap<>();
+        for (Map.Entry<NamespacedKey, Future<RecipeDefinition>> entry : pending.entrySet()) {
+            // Deleted, disabled and invalid files all remove the recipe
+            updates.put(entry.getKey(), entry.getValue() != null ? await(entry.getValue()) : null);
         }
+        if (isCacheEnabled()) cache.save();
 
-        // Get all .yml files in the folder
-        File[] recipeFiles = minionRecipesFolder.listFiles((dir, name) -> name.endsWith(".yml"));
+        if (updates.isEmpty()) return;
+        plugin.getTaskScheduler().runGlobal(() -> {
+            applyChanges(updates, generation);
+            plugin.getMetrics().getReload().recordSince(start);
+        });
+    }
 
-        if (recipeFiles == null || recipeFiles.length == 0) {
-            plugin.getLogger().warning("No minion recipe files found in MinionRecipes/ folder!");
-            return;
+    /**
+     * Stop the worker pool used for parsing
+     */
+    public void shutdown() {
+        if (loaderPool != null) {
+            loaderPool.shutdownNow();
+            loaderPool = null;
         }
+    }
 
-        int loaded = 0;
-        for (File recipeFile : recipeFiles) {
-            try {
-                String fileName = recipeFile.getName().replace(".yml", "");
-                FileConfiguration config = YamlConfiguration.loadConfiguration(recipeFile);
+    /**
+     * Parse the recipe files of both folders and the recipe archive in parallel
+     */
+    private ParseResult parseRecipeFiles() {
+        ParseResult result = new ParseResult();
+        List<Future<RecipeDefinition>> futures = new ArrayList<>();
+
+        Set<String> paths = new HashSet<>();
+        Map<RecipeType, Set<String>> looseNames = new EnumMap<>(RecipeType.class);
+
+        ExecutorService pool = getLoaderPool();
+        for (RecipeType type : RecipeType.values()) {
+            File[] recipeFiles = listRecipeFiles(type);
+            result.fileCounts.put(type, recipeFiles.length);
+
+            Set<String> names = new HashSet<>();
+            for (File recipeFile : recipeFiles) {
+                futures.add(parse(pool, type, recipeFile));
+                paths.add(recipeFile.getPath());
+                names.add(recipeFile.getName());
+            }
+            looseNames.put(type, names);
+        }
 
-                if (!config.getBoolean("enabled", true)) {
-                    plugin.debug("Skipping disabled minion recipe: " + fileName);
-                    continue;
-                }
+        File archive = getArchive();
+        if (archive != null) {
+            readArchive(pool, archive, looseNames, futures, paths, result);
+        }
 
-                String minionId = config.getString("minion_id");
-                int level = config.getInt("minion_level", 1);
-                String recipeType = config.getString("recipe_type", "SHAPED");
-                String permission = config.getString("permission", "topminioncrafting.craft.minion");
+        for (RecipeType type : RecipeType.values()) {
+            if (result.fileCounts.getOrDefault(type, 0) == 0) {
+                plugin.getLogger().warning("No " + type.getLabel() + " recipe files found in " + type.getFolder() + "/ folder!");
+            }
+        }
+
+        for (Future<RecipeDefinition> future : futures) {
+            RecipeDefinition definition = await(future);
+            if (definition != null) {
+                result.definitions.add(definition);
+            }
+        }
+
+        if (isCacheEnabled()) {
+            cache.retainOnly(paths);
+            cache.save();
+        }
+        return result;
+    }
+
+    /**
+     * Parse a recipe file on the pool, or take it from the recipe cache if the file has not changed
+     */
+    private Future<RecipeDefinition> parse(ExecutorService pool, RecipeType type, File recipeFile) {
+        if (!isCacheEnabled()) {
+            return pool.submit(() -> parser.parse(type, recipeFile));
+        }
 
-                if (minionId == null) {
-                    plugin.getLogger().warning("Minion recipe " + fileName + " is missing minion_id!");
+        // Fingerprint before reading, so a write during parsing is picked up next time
+        long size = recipeFile.length();
+        long modified = recipeFile.lastModified();
+        RecipeDefinition cached = cache.get(recipeFile, size, modified);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return pool.submit(() -> {
+            RecipeDefinition definition = parser.parse(type, recipeFile);
+            // Recipes with problems are parsed again next time, so their warnings are not lost
+            cache.put(recipeFile, size, modified, parser.hadWarnings() ? null : definition);
+            return definition;
+        });
+    }
+
+    /**
+     * Stream the entries of the recipe archive and parse them on the pool
+     * Entries overlaid by a loose file are skipped without being read.
+     *
+     * @param looseNames The file names in each recipe folder
+     */
+    private void readArchive(ExecutorService pool, File archive, Map<RecipeType, Set<String>> looseNames,
+                             List<Future<RecipeDefinition>> futures, Set<String> paths, ParseResult result) {
+        int overlaid = 0;
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive.toPath()), 64 * 1024))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                // Only <folder>/<name>.yml, the same layout as the plugin folder
+                String path = entry.getName();
+                int slash = path.indexOf('/');
+                if (entry.isDirectory() || slash < 0 || path.indexOf('/', slash + 1) >= 0 || !path.endsWith(".yml")) continue;
+
+                RecipeType type = RecipeType.fromFolder(path.substring(0, slash));
+                if (type == null) continue;
+                if (looseNames.get(type).contains(path.substring(slash + 1))) {
+                    overlaid++;
                     continue;
                 }
 
-                // Create placeholder item (actual item will be given in event listener)
-                ItemStack result = new ItemStack(Material.PLAYER_HEAD);
-                NamespacedKey recipeKey = new NamespacedKey(plugin, "minion_" + fileName);
-
-                if (recipeType.equalsIgnoreCase("SHAPED")) {
-                    ShapedRecipe shapedRecipe = new ShapedRecipe(recipeKey, result);
-
-                    // Set shape
-                    List<String> shape = config.getStringList("shape");
-                    if (shape.size() != 3) {
-                        plugin.getLogger().warning("Invalid shape in minion recipe " + fileName + " - must have 3 rows!");
-                        continue;
-                    }
-                    shapedRecipe.shape(shape.toArray(new String[0]));
-
-                    // Set ingredients
-                    if (config.contains("ingredients")) {
-                        for (String ingredientKey : config.getConfigurationSection("ingredients").getKeys(false)) {
-                            String materialName = config.getString("ingredients." + ingredientKey);
-                            Material material = Material.matchMaterial(materialName);
-                            if (material != null) {
-                                shapedRecipe.setIngredient(ingredientKey.charAt(0), material);
-                            } else {
-                                plugin.getLogger().warning("Invalid material in minion recipe " + fileName + ": " + materialName);
-                            }
-                        }
-                    }
-
-                    Bukkit.addRecipe(shapedRecipe);
-                    minionRecipeKeys.put(fileName, recipeKey);
-                    minionRecipeData.put(fileName, new MinionRecipeData(minionId, level, permission));
-                    loaded++;
-
-                    plugin.debug("Loaded SHAPED minion recipe: " + fileName + " for minion: " + minionId);
-
-                } else if (recipeType.equalsIgnoreCase("SHAPELESS")) {
-                    ShapelessRecipe shapelessRecipe = new ShapelessRecipe(recipeKey, result);
-
-                    // Add ingredients
-                    List<String> ingredients = config.getStringList("ingredients");
-                    for (String materialName : ingredients) {
-                        Material material = Material.matchMaterial(materialName);
-                        if (material != null) {
-                            shapelessRecipe.addIngredient(material);
-                        } else {
-                            plugin.getLogger().warning("Invalid material in minion recipe " + fileName + ": " + materialName);
-                        }
-                    }
-
-                    Bukkit.addRecipe(shapelessRecipe);
-                    minionRecipeKeys.put(fileName, recipeKey);
-                    minionRecipeData.put(fileName, new MinionRecipeData(minionId, level, permission));
-                    loaded++;
-
-                    plugin.debug("Loaded SHAPELESS minion recipe: " + fileName + " for minion: " + minionId);
+                byte[] content = readEntry(in);
+                if (content == null) {
+                    plugin.getLogger().warning("Skipping " + path + " in " + archive.getName() + ", it is larger than "
+                            + (MAX_ARCHIVE_ENTRY_SIZE / 1024) + " KB");
+                    continue;
                 }
 
-            } catch (Exception e) {
-                plugin.getLogger().severe("Error loading minion recipe from file: " + recipeFile.getName());
-                e.printStackTrace();
+                File source = new File(archive.getPath() + "!", path);
+                futures.add(parse(pool, type, source, content));
+                paths.add(source.getPath());
+                result.fileCounts.merge(type, 1, Integer::sum);
             }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read recipe archive " + archive.getName() + ": " + e.getMessage());
         }
 
-        plugin.getLogger().info("Loaded " + loaded + " minion recipe(s) from " + recipeFiles.length + " file(s)");
+        int skipped = overlaid;
+        plugin.debug(() -> "Read recipe archive " + archive.getName() + ", " + skipped + " entr" + (skipped == 1 ? "y" : "ies")
+                + " overlaid by loose files");
     }
 
     /**
-     * Load upgrade recipes from individual files in UpgradeRecipes/ folder
+     * @return The contents of the current archive entry, or null if it is too large
      */
-    private void loadUpgradeRecipesFromFiles() {
-        File upgradeRecipesFolder = new File(plugin.getDataFolder(), "UpgradeRecipes");
+    private static byte[] readEntry(InputStream in) throws IOException {
+        byte[] content = in.readNBytes(MAX_ARCHIVE_ENTRY_SIZE + 1);
+        return content.length > MAX_ARCHIVE_ENTRY_SIZE ? null : content;
+    }
+
+    /**
+     * Parse the contents of an archive entry on the pool, or take it from the recipe cache if it has not changed
+     * Archive entries have no modification time of their own, so the content hash takes its place.
+     */
+    private Future<RecipeDefinition> parse(ExecutorService pool, RecipeType type, File source, byte[] content) {
+        if (!isCacheEnabled()) {
+            return pool.submit(() -> parser.parse(type, source, content));
+        }
+
+        return pool.submit(() -> {
+            long hash = RecipeParser.hash(content);
+            RecipeDefinition cached = cache.get(source, content.length, hash);
+            if (cached != null) return cached;
+
+            RecipeDefinition definition = parser.parse(type, source, content);
+            cache.put(source, content.length, hash, parser.hadWarnings() ? null : definition);
+            return definition;
+        });
+    }
+
+    /**
+     * @return The recipe archive, or null if none is configured or the file does not exist
+     */
+    public File getArchive() {
+        String name = plugin.getSettings().getRecipeArchive();
+        if (name.isEmpty()) return null;
+
+        File archive = new File(plugin.getDataFolder(), name);
+        return archive.isFile() ? archive : null;
+    }
+
+    private boolean isCacheEnabled() {
+        return plugin.getSettings().isRecipeCache();
+    }
+
+    private RecipeDefinition await(Future<RecipeDefinition> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Error parsing recipe file: " + e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Get all .yml files in the folder of a recipe type, creating the folder if needed
+     */
+    private File[] listRecipeFiles(RecipeType type) {
+        File folder = new File(plugin.getDataFolder(), type.getFolder());
 
         // Create folder if it doesn't exist
-        if (!upgradeRecipesFolder.exists()) {
-            upgradeRecipesFolder.mkdirs();
-            plugin.getLogger().info("Created UpgradeRecipes folder");
+        if (!folder.exists()) {
+            folder.mkdirs();
+            plugin.getLogger().info("Created " + type.getFolder() + " folder");
         }
 
-        // Get all .yml files in the folder
-        File[] recipeFiles = upgradeRecipesFolder.listFiles((dir, name) -> name.endsWith(".yml"));
+        File[] recipeFiles = folder.listFiles((dir, name) -> name.endsWith(".yml"));
+        return recipeFiles != null ? recipeFiles : new File[0];
+    }
 
-        if (recipeFiles == null || recipeFiles.length == 0) {
-            plugin.getLogger().warning("No upgrade recipe files found in UpgradeRecipes/ folder!");
-            return;
+    private synchronized ExecutorService getLoaderPool() {
+        if (loaderPool == null) {
+            int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 8));
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory factory = runnable -> {
+                Thread thread = new Thread(runnable, "TopMinionCrafting-RecipeLoader-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            loaderPool = Executors.newFixedThreadPool(threads, factory);
         }
+        return loaderPool;
+    }
 
-        int loaded = 0;
-        for (File recipeFile : recipeFiles) {
-            try {
-                String fileName = recipeFile.getName().replace(".yml", "");
-                FileConfiguration config = YamlConfiguration.loadConfiguration(recipeFile);
+    private NamespacedKey createKey(RecipeType type, String name) {
+        return new NamespacedKey(plugin, type.getKeyPrefix() + name);
+    }
 
-                if (!config.getBoolean("enabled", true)) {
-                    plugin.debug("Skipping disabled upgrade recipe: " + fileName);
-                    continue;
+    /**
+     * Turn a complete set of parsed recipes into updates, removing every registered recipe that is not in it
+     */
+    private Map<NamespacedKey, RecipeDefinition> toFullUpdate(List<RecipeDefinition> definitions) {
+        Map<NamespacedKey, RecipeDefinition> updates = new LinkedHashMap<>();
+        for (RecipeData data : registry.get().getRecipes()) {
+            updates.put(data.getFileKey(), null);
+        }
+        for (RecipeDefinition definition : definitions) {
+            updates.put(createKey(definition.getType(), definition.getName()), definition);
+        }
+        return updates;
+    }
+
+    /**
+     * Apply recipe updates (main thread, or the global region thread on Folia)
+     * Unchanged recipes are skipped; players receive the recipe list once at the end.
+     * The changes are collected into a new registry snapshot that replaces the old one in one step.
+     *
+     * A tiered minion file registers one recipe per tier; they are added and removed together.
+     *
+     * @param updates The new definition per file key, or null to remove the file's recipes
+     */
+    private void applyChanges(Map<NamespacedKey, RecipeDefinition> updates, long generation) {
+        RecipeRegistry old = registry.get();
+        Map<NamespacedKey, RecipeData> recipesByKey = old.copyRecipes();
+        int added = 0, updated = 0, removed = 0;
+
+        for (Map.Entry<NamespacedKey, RecipeDefinition> update : updates.entrySet()) {
+            NamespacedKey fileKey = update.getKey();
+            // A newer reload already applied this file; this one may have read it before the change
+            if (appliedGenerations.getOrDefault(fileKey, 0L) > generation) {
+                plugin.debug(() -> "Skipped outdated reload of recipe file " + fileKey.getKey());
+                continue;
+            }
+            appliedGenerations.put(fileKey, generation);
+            RecipeDefinition definition = update.getValue();
+            List<RecipeData> current = old.getFileRecipes(fileKey);
+
+            if (definition == null) {
+                for (RecipeData data : current) {
+                    RecipeSync.removeRecipe(data.getKey());
+                    recipesByKey.remove(data.getKey());
+                    removed++;
+                    plugin.debug(() -> "Removed " + data.getType().getLabel() + " recipe: " + data.getDefinition().getName());
                 }
+                continue;
+            }
 
-                String upgradeId = config.getString("upgrade_id");
-                String recipeType = config.getString("recipe_type", "SHAPED");
-                String permission = config.getString("permission", "topminioncrafting.craft.upgrade");
+            if (!current.isEmpty() && current.get(0).getDefinition().getContentHash() == definition.getContentHash()) {
+                continue;
+            }
 
-                if (upgradeId == null) {
-                    plugin.getLogger().warning("Upgrade recipe " + fileName + " is missing upgrade_id!");
-                    continue;
+            RecipeType type = definition.getType();
+            try {
+                for (RecipeData data : current) {
+                    RecipeSync.removeRecipe(data.getKey());
+                    recipesByKey.remove(data.getKey());
                 }
 
-                // Create placeholder item (actual item will be given in event listener)
-                ItemStack result = new ItemStack(Material.PAPER);
-                NamespacedKey recipeKey = new NamespacedKey(plugin, "upgrade_" + fileName);
-
-                if (recipeType.equalsIgnoreCase("SHAPED")) {
-                    ShapedRecipe shapedRecipe = new ShapedRecipe(recipeKey, result);
-
-                    // Set shape
-                    List<String> shape = config.getStringList("shape");
-                    if (shape.size() != 3) {
-                        plugin.getLogger().warning("Invalid shape in upgrade recipe " + fileName + " - must have 3 rows!");
-                        continue;
-                    }
-                    shapedRecipe.shape(shape.toArray(new String[0]));
-
-                    // Set ingredients
-                    if (config.contains("ingredients")) {
-                        for (String ingredientKey : config.getConfigurationSection("ingredients").getKeys(false)) {
-                            String materialName = config.getString("ingredients." + ingredientKey);
-                            Material material = Material.matchMaterial(materialName);
-                            if (material != null) {
-                                shapedRecipe.setIngredient(ingredientKey.charAt(0), material);
-                            } else {
-                                plugin.getLogger().warning("Invalid material in upgrade recipe " + fileName + ": " + materialName);
-                            }
-                        }
-                    }
-
-                    Bukkit.addRecipe(shapedRecipe);
-                    upgradeRecipeKeys.put(fileName, recipeKey);
-                    upgradeRecipeData.put(fileName, new UpgradeRecipeData(upgradeId, permission));
-                    loaded++;
-
-                    plugin.debug("Loaded SHAPED upgrade recipe: " + fileName + " for upgrade: " + upgradeId);
-
-                } else if (recipeType.equalsIgnoreCase("SHAPELESS")) {
-                    ShapelessRecipe shapelessRecipe = new ShapelessRecipe(recipeKey, result);
-
-                    // Add ingredients
-                    List<String> ingredients = config.getStringList("ingredients");
-                    for (String materialName : ingredients) {
-                        Material material = Material.matchMaterial(materialName);
-                        if (material != null) {
-                            shapelessRecipe.addIngredient(material);
-                        } else {
-                            plugin.getLogger().warning("Invalid material in upgrade recipe " + fileName + ": " + materialName);
-                        }
-                    }
-
-                    Bukkit.addRecipe(shapelessRecipe);
-                    upgradeRecipeKeys.put(fileName, recipeKey);
-                    upgradeRecipeData.put(fileName, new UpgradeRecipeData(upgradeId, permission));
-                    loaded++;
-
-                    plugin.debug("Loaded SHAPELESS upgrade recipe: " + fileName + " for upgrade: " + upgradeId);
+                for (RecipeDefinition recipe : definition.getRecipes()) {
+                    NamespacedKey recipeKey = createKey(type, recipe.getName());
+                    RecipeData data = type == RecipeType.MINION
+                            ? new MinionRecipeData(recipeKey, fileKey, recipe)
+                            : new UpgradeRecipeData(recipeKey, fileKey, recipe);
+
+                    RecipeSync.addRecipe(createBukkitRecipe(recipeKey, recipe, createResult(data, type.getPlaceholder())));
+                    recipesByKey.put(recipeKey, data);
                 }
+                if (!current.isEmpty()) updated++; else added++;
+
+                plugin.debug(() -> "Loaded " + (definition.isShaped() ? "SHAPED " : "SHAPELESS ") + type.getLabel()
+                        + " recipe: " + definition.getName() + " for " + type.getLabel() + ": " + definition.getResultId()
+                        + (definition.isTiered() ? " (" + definition.getTiers().size() + " tiers)" : ""));
 
             } catch (Exception e) {
-                plugin.getLogger().severe("Error loading upgrade recipe from file: " + recipeFile.getName());
+                plugin.getLogger().severe("Error registering " + type.getLabel() + " recipe from file: " + definition.getSource());
                 e.printStackTrace();
             }
         }
 
-        plugin.getLogger().info("Loaded " + loaded + " upgrade recipe(s) from " + recipeFiles.length + " file(s)");
+        if (added + updated + removed > 0) {
+            registry.set(new RecipeRegistry(recipesByKey));
+            RecipeSync.sync();
+            if (plugin.getSettings().isDetectConflicts()) {
+                reportConflicts();
+            }
+        }
+        if (plugin.isDebugEnabled()) {
+            plugin.debug("Applied recipe changes: " + added + " added, " + updated + " updated, " + removed + " removed");
+        }
     }
 
     /**
-     * Unregister all recipes
+     * Log recipes that shadow each other or a server recipe, naming their files
      */
-    public void unregisterRecipes() {
-        // Unregister minion recipes
-        for (NamespacedKey key : minionRecipeKeys.values()) {
-            Bukkit.removeRecipe(key);
+    private void reportConflicts() {
+        long start = System.nanoTime();
+        List<RecipeConflicts.Conflict> conflicts = RecipeConflicts.find(registry.get().getRecipes(),
+                Bukkit.recipeIterator(), plugin.getName().toLowerCase(Locale.ROOT));
+
+        for (RecipeConflicts.Conflict conflict : conflicts) {
+            if (conflict.getKind() == RecipeConflicts.Kind.OVERLAP) {
+                plugin.getLogger().info("Recipe overlap: " + conflict.getMessage());
+            } else {
+                plugin.getLogger().warning("Recipe conflict: " + conflict.getMessage());
+            }
+        }
+        plugin.debug(() -> "Checked recipes for conflicts in " + (System.nanoTime() - start) / 1_000_000 + "ms, "
+                + conflicts.size() + " found");
+    }
+
+    /**
+     * Build the Bukkit recipe for a parsed definition
+     */
+    private Recipe createBukkitRecipe(NamespacedKey recipeKey, RecipeDefinition definition, ItemStack result) {
+        if (definition.isShaped()) {
+            ShapedRecipe shapedRecipe = new ShapedRecipe(recipeKey, result);
+            shapedRecipe.shape(definition.getShape().toArray(new String[0]));
+            // Vanilla matches one item per slot; amounts are checked by the RecipeMatcher
+            for (Map.Entry<Character, Ingredient> ingredient : definition.getShapedIngredients().entrySet()) {
+                shapedRecipe.setIngredient(ingredient.getKey(), ingredient.getValue().getMaterial());
+            }
+            return shapedRecipe;
         }
-        minionRecipeKeys.clear();
-        minionRecipeData.clear();
 
-        // Unregister upgrade recipes
-        for (NamespacedKey key : upgradeRecipeKeys.values()) {
-            Bukkit.removeRecipe(key);
+        ShapelessRecipe shapelessRecipe = new ShapelessRecipe(recipeKey, result);
+        for (Ingredient ingredient : definition.getShapelessIngredients()) {
+            shapelessRecipe.addIngredient(ingredient.getMaterial());
         }
-        upgradeRecipeKeys.clear();
-        upgradeRecipeData.clear();
+        return shapelessRecipe;
+    }
+
+    /**
+     * Create the result item a recipe is registered with
+     * Uses the real TopMinion item so the recipe book shows it, which also warms the item template cache.
+     * Falls back to a placeholder if the item cannot be created; such recipes never produce a result
+     * because the craft listener clears it during PrepareItemCraftEvent.
+     */
+    private ItemStack createResult(RecipeData data, Material placeholder) {
+        ItemStack result = plugin.getItemUtil().getResultItem(data);
+        return result != null ? result : new ItemStack(placeholder);
+    }
+
+    /**
+     * Unregister all recipes
+     */
+    public void unregisterRecipes() {
+        RecipeRegistry old = registry.getAndSet(RecipeRegistry.empty());
+        for (RecipeData data : old.getRecipes()) {
+            RecipeSync.removeRecipe(data.getKey());
+        }
+        RecipeSync.sync();
 
         plugin.debug("Unregistered all recipes");
     }
 
+    /**
+     * Get the current snapshot of registered recipes
+     * Safe to call from any thread; the snapshot never changes.
+     */
+    public RecipeRegistry getRegistry() {
+        return registry.get();
+    }
+
+    /**
+     * Look up a registered recipe by its NamespacedKey
+     * Safe to call from any thread.
+     *
+     * @param key The recipe key reported by Bukkit
+     * @return The minion or upgrade recipe descriptor, or null if the key is not one of ours
+     */
+    public RecipeData getRecipe(NamespacedKey key) {
+        return registry.get().get(key);
+    }
+
+    /**
+     * Match a crafting grid against the registered recipes, including the amount in each slot
+     * Safe to call from any thread.
+     *
+     * @param matrix The crafting matrix
+     * @return The matched recipe and the amounts one craft takes per slot, or null
+     */
+    public RecipeMatcher.Match match(ItemStack[] matrix) {
+        return registry.get().getMatcher().match(matrix);
+    }
+
+    /**
+     * Find the recipe a crafting grid matches, reusing the grid's cached item fingerprints
+     *
+     * @param fingerprints The fingerprint cache of the grid
+     * @return The matched recipe and the amounts one craft takes per slot, or null
+     */
+    public RecipeMatcher.Match match(ItemStack[] matrix, ItemFingerprint.Cache fingerprints) {
+        return registry.get().getMatcher().match(matrix, fingerprints);
+    }
+
     /**
      * Check if a recipe key is a registered minion recipe
      */
     public boolean isMinionRecipe(NamespacedKey key) {
-        return minionRecipeKeys.containsValue(key);
+        return getMinionRecipeData(key) != null;
     }
 
     /**
      * Check if a recipe key is a registered upgrade recipe
      */
     public boolean isUpgradeRecipe(NamespacedKey key) {
-        return upgradeRecipeKeys.containsValue(key);
+        return getUpgradeRecipeData(key) != null;
     }
 
     /**
      * Get minion recipe data by NamespacedKey
      */
     public MinionRecipeData getMinionRecipeData(NamespacedKey key) {
-        for (Map.Entry<String, NamespacedKey> entry : minionRecipeKeys.entrySet()) {
-            if (entry.getValue().equals(key)) {
-                return minionRecipeData.get(entry.getKey());
-            }
-        }
-        return null;
+        RecipeData data = getRecipe(key);
+        return data instanceof MinionRecipeData ? (MinionRecipeData) data : null;
     }
 
     /**
      * Get upgrade recipe data by NamespacedKey
      */
     public UpgradeRecipeData getUpgradeRecipeData(NamespacedKey key) {
-        for (Map.Entry<String, NamespacedKey> entry : upgradeRecipeKeys.entrySet()) {
-            if (entry.getValue().equals(key)) {
-                return upgradeRecipeData.get(entry.getKey());
-            }
-        }
-        return null;
+        RecipeData data = getRecipe(key);
+        return data instanceof UpgradeRecipeData ? (UpgradeRecipeData) data : null;
     }
 
     public int getMinionRecipeCount() {
-        return minionRecipeKeys.size();
+        return getRecipeCount(RecipeType.MINION);
     }
 
     public int getUpgradeRecipeCount() {
-        return upgradeRecipeKeys.size();
+        return getRecipeCount(RecipeType.UPGRADE);
+    }
+
+    private int getRecipeCount(RecipeType type) {
+        return registry.get().getCount(type);
     }
 
     /**
-     * Data class for minion recipe information
+     * Type of item a registered recipe produces
      */
-    public static class MinionRecipeData {
-        private final String minionId;
-        private final int level;
-        private final String permission;
+    public enum RecipeType {
+        MINION("minion", "MinionRecipes", "minion_", "minion_id", "topminioncrafting.craft.minion", Material.PLAYER_HEAD),
+        UPGRADE("upgrade", "UpgradeRecipes", "upgrade_", "upgrade_id", "topminioncrafting.craft.upgrade", Material.PAPER);
+
+        private final String label;
+        private final String folder;
+        private final String keyPrefix;
+        private final String idField;
+        private final String defaultPermission;
+        private final Material placeholder;
+
+        RecipeType(String label, String folder, String keyPrefix, String idField, String defaultPermission, Material placeholder) {
+            this.label = label;
+            this.folder = folder;
+            this.keyPrefix = keyPrefix;
+            this.idField = idField;
+            this.defaultPermission = defaultPermission;
+            this.placeholder = placeholder;
+        }
 
-        public MinionRecipeData(String minionId, int level, String permission) {
-            this.minionId = minionId;
-            this.level = level;
-            this.permission = permission;
+        /**
+         * @return Lower case name used in log messages
+         */
+        public String getLabel() {
+            return label;
         }
 
-        public String getMinionId() {
-            return minionId;
+        public String getFolder() {
+            return folder;
         }
 
-        public int getLevel() {
-            return level;
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+
+        public String getIdField() {
+            return idField;
+        }
+
+        public String getDefaultPermission() {
+            return defaultPermission;
+        }
+
+        public Material getPlaceholder() {
+            return placeholder;
+        }
+
+        /**
+         * Get the recipe type stored in a folder
+         *
+         * @param folder The folder name, e.g. MinionRecipes
+         * @return The type, or null if the folder is not a recipe folder
+         */
+        public static RecipeType fromFolder(String folder) {
+            for (RecipeType type : values()) {
+                if (type.folder.equals(folder)) return type;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Recipes parsed from disk, waiting to be registered
+     */
+    private static class ParseResult {
+        private final List<RecipeDefinition> definitions = new ArrayList<>();
+        private final Map<RecipeType, Integer> fileCounts = new EnumMap<>(RecipeType.class);
+    }
+
+    /**
+     * Common data for every registered recipe, looked up by its NamespacedKey
+     */
+    public abstract static class RecipeData {
+        private final NamespacedKey key;
+        private final NamespacedKey fileKey;
+        private final RecipeDefinition definition;
+
+        protected RecipeData(NamespacedKey key, NamespacedKey fileKey, RecipeDefinition definition) {
+            this.key = key;
+            this.fileKey = fileKey;
+            this.definition = definition;
+        }
+
+        public abstract RecipeType getType();
+
+        public NamespacedKey getKey() {
+            return key;
+        }
+
+        /**
+         * @return The key of the file this recipe was loaded from; differs from {@link #getKey()} for tiers
+         */
+        public NamespacedKey getFileKey() {
+            return fileKey;
+        }
+
+        /**
+         * @return The parsed recipe file this recipe was registered from
+         */
+        public RecipeDefinition getDefinition() {
+            return definition;
         }
 
         public String getPermission() {
-            return permission;
+            return definition.getPermission();
+        }
+    }
+
+    /**
+     * Data class for minion recipe information
+     */
+    public static class MinionRecipeData extends RecipeData {
+
+        public MinionRecipeData(NamespacedKey key, RecipeDefinition definition) {
+            this(key, key, definition);
+        }
+
+        public MinionRecipeData(NamespacedKey key, NamespacedKey fileKey, RecipeDefinition definition) {
+            super(key, fileKey, definition);
+        }
+
+        @Override
+        public RecipeType getType() {
+            return RecipeType.MINION;
+        }
+
+        public String getMinionId() {
+            return getDefinition().getResultId();
+        }
+
+        public int getLevel() {
+            return getDefinition().getLevel();
         }
     }
 
     /**
      * Data class for upgrade recipe information
      */
-    public static class UpgradeRecipeData {
-        private final String upgradeId;
-        private final String permission;
+    public static class UpgradeRecipeData extends RecipeData {
 
-        public UpgradeRecipeData(String upgradeId, String permission) {
-            this.upgradeId = upgradeId;
-            this.permission = permission;
+        public UpgradeRecipeData(NamespacedKey key, RecipeDefinition definition) {
+            this(key, key, definition);
         }
 
-        public String getUpgradeId() {
-            return upgradeId;
+        public UpgradeRecipeData(NamespacedKey key, NamespacedKey fileKey, RecipeDefinition definition) {
+            super(key, fileKey, definition);
         }
 
-        public String getPermission() {
-            return permission;
+        @Override
+        public RecipeType getType() {
+            return RecipeType.UPGRADE;
+        }
+
+        public String getUpgradeId() {
+            return getDefinition().getResultId();
         }
     }
 }
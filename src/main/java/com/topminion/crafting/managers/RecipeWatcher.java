@@ -0,0 +1,135 @@
+package com.topminion.crafting.managers;
+
+import com.topminion.crafting.TopMinionCrafting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the recipe folders and reloads only the files that were added, changed or deleted
+ *
+ * Events are collected until the folders have been quiet for a short moment, so saving a file
+ * (which editors often do in several writes) results in a single reload.
+ */
+public class RecipeWatcher implements Runnable {
+
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private final TopMinionCrafting plugin;
+    private final Map<WatchKey, Path> folders = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    public RecipeWatcher(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start watching MinionRecipes/ and UpgradeRecipes/
+     */
+    public void start() {
+        if (thread != null) return;
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (RecipeManager.RecipeType type : RecipeManager.RecipeType.values()) {
+                File folder = new File(plugin.getDataFolder(), type.getFolder());
+                folder.mkdirs();
+
+                Path path = folder.toPath();
+                WatchKey key = path.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                folders.put(key, path);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not watch recipe folders: " + e.getMessage());
+            stop();
+            return;
+        }
+
+        thread = new Thread(this, "TopMinionCrafting-RecipeWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        plugin.getLogger().info("Watching recipe folders for changes");
+    }
+
+    /**
+     * Stop watching
+     */
+    public void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+            watchService = null;
+        }
+        folders.clear();
+    }
+
+    @Override
+    public void run() {
+        WatchService service = watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<File> changed = new LinkedHashSet<>();
+                boolean overflow = collect(service.take(), changed);
+
+                // Wait until the folders are quiet before reloading
+                WatchKey key;
+                while ((key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changed);
+                }
+
+                if (overflow) {
+                    plugin.debug("Too many recipe file changes to track, reloading all recipes");
+                    plugin.getRecipeManager().reloadRecipes(() -> { });
+                } else if (!changed.isEmpty()) {
+                    plugin.debug(() -> "Recipe files changed: " + changed.size());
+                    plugin.getRecipeManager().reloadFiles(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Watcher stopped
+        }
+    }
+
+    /**
+     * Add the files of a watch key's events to the set
+     *
+     * @return true if events were lost and a full reload is needed
+     */
+    private boolean collect(WatchKey key, Set<File> changed) {
+        Path folder = folders.get(key);
+        boolean overflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else if (folder != null) {
+                changed.add(folder.resolve((Path) event.context()).toFile());
+            }
+        }
+
+        key.reset();
+        return overflow;
+    }
+}
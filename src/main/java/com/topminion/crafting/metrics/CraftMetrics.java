@@ -0,0 +1,116 @@
+package com.topminion.crafting.metrics;
+
+import org.bukkit.NamespacedKey;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for crafting, item creation, recipe loading and auto-crafters
+ * All counters are striped, so recording from the main thread (or any other) never blocks.
+ */
+public class CraftMetrics {
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final LongAdder crafted = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final Map<NamespacedKey, LongAdder> craftsByRecipe = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram craftHandler = new LatencyHistogram();
+    private final LatencyHistogram itemCreation = new LatencyHistogram();
+    private final LatencyHistogram reload = new LatencyHistogram();
+    private final LatencyHistogram autoCrafter = new LatencyHistogram();
+
+    /**
+     * Count successful crafts of a recipe
+     *
+     * @param recipe The recipe key
+     * @param crafts The number of crafts (more than one for shift-click crafts)
+     */
+    public void recordCraft(NamespacedKey recipe, int crafts) {
+        crafted.add(crafts);
+        LongAdder counter = craftsByRecipe.get(recipe);
+        if (counter == null) {
+            counter = craftsByRecipe.computeIfAbsent(recipe, key -> new LongAdder());
+        }
+        counter.add(crafts);
+    }
+
+    /**
+     * Count a craft that was refused (missing permission)
+     */
+    public void recordDenied() {
+        denied.increment();
+    }
+
+    /**
+     * Count a craft that failed because the result item could not be created
+     */
+    public void recordFailure() {
+        failed.increment();
+    }
+
+    /**
+     * Count a craft that was rejected by the rate limiter
+     */
+    public void recordThrottled() {
+        throttled.increment();
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getCrafted() {
+        return crafted.sum();
+    }
+
+    public long getDenied() {
+        return denied.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    public Map<NamespacedKey, LongAdder> getCraftsByRecipe() {
+        return Collections.unmodifiableMap(craftsByRecipe);
+    }
+
+    /**
+     * @return Time spent in the craft event handlers for our recipes
+     */
+    public LatencyHistogram getCraftHandler() {
+        return craftHandler;
+    }
+
+    /**
+     * @return Time spent creating minion and upgrade items
+     */
+    public LatencyHistogram getItemCreation() {
+        return itemCreation;
+    }
+
+    /**
+     * @return Time spent loading and reloading recipes
+     */
+    public LatencyHistogram getReload() {
+        return reload;
+    }
+
+    /**
+     * @return Time spent running the auto-crafters of one chunk
+     */
+    public LatencyHistogram getAutoCrafter() {
+        return autoCrafter;
+    }
+}
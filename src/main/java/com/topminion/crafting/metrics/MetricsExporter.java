@@ -0,0 +1,164 @@
+package com.topminion.crafting.metrics;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.config.Settings;
+import com.topminion.crafting.scheduler.TaskHandle;
+import org.bukkit.NamespacedKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Periodically writes the craft metrics to a file in Prometheus text or JSON format
+ * The file is written off the main thread and replaced atomically, so it can be scraped at any time.
+ */
+public class MetricsExporter implements Runnable {
+
+    private final TopMinionCrafting plugin;
+    private final CraftMetrics metrics;
+    private TaskHandle task;
+    private File file;
+    private boolean json;
+
+    public MetricsExporter(TopMinionCrafting plugin, CraftMetrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Start exporting if enabled in the settings
+     */
+    public void start() {
+        Settings settings = plugin.getSettings();
+        if (task != null || !settings.isMetricsExport()) return;
+
+        file = new File(plugin.getDataFolder(), settings.getMetricsFile());
+        json = settings.getMetricsFormat().equals("json");
+
+        long period = settings.getMetricsInterval() * 20L;
+        task = plugin.getTaskScheduler().runAsyncTimer(this, period, period);
+        plugin.debug(() -> "Exporting metrics to " + file.getName() + " every " + settings.getMetricsInterval() + "s");
+    }
+
+    /**
+     * Stop exporting
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        String content = json ? toJson(metrics) : toPrometheus(metrics);
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(temp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write metrics to " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Format the metrics in the Prometheus text exposition format
+     */
+    public static String toPrometheus(CraftMetrics metrics) {
+        StringBuilder out = new StringBuilder(2048);
+        counter(out, "topminioncrafting_crafts_total", "Successful crafts", metrics.getCrafted());
+        counter(out, "topminioncrafting_crafts_denied_total", "Crafts refused for missing permission", metrics.getDenied());
+        counter(out, "topminioncrafting_crafts_failed_total", "Crafts whose result item could not be created", metrics.getFailed());
+        counter(out, "topminioncrafting_crafts_throttled_total", "Crafts rejected by the rate limiter", metrics.getThrottled());
+
+        out.append("# HELP topminioncrafting_recipe_crafts_total Successful crafts per recipe\n");
+        out.append("# TYPE topminioncrafting_recipe_crafts_total counter\n");
+        for (Map.Entry<NamespacedKey, LongAdder> entry : metrics.getCraftsByRecipe().entrySet()) {
+            out.append("topminioncrafting_recipe_crafts_total{recipe=\"").append(entry.getKey().getKey())
+                    .append("\"} ").append(entry.getValue().sum()).append('\n');
+        }
+
+        histogram(out, "topminioncrafting_craft_handler_seconds", "Time spent handling crafts of our recipes", metrics.getCraftHandler());
+        histogram(out, "topminioncrafting_item_creation_seconds", "Time spent creating minion and upgrade items", metrics.getItemCreation());
+        histogram(out, "topminioncrafting_reload_seconds", "Time spent loading recipes", metrics.getReload());
+        histogram(out, "topminioncrafting_autocrafter_chunk_seconds", "Time spent running the auto-crafters of one chunk", metrics.getAutoCrafter());
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+
+        long[] counts = histogram.getBucketCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length - 1; i++) {
+            cumulative += counts[i];
+            out.append(name).append("_bucket{le=\"").append(seconds(LatencyHistogram.getBucketUpperBound(i)))
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += counts[counts.length - 1];
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(seconds(histogram.getTotalNanos())).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    /**
+     * Format the metrics as a JSON object
+     */
+    public static String toJson(CraftMetrics metrics) {
+        StringBuilder out = new StringBuilder(1024);
+        out.append("{\"started_at\":").append(metrics.getStartedAt());
+        out.append(",\"crafts\":").append(metrics.getCrafted());
+        out.append(",\"denied\":").append(metrics.getDenied());
+        out.append(",\"failed\":").append(metrics.getFailed());
+        out.append(",\"throttled\":").append(metrics.getThrottled());
+
+        out.append(",\"recipes\":{");
+        boolean first = true;
+        for (Map.Entry<NamespacedKey, LongAdder> entry : metrics.getCraftsByRecipe().entrySet()) {
+            if (!first) out.append(',');
+            first = false;
+            // Recipe keys are limited to [a-z0-9/._-], so they need no escaping
+            out.append('"').append(entry.getKey().getKey()).append("\":").append(entry.getValue().sum());
+        }
+        out.append('}');
+
+        out.append(",\"latency\":{");
+        json(out, "craft_handler", metrics.getCraftHandler());
+        out.append(',');
+        json(out, "item_creation", metrics.getItemCreation());
+        out.append(',');
+        json(out, "reload", metrics.getReload());
+        out.append(',');
+        json(out, "autocrafter_chunk", metrics.getAutoCrafter());
+        out.append("}}");
+        return out.toString();
+    }
+
+    private static void json(StringBuilder out, String name, LatencyHistogram histogram) {
+        out.append('"').append(name).append("\":{");
+        out.append("\"count\":").append(histogram.getCount());
+        out.append(",\"mean_ns\":").append((long) histogram.getMeanNanos());
+        out.append(",\"p50_ns\":").append(histogram.getPercentileNanos(0.50));
+        out.append(",\"p99_ns\":").append(histogram.getPercentileNanos(0.99));
+        out.append(",\"max_ns\":").append(histogram.getMaxNanos());
+        out.append('}');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
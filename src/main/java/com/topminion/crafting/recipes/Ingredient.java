@@ -0,0 +1,104 @@
+package com.topminion.crafting.recipes;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One slot of a recipe: a material and how many of it the slot needs per craft
+ *
+ * An ingredient can also require a custom model data value and PersistentDataContainer tags,
+ * e.g. to only accept a crafted minion of a certain level. Those are checked against an
+ * {@link ItemFingerprint} once the material already matched.
+ */
+public final class Ingredient {
+
+    private final Material material;
+    private final int amount;
+    private final Integer customModelData;
+    private final Map<NamespacedKey, String> tags;
+
+    public Ingredient(Material material, int amount) {
+        this(material, amount, null, Collections.emptyMap());
+    }
+
+    public Ingredient(Material material, int amount, Integer customModelData, Map<NamespacedKey, String> tags) {
+        this.material = material;
+        this.amount = amount;
+        this.customModelData = customModelData;
+        this.tags = tags.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * @return The number of items consumed from the slot per craft, at least 1
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return The required custom model data, or null if any item of the material is accepted
+     */
+    public Integer getCustomModelData() {
+        return customModelData;
+    }
+
+    /**
+     * @return The PersistentDataContainer tags the item must carry, with their values as text
+     */
+    public Map<NamespacedKey, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return true if the item meta has to be checked, not just the material
+     */
+    public boolean isCustom() {
+        return customModelData != null || !tags.isEmpty();
+    }
+
+    /**
+     * Check the custom model data and tags of an item of the right material
+     */
+    public boolean matches(ItemFingerprint fingerprint) {
+        if (customModelData != null && !customModelData.equals(fingerprint.getCustomModelData())) {
+            return false;
+        }
+        for (Map.Entry<NamespacedKey, String> tag : tags.entrySet()) {
+            if (!tag.getValue().equals(fingerprint.getTag(tag.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Ingredient)) return false;
+        Ingredient other = (Ingredient) o;
+        return amount == other.amount && material == other.material
+                && Objects.equals(customModelData, other.customModelData) && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(material, amount, customModelData, tags);
+    }
+
+    @Override
+    public String toString() {
+        String text = amount == 1 ? material.name() : amount + "x " + material.name();
+        if (customModelData != null) text += " model=" + customModelData;
+        if (!tags.isEmpty()) text += " " + tags;
+        return text;
+    }
+}
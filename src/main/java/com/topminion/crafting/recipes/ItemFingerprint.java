@@ -0,0 +1,110 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of an item's meta that custom ingredients match on: custom model data and the
+ * PersistentDataContainer tags any recipe asks for
+ *
+ * Reading item meta copies it, so a fingerprint is computed once per item and kept in a
+ * {@link Cache} for as long as the item stays in its grid slot.
+ */
+public final class ItemFingerprint {
+
+    public static final ItemFingerprint EMPTY = new ItemFingerprint(null, Collections.emptyMap());
+
+    private final Integer customModelData;
+    private final Map<NamespacedKey, String> tags;
+
+    private ItemFingerprint(Integer customModelData, Map<NamespacedKey, String> tags) {
+        this.customModelData = customModelData;
+        this.tags = tags;
+    }
+
+    /**
+     * Read the fingerprint of an item
+     *
+     * @param keys The tags to read; other tags are ignored
+     */
+    public static ItemFingerprint of(ItemStack item, Set<NamespacedKey> keys) {
+        if (!item.hasItemMeta()) return EMPTY;
+
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return EMPTY;
+
+        Integer customModelData = meta.hasCustomModelData() ? meta.getCustomModelData() : null;
+        Map<NamespacedKey, String> tags = Collections.emptyMap();
+        if (!keys.isEmpty()) {
+            PersistentDataContainer data = meta.getPersistentDataContainer();
+            for (NamespacedKey key : keys) {
+                String value = ItemTags.read(data, key);
+                if (value == null) continue;
+                if (tags.isEmpty()) tags = new HashMap<>();
+                tags.put(key, value);
+            }
+        }
+
+        if (customModelData == null && tags.isEmpty()) return EMPTY;
+        return new ItemFingerprint(customModelData, tags);
+    }
+
+    /**
+     * @return The custom model data, or null if the item has none
+     */
+    public Integer getCustomModelData() {
+        return customModelData;
+    }
+
+    /**
+     * @return The tag value as text, or null if the item does not carry it
+     */
+    public String getTag(NamespacedKey key) {
+        return tags.get(key);
+    }
+
+    /**
+     * Fingerprints of the items in one crafting grid
+     *
+     * The grid fires an event on every click, usually with all but one slot unchanged. An entry is
+     * reused while the slot holds a similar item; comparing items does not build item meta.
+     * Only use a cache from the thread that owns the grid's player.
+     */
+    public static final class Cache {
+        private final ItemStack[] items = new ItemStack[9];
+        private final ItemFingerprint[] fingerprints = new ItemFingerprint[9];
+        private Set<NamespacedKey> keys;
+
+        /**
+         * Get the fingerprint of the item in a grid slot
+         *
+         * @param keys The tags to read; a different set (after a reload) clears the cache
+         */
+        public ItemFingerprint get(int slot, ItemStack item, Set<NamespacedKey> keys) {
+            if (this.keys != keys) {
+                Arrays.fill(items, null);
+                Arrays.fill(fingerprints, null);
+                this.keys = keys;
+            }
+
+            ItemStack cached = items[slot];
+            if (cached != null && cached.isSimilar(item)) {
+                return fingerprints[slot];
+            }
+
+            ItemFingerprint fingerprint = of(item, keys);
+            items[slot] = item.clone();
+            fingerprints[slot] = fingerprint;
+            return fingerprint;
+        }
+    }
+}
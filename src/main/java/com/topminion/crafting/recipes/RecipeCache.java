@@ -0,0 +1,283 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.managers.CraftRateLimiter;
+import com.topminion.crafting.managers.RecipeManager;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary snapshot of parsed recipe definitions, so unchanged files are not re-parsed on startup
+ *
+ * Entries are keyed by file path and fingerprinted by size and last-modified time; the content hash
+ * of the file is stored with the definition. A file whose size or modification time differs from its
+ * entry is parsed again. Files that parsed with warnings are not stored, so they are parsed (and
+ * warned about) on every load. The snapshot is written to recipe-cache.bin in the plugin folder.
+ */
+public class RecipeCache {
+
+    private static final int MAGIC = 0x544D4352;
+    private static final int VERSION = 5;
+
+    private final TopMinionCrafting plugin;
+    private final File file;
+    private Map<String, Entry> entries;
+    private boolean dirty;
+
+    public RecipeCache(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "recipe-cache.bin");
+    }
+
+    /**
+     * Get the cached definition of a recipe file if the file has not changed
+     *
+     * @param recipeFile The recipe file
+     * @param size The current size of the file
+     * @param modified The current last-modified time of the file
+     * @return The cached definition, or null if there is none or the file changed
+     */
+    public synchronized RecipeDefinition get(File recipeFile, long size, long modified) {
+        Entry entry = getEntries().get(recipeFile.getPath());
+        if (entry == null || entry.size != size || entry.modified != modified) return null;
+        return entry.definition;
+    }
+
+    /**
+     * Store the definition parsed from a recipe file, or forget the file if definition is null
+     *
+     * @param size The size of the file before it was parsed
+     * @param modified The last-modified time of the file before it was parsed
+     */
+    public synchronized void put(File recipeFile, long size, long modified, RecipeDefinition definition) {
+        if (definition == null) {
+            dirty |= getEntries().remove(recipeFile.getPath()) != null;
+            return;
+        }
+        getEntries().put(recipeFile.getPath(), new Entry(size, modified, definition));
+        dirty = true;
+    }
+
+    /**
+     * Forget every file that is not in the given set of paths
+     */
+    public synchronized void retainOnly(Set<String> paths) {
+        dirty |= getEntries().keySet().retainAll(paths);
+    }
+
+    /**
+     * Write the snapshot to disk if anything changed since it was loaded or last saved
+     */
+    public synchronized void save() {
+        if (!dirty) return;
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().modified);
+                writeDefinition(out, entry.getValue().definition);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write recipe cache: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write recipe cache: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Entry> getEntries() {
+        if (entries == null) {
+            entries = load();
+        }
+        return entries;
+    }
+
+    private Map<String, Entry> load() {
+        Map<String, Entry> loaded = new HashMap<>();
+        if (!file.isFile()) return loaded;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                plugin.debug("Recipe cache has an old format, all recipe files will be parsed");
+                return loaded;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                RecipeDefinition definition = readDefinition(in);
+                if (definition != null) {
+                    loaded.put(path, new Entry(size, modified, definition));
+                }
+            }
+            plugin.debug(() -> "Loaded " + loaded.size() + " cached recipe definition(s)");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not read recipe cache, all recipe files will be parsed: " + e.getMessage());
+            loaded.clear();
+        }
+        return loaded;
+    }
+
+    private static void writeDefinition(DataOutputStream out, RecipeDefinition definition) throws IOException {
+        out.writeByte(definition.getType().ordinal());
+        out.writeUTF(definition.getName());
+        out.writeUTF(definition.getSource());
+        out.writeLong(definition.getContentHash());
+        out.writeUTF(definition.getResultId());
+        out.writeInt(definition.getLevel());
+        out.writeUTF(definition.getPermission());
+        out.writeBoolean(definition.isShaped());
+
+        out.writeByte(definition.getShape().size());
+        for (String row : definition.getShape()) {
+            out.writeUTF(row);
+        }
+
+        out.writeByte(definition.getShapedIngredients().size());
+        for (Map.Entry<Character, Ingredient> ingredient : definition.getShapedIngredients().entrySet()) {
+            out.writeChar(ingredient.getKey());
+            writeIngredient(out, ingredient.getValue());
+        }
+
+        out.writeByte(definition.getShapelessIngredients().size());
+        for (Ingredient ingredient : definition.getShapelessIngredients()) {
+            writeIngredient(out, ingredient);
+        }
+
+        out.writeShort(definition.getTiers().size());
+        for (RecipeDefinition tier : definition.getTiers()) {
+            writeDefinition(out, tier);
+        }
+
+        CraftRateLimiter.Limit rateLimit = definition.getRateLimit();
+        out.writeBoolean(rateLimit != null);
+        if (rateLimit != null) {
+            out.writeDouble(rateLimit.getCraftsPerSecond());
+            out.writeInt(rateLimit.getBurst());
+        }
+    }
+
+    private static void writeIngredient(DataOutputStream out, Ingredient ingredient) throws IOException {
+        out.writeUTF(ingredient.getMaterial().name());
+        out.writeShort(ingredient.getAmount());
+
+        out.writeBoolean(ingredient.getCustomModelData() != null);
+        if (ingredient.getCustomModelData() != null) {
+            out.writeInt(ingredient.getCustomModelData());
+        }
+
+        out.writeByte(ingredient.getTags().size());
+        for (Map.Entry<NamespacedKey, String> tag : ingredient.getTags().entrySet()) {
+            out.writeUTF(tag.getKey().toString());
+            out.writeUTF(tag.getValue());
+        }
+    }
+
+    /**
+     * @return The ingredient, or null if its material is unknown to this server (or a tag key is invalid)
+     */
+    private static Ingredient readIngredient(DataInputStream in) throws IOException {
+        Material material = Material.getMaterial(in.readUTF());
+        int amount = in.readShort();
+        Integer customModelData = in.readBoolean() ? in.readInt() : null;
+
+        Map<NamespacedKey, String> tags = new LinkedHashMap<>();
+        for (int i = in.readByte(); i > 0; i--) {
+            NamespacedKey key = NamespacedKey.fromString(in.readUTF());
+            String value = in.readUTF();
+            if (key == null) material = null;
+            else tags.put(key, value);
+        }
+        return material != null ? new Ingredient(material, amount, customModelData, tags) : null;
+    }
+
+    /**
+     * @return The definition, or null if it references a material this server does not know
+     */
+    private static RecipeDefinition readDefinition(DataInputStream in) throws IOException {
+        RecipeManager.RecipeType type = RecipeManager.RecipeType.values()[in.readByte()];
+        String name = in.readUTF();
+        String source = in.readUTF();
+        long contentHash = in.readLong();
+        String resultId = in.readUTF();
+        int level = in.readInt();
+        String permission = in.readUTF();
+        boolean shaped = in.readBoolean();
+        boolean valid = true;
+
+        List<String> shape = new ArrayList<>();
+        for (int i = in.readByte(); i > 0; i--) {
+            shape.add(in.readUTF());
+        }
+
+        Map<Character, Ingredient> shapedIngredients = new LinkedHashMap<>();
+        for (int i = in.readByte(); i > 0; i--) {
+            char key = in.readChar();
+            Ingredient ingredient = readIngredient(in);
+            if (ingredient == null) valid = false;
+            else shapedIngredients.put(key, ingredient);
+        }
+
+        List<Ingredient> shapelessIngredients = new ArrayList<>();
+        for (int i = in.readByte(); i > 0; i--) {
+            Ingredient ingredient = readIngredient(in);
+            if (ingredient == null) valid = false;
+            else shapelessIngredients.add(ingredient);
+        }
+
+        List<RecipeDefinition> tiers = new ArrayList<>();
+        for (int i = in.readShort(); i > 0; i--) {
+            RecipeDefinition tier = readDefinition(in);
+            if (tier == null) valid = false;
+            else tiers.add(tier);
+        }
+
+        CraftRateLimiter.Limit rateLimit = in.readBoolean() ? new CraftRateLimiter.Limit(in.readDouble(), in.readInt()) : null;
+
+        if (!valid) return null;
+        return new RecipeDefinition(type, name, source, contentHash, resultId, level, permission,
+                shaped, shape, shapedIngredients, shapelessIngredients, tiers, rateLimit);
+    }
+
+    /**
+     * Cached definition with the fingerprint of the file it was parsed from
+     */
+    private static final class Entry {
+        private final long size;
+        private final long modified;
+        private final RecipeDefinition definition;
+
+        Entry(long size, long modified, RecipeDefinition definition) {
+            this.size = size;
+            this.modified = modified;
+            this.definition = definition;
+        }
+    }
+}
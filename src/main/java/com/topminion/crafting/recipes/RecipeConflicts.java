@@ -0,0 +1,397 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.managers.RecipeManager;
+import org.bukkit.Keyed;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.RecipeChoice;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Finds recipes that shadow each other, each time recipes are loaded
+ *
+ * Every recipe is reduced to a canonical material key: shaped layouts are trimmed to their used
+ * rows and columns and the smaller of the layout and its mirror image is taken, shapeless
+ * ingredients are sorted, all encoded as material ordinals. Recipes are grouped by that key in one
+ * pass, so only recipes with the same key are ever compared and the check stays linear in the
+ * number of recipes. Within a group, recipes with the same amounts and custom requirements are
+ * duplicates (only one of them can be crafted), and recipes with the same custom requirements but
+ * other amounts overlap (a grid with enough items for both crafts the more demanding one).
+ *
+ * Crafting recipes of the server and other plugins are expanded into the material keys they
+ * accept and looked up in the same index.
+ */
+public final class RecipeConflicts {
+
+    // Server recipes accepting more material combinations than this are not checked
+    private static final int MAX_COMBINATIONS = 4096;
+
+    private static final Comparator<Ingredient> SHAPELESS_ORDER = Comparator
+            .comparingInt((Ingredient i) -> i.getMaterial().ordinal())
+            .thenComparing(RecipeConflicts::requirement)
+            .thenComparingInt(Ingredient::getAmount);
+
+    private final Map<RecipeMatcher.Signature, List<Entry>> index = new HashMap<>();
+    private final List<Conflict> conflicts = new ArrayList<>();
+
+    private RecipeConflicts() {
+    }
+
+    /**
+     * Check our recipes against each other and against the server's crafting recipes
+     *
+     * @param recipes Our registered recipes
+     * @param serverRecipes All recipes of the server, e.g. Bukkit.recipeIterator(); ours are skipped
+     * @param namespace Our recipe namespace
+     * @return The conflicts found, most severe first
+     */
+    public static List<Conflict> find(Collection<RecipeManager.RecipeData> recipes, Iterator<Recipe> serverRecipes, String namespace) {
+        RecipeConflicts finder = new RecipeConflicts();
+        for (RecipeManager.RecipeData data : recipes) {
+            finder.add(data);
+        }
+        for (List<Entry> group : finder.index.values()) {
+            if (group.size() > 1) finder.checkGroup(group);
+        }
+
+        while (serverRecipes.hasNext()) {
+            Recipe recipe = serverRecipes.next();
+            if (!(recipe instanceof Keyed) || ((Keyed) recipe).getKey().getNamespace().equals(namespace)) continue;
+            if (recipe instanceof ShapedRecipe) {
+                finder.checkServerShaped((ShapedRecipe) recipe);
+            } else if (recipe instanceof ShapelessRecipe) {
+                finder.checkServerShapeless((ShapelessRecipe) recipe);
+            }
+        }
+
+        finder.conflicts.sort(Comparator.comparing(Conflict::getKind));
+        return finder.conflicts;
+    }
+
+    private void add(RecipeManager.RecipeData data) {
+        RecipeDefinition definition = data.getDefinition();
+        Entry entry;
+        if (definition.isShaped()) {
+            Ingredient[][] grid = new Ingredient[3][3];
+            List<String> shape = definition.getShape();
+            for (int row = 0; row < Math.min(3, shape.size()); row++) {
+                String line = shape.get(row);
+                for (int column = 0; column < Math.min(3, line.length()); column++) {
+                    grid[row][column] = definition.getShapedIngredients().get(line.charAt(column));
+                }
+            }
+
+            int[] bounds = bounds(grid);
+            if (bounds == null) return;
+            List<Ingredient> cells = cells(grid, bounds, false);
+            List<Ingredient> mirrored = cells(grid, bounds, true);
+            int[] key = shapedKey(bounds, materials(cells));
+            int[] mirroredKey = shapedKey(bounds, materials(mirrored));
+            entry = Arrays.compare(mirroredKey, key) < 0
+                    ? new Entry(data, mirroredKey, mirrored)
+                    : new Entry(data, key, cells);
+        } else {
+            List<Ingredient> sorted = new ArrayList<>(definition.getShapelessIngredients());
+            if (sorted.isEmpty()) return;
+            sorted.sort(SHAPELESS_ORDER);
+            entry = new Entry(data, shapelessKey(materials(sorted)), sorted);
+        }
+        index.computeIfAbsent(new RecipeMatcher.Signature(entry.key), k -> new ArrayList<>(1)).add(entry);
+    }
+
+    /**
+     * Find duplicates and overlaps among our recipes with the same material key
+     */
+    private void checkGroup(List<Entry> group) {
+        Map<List<Ingredient>, Entry> exact = new HashMap<>();
+        Map<List<String>, Entry> requirements = new HashMap<>();
+        for (Entry entry : group) {
+            Entry same = exact.putIfAbsent(entry.ingredients, entry);
+            if (same != null) {
+                conflicts.add(new Conflict(Kind.DUPLICATE, describe(entry) + " has exactly the same ingredients as "
+                        + describe(same) + ", only one of them can be crafted"));
+                continue;
+            }
+
+            List<String> requirement = new ArrayList<>(entry.ingredients.size());
+            for (Ingredient ingredient : entry.ingredients) {
+                requirement.add(ingredient != null ? requirement(ingredient) : "");
+            }
+            Entry overlapping = requirements.putIfAbsent(requirement, entry);
+            if (overlapping != null) {
+                conflicts.add(new Conflict(Kind.OVERLAP, describe(entry) + " has the same ingredients as "
+                        + describe(overlapping) + " with other amounts, a grid with enough items for both crafts the more demanding one"));
+            }
+        }
+    }
+
+    private void checkServerShaped(ShapedRecipe recipe) {
+        String[] shape = recipe.getShape();
+        Map<Character, RecipeChoice> choices = recipe.getChoiceMap();
+        if (shape == null || choices == null) return;
+
+        Character[][] grid = new Character[3][3];
+        List<Character> keys = new ArrayList<>();
+        List<List<Material>> options = new ArrayList<>();
+        for (int row = 0; row < Math.min(3, shape.length); row++) {
+            for (int column = 0; column < Math.min(3, shape[row].length()); column++) {
+                char key = shape[row].charAt(column);
+                List<Material> materials = materials(choices.get(key));
+                if (materials.isEmpty()) continue;
+                grid[row][column] = key;
+                if (!keys.contains(key)) {
+                    keys.add(key);
+                    options.add(materials);
+                }
+            }
+        }
+
+        int[] bounds = bounds(grid);
+        if (bounds == null) return;
+        List<Character> cells = cells(grid, bounds, false);
+        List<Character> mirrored = cells(grid, bounds, true);
+
+        Set<Entry> reported = new HashSet<>();
+        forEachCombination(options, combination -> {
+            Map<Character, Material> picked = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                picked.put(keys.get(i), combination[i]);
+            }
+            int[] key = shapedKey(bounds, pick(cells, picked));
+            int[] mirroredKey = shapedKey(bounds, pick(mirrored, picked));
+            reportServer(recipe, Arrays.compare(mirroredKey, key) < 0 ? mirroredKey : key, reported);
+        });
+    }
+
+    private void checkServerShapeless(ShapelessRecipe recipe) {
+        List<RecipeChoice> choices = recipe.getChoiceList();
+        if (choices == null || choices.isEmpty()) return;
+
+        List<List<Material>> options = new ArrayList<>();
+        for (RecipeChoice choice : choices) {
+            List<Material> materials = materials(choice);
+            if (materials.isEmpty()) return;
+            options.add(materials);
+        }
+
+        Set<Entry> reported = new HashSet<>();
+        forEachCombination(options, combination -> {
+            Material[] sorted = combination.clone();
+            Arrays.sort(sorted);
+            reportServer(recipe, shapelessKey(Arrays.asList(sorted)), reported);
+        });
+    }
+
+    private void reportServer(Recipe recipe, int[] key, Set<Entry> reported) {
+        List<Entry> group = index.get(new RecipeMatcher.Signature(key));
+        if (group == null) return;
+
+        for (Entry entry : group) {
+            if (!reported.add(entry)) continue;
+            conflicts.add(new Conflict(Kind.SERVER, describe(entry) + " uses the same items as the recipe "
+                    + ((Keyed) recipe).getKey() + ", which one is crafted is up to the server"));
+        }
+    }
+
+    /**
+     * Call an action with every combination of one material per option list, in a reused array
+     * Nothing is called if there are more than {@link #MAX_COMBINATIONS}.
+     */
+    private static void forEachCombination(List<List<Material>> options, Consumer<Material[]> action) {
+        long total = 1;
+        for (List<Material> option : options) {
+            total *= option.size();
+            if (total > MAX_COMBINATIONS) return;
+        }
+
+        int[] positions = new int[options.size()];
+        Material[] combination = new Material[options.size()];
+        for (long n = 0; n < total; n++) {
+            for (int i = 0; i < positions.length; i++) {
+                combination[i] = options.get(i).get(positions[i]);
+            }
+            action.accept(combination);
+
+            // Advance like an odometer
+            for (int i = 0; i < positions.length; i++) {
+                if (++positions[i] < options.get(i).size()) break;
+                positions[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * @return The used rows and columns of a 3x3 grid as {minRow, maxRow, minColumn, maxColumn}, or null if it is empty
+     */
+    private static int[] bounds(Object[][] grid) {
+        int minRow = 3, maxRow = -1, minColumn = 3, maxColumn = -1;
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                if (grid[row][column] == null) continue;
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+                minColumn = Math.min(minColumn, column);
+                maxColumn = Math.max(maxColumn, column);
+            }
+        }
+        return maxRow < 0 ? null : new int[]{minRow, maxRow, minColumn, maxColumn};
+    }
+
+    /**
+     * @return The cells within the bounds row by row, read right to left if mirrored
+     */
+    private static <T> List<T> cells(T[][] grid, int[] bounds, boolean mirror) {
+        List<T> cells = new ArrayList<>(9);
+        for (int row = bounds[0]; row <= bounds[1]; row++) {
+            for (int column = bounds[2]; column <= bounds[3]; column++) {
+                cells.add(grid[row][mirror ? bounds[3] - (column - bounds[2]) : column]);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * @return Width, height and material ordinal + 1 per cell (0 for empty cells)
+     */
+    private static int[] shapedKey(int[] bounds, List<Material> cells) {
+        int[] key = new int[2 + cells.size()];
+        key[0] = bounds[3] - bounds[2] + 1;
+        key[1] = bounds[1] - bounds[0] + 1;
+        for (int i = 0; i < cells.size(); i++) {
+            key[2 + i] = cells.get(i) != null ? cells.get(i).ordinal() + 1 : 0;
+        }
+        return key;
+    }
+
+    /**
+     * @return -1 (so it never equals a shaped key) followed by the sorted material ordinals + 1
+     */
+    private static int[] shapelessKey(List<Material> sorted) {
+        int[] key = new int[1 + sorted.size()];
+        key[0] = -1;
+        for (int i = 0; i < sorted.size(); i++) {
+            key[1 + i] = sorted.get(i).ordinal() + 1;
+        }
+        return key;
+    }
+
+    private static List<Material> materials(List<Ingredient> ingredients) {
+        List<Material> materials = new ArrayList<>(ingredients.size());
+        for (Ingredient ingredient : ingredients) {
+            materials.add(ingredient != null ? ingredient.getMaterial() : null);
+        }
+        return materials;
+    }
+
+    private static List<Material> pick(List<Character> cells, Map<Character, Material> picked) {
+        List<Material> materials = new ArrayList<>(cells.size());
+        for (Character cell : cells) {
+            materials.add(cell != null ? picked.get(cell) : null);
+        }
+        return materials;
+    }
+
+    /**
+     * @return The materials a recipe choice accepts, empty for an empty slot
+     */
+    private static List<Material> materials(RecipeChoice choice) {
+        if (choice instanceof RecipeChoice.MaterialChoice) {
+            List<Material> materials = ((RecipeChoice.MaterialChoice) choice).getChoices();
+            return materials != null ? materials : Collections.emptyList();
+        }
+        if (choice instanceof RecipeChoice.ExactChoice) {
+            List<Material> materials = new ArrayList<>();
+            for (ItemStack item : ((RecipeChoice.ExactChoice) choice).getChoices()) {
+                if (!materials.contains(item.getType())) materials.add(item.getType());
+            }
+            return materials;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Describe what a custom ingredient requires besides its material
+     * Tags are sorted by key, so the order they are listed in the recipe file does not matter.
+     *
+     * @return The custom model data and tags of an ingredient as text, empty if it has none
+     */
+    private static String requirement(Ingredient ingredient) {
+        if (!ingredient.isCustom()) return "";
+
+        Map<String, String> tags = new TreeMap<>();
+        for (Map.Entry<NamespacedKey, String> tag : ingredient.getTags().entrySet()) {
+            tags.put(tag.getKey().toString(), tag.getValue());
+        }
+        return ingredient.getCustomModelData() + " " + tags;
+    }
+
+    private static String describe(Entry entry) {
+        RecipeDefinition definition = entry.recipe.getDefinition();
+        return entry.recipe.getKey().getKey() + " (" + definition.getSource() + ")";
+    }
+
+    /**
+     * How serious a conflict is
+     */
+    public enum Kind {
+        /** Two of our recipes that cannot be told apart */
+        DUPLICATE,
+        /** One of our recipes and a server or plugin recipe that both match the same grid */
+        SERVER,
+        /** Two of our recipes that only differ in amounts */
+        OVERLAP
+    }
+
+    /**
+     * A conflict with a message naming the recipe files involved
+     */
+    public static final class Conflict {
+        private final Kind kind;
+        private final String message;
+
+        Conflict(Kind kind, String message) {
+            this.kind = kind;
+            this.message = message;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * One of our recipes with its canonical key and its ingredients in key order
+     */
+    private static final class Entry {
+        private final RecipeManager.RecipeData recipe;
+        private final int[] key;
+        private final List<Ingredient> ingredients;
+
+        Entry(RecipeManager.RecipeData recipe, int[] key, List<Ingredient> ingredients) {
+            this.recipe = recipe;
+            this.key = key;
+            this.ingredients = ingredients;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.managers.CraftRateLimiter;
+import com.topminion.crafting.managers.RecipeManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, parsed and validated contents of one recipe file
+ * Created off the main thread by {@link RecipeParser}; nothing in here touches the server.
+ *
+ * A minion file with tiers has no ingredients of its own; it holds one definition per tier,
+ * each registered as a separate recipe.
+ */
+public final class RecipeDefinition {
+
+    private final RecipeManager.RecipeType type;
+    private final String name;
+    private final String source;
+    private final long contentHash;
+    private final String resultId;
+    private final int level;
+    private final String permission;
+    private final boolean shaped;
+    private final List<String> shape;
+    private final Map<Character, Ingredient> shapedIngredients;
+    private final List<Ingredient> shapelessIngredients;
+    private final boolean amounts;
+    private final List<RecipeDefinition> tiers;
+    private final CraftRateLimiter.Limit rateLimit;
+
+    public RecipeDefinition(RecipeManager.RecipeType type, String name, String source, long contentHash, String resultId, int level,
+                            String permission, boolean shaped, List<String> shape,
+                            Map<Character, Ingredient> shapedIngredients, List<Ingredient> shapelessIngredients) {
+        this(type, name, source, contentHash, resultId, level, permission, shaped, shape, shapedIngredients, shapelessIngredients,
+                Collections.emptyList());
+    }
+
+    public RecipeDefinition(RecipeManager.RecipeType type, String name, String source, long contentHash, String resultId, int level,
+                            String permission, boolean shaped, List<String> shape,
+                            Map<Character, Ingredient> shapedIngredients, List<Ingredient> shapelessIngredients,
+                            List<RecipeDefinition> tiers) {
+        this(type, name, source, contentHash, resultId, level, permission, shaped, shape, shapedIngredients, shapelessIngredients,
+                tiers, null);
+    }
+
+    public RecipeDefinition(RecipeManager.RecipeType type, String name, String source, long contentHash, String resultId, int level,
+                            String permission, boolean shaped, List<String> shape,
+                            Map<Character, Ingredient> shapedIngredients, List<Ingredient> shapelessIngredients,
+                            List<RecipeDefinition> tiers, CraftRateLimiter.Limit rateLimit) {
+        this.type = type;
+        this.name = name;
+        this.source = source;
+        this.contentHash = contentHash;
+        this.resultId = resultId;
+        this.level = level;
+        this.permission = permission;
+        this.shaped = shaped;
+        this.shape = List.copyOf(shape);
+        this.shapedIngredients = Collections.unmodifiableMap(new LinkedHashMap<>(shapedIngredients));
+        this.shapelessIngredients = List.copyOf(shapelessIngredients);
+
+        boolean anyAmount = false;
+        for (Ingredient ingredient : shaped ? this.shapedIngredients.values() : this.shapelessIngredients) {
+            anyAmount |= ingredient.getAmount() > 1;
+        }
+        this.amounts = anyAmount;
+        this.tiers = List.copyOf(tiers);
+        this.rateLimit = rateLimit;
+    }
+
+    public RecipeManager.RecipeType getType() {
+        return type;
+    }
+
+    /**
+     * @return The recipe name, which is the file name without extension (plus /level for a tier)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The file the recipe was loaded from, for log messages
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Hash of the raw file contents, used to skip unchanged files on reload
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @return The minion_id or upgrade_id
+     */
+    public String getResultId() {
+        return resultId;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    public boolean isShaped() {
+        return shaped;
+    }
+
+    public List<String> getShape() {
+        return shape;
+    }
+
+    public Map<Character, Ingredient> getShapedIngredients() {
+        return shapedIngredients;
+    }
+
+    public List<Ingredient> getShapelessIngredients() {
+        return shapelessIngredients;
+    }
+
+    /**
+     * @return true if any slot needs more than one item, which vanilla crafting cannot consume
+     */
+    public boolean hasAmounts() {
+        return amounts;
+    }
+
+    /**
+     * @return The recipe's own craft rate limit, or null to use the default from the settings
+     */
+    public CraftRateLimiter.Limit getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * @return The tier-up recipes of a tiered minion file, ordered as in the file; empty for other recipes
+     */
+    public List<RecipeDefinition> getTiers() {
+        return tiers;
+    }
+
+    public boolean isTiered() {
+        return !tiers.isEmpty();
+    }
+
+    /**
+     * @return The recipes to register for this file: its tiers, or the definition itself
+     */
+    public List<RecipeDefinition> getRecipes() {
+        return tiers.isEmpty() ? List.of(this) : tiers;
+    }
+}
@@ -0,0 +1,561 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Plugin-side recipe matching by ingredient signature
+ *
+ * Every recipe is indexed once by the materials of its grid. Shaped recipes are indexed by their
+ * layout trimmed to the used rows and columns, and by its mirror image, so they match anywhere in
+ * the grid like vanilla recipes. Shapeless recipes are indexed by their sorted materials.
+ * Matching a crafting grid builds the same signature, which costs one hash lookup per recipe
+ * kind however many recipes there are. Amounts are not part of the signature; they are checked
+ * on the few recipes that share one, most demanding first. Custom ingredients (custom model data,
+ * tags) are checked last, so item meta is only looked at once the materials already match.
+ *
+ * Minion tier-ups of the same minion under one signature are grouped into a single candidate with
+ * an array indexed by the level of the minion in the grid, so the right tier is found in one step.
+ */
+public final class RecipeMatcher {
+
+    // Packs a shapeless grid slot into a long that sorts by material, then by amount descending
+    private static final int SLOT_BITS = 8;
+    private static final int AMOUNT_BITS = 12;
+    private static final int MAX_AMOUNT = (1 << AMOUNT_BITS) - 1;
+
+    private final Map<Signature, Candidate[]> shaped;
+    private final Map<Signature, Candidate[]> shapeless;
+    private final Set<NamespacedKey> tagKeys;
+
+    public RecipeMatcher(Collection<RecipeManager.RecipeData> recipes) {
+        Map<Signature, List<Candidate>> shapedLists = new HashMap<>();
+        Map<Signature, List<Candidate>> shapelessLists = new HashMap<>();
+        Set<NamespacedKey> keys = new HashSet<>();
+
+        for (RecipeManager.RecipeData data : recipes) {
+            RecipeDefinition definition = data.getDefinition();
+            for (Ingredient ingredient : definition.isShaped()
+                    ? definition.getShapedIngredients().values() : definition.getShapelessIngredients()) {
+                keys.addAll(ingredient.getTags().keySet());
+            }
+
+            if (definition.isShaped()) {
+                Ingredient[][] grid = toGrid(definition);
+                addShaped(shapedLists, data, grid);
+                Ingredient[][] mirrored = mirror(grid);
+                if (!Arrays.deepEquals(grid, mirrored)) {
+                    addShaped(shapedLists, data, mirrored);
+                }
+            } else {
+                addShapeless(shapelessLists, data, definition.getShapelessIngredients());
+            }
+        }
+
+        this.shaped = toArrays(shapedLists);
+        this.shapeless = toArrays(shapelessLists);
+        this.tagKeys = Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Find the recipe a crafting grid matches, with enough items in every slot
+     *
+     * @param matrix The crafting matrix (2x2 or 3x3)
+     * @return The match, or null if no recipe matches
+     */
+    public Match match(ItemStack[] matrix) {
+        return match(matrix, null);
+    }
+
+    /**
+     * Find the recipe a crafting grid matches, reusing the fingerprints of unchanged slots
+     *
+     * @param matrix The crafting matrix (2x2 or 3x3)
+     * @param fingerprints The fingerprint cache of this grid, or null to read item meta as needed
+     * @return The match, or null if no recipe matches
+     */
+    public Match match(ItemStack[] matrix, ItemFingerprint.Cache fingerprints) {
+        int size = matrix.length == 4 ? 2 : 3;
+        if (matrix.length != size * size) return null;
+
+        int minRow = size, maxRow = -1, minColumn = size, maxColumn = -1, filled = 0;
+        for (int i = 0; i < matrix.length; i++) {
+            if (isEmpty(matrix[i])) continue;
+            int row = i / size, column = i % size;
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+            filled++;
+        }
+        if (filled == 0) return null;
+
+        Slots slots = new Slots(matrix, fingerprints);
+        Match match = shaped.isEmpty() ? null : matchShaped(slots, size, minRow, maxRow, minColumn, maxColumn);
+        if (match == null && !shapeless.isEmpty()) {
+            match = matchShapeless(slots, filled);
+        }
+        return match;
+    }
+
+    /**
+     * @return The tag keys used by any ingredient, i.e. the tags a fingerprint has to read
+     */
+    public Set<NamespacedKey> getTagKeys() {
+        return tagKeys;
+    }
+
+    private Match matchShaped(Slots slots, int size, int minRow, int maxRow, int minColumn, int maxColumn) {
+        ItemStack[] matrix = slots.matrix;
+        int width = maxColumn - minColumn + 1;
+        int height = maxRow - minRow + 1;
+
+        int[] key = new int[2 + width * height];
+        key[0] = width;
+        key[1] = height;
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                ItemStack item = matrix[(minRow + row) * size + minColumn + column];
+                key[2 + row * width + column] = isEmpty(item) ? 0 : item.getType().ordinal() + 1;
+            }
+        }
+
+        Candidate[] candidates = shaped.get(new Signature(key));
+        if (candidates == null) return null;
+
+        for (Candidate entry : candidates) {
+            Candidate candidate = entry;
+            if (entry.byLevel != null) {
+                int position = entry.tierPosition;
+                int slot = (minRow + position / width) * size + minColumn + position % width;
+                candidate = entry.forLevel(slots.minionLevel(slot, entry.tierMinion));
+                if (candidate == null) continue;
+            }
+
+            int[] slotAmounts = new int[matrix.length];
+            boolean enough = true;
+            for (int row = 0; row < height && enough; row++) {
+                for (int column = 0; column < width; column++) {
+                    int required = candidate.amounts[row * width + column];
+                    if (required == 0) continue;
+
+                    int slot = (minRow + row) * size + minColumn + column;
+                    Ingredient ingredient = candidate.ingredients[row * width + column];
+                    if (matrix[slot].getAmount() < required
+                            || (ingredient.isCustom() && !ingredient.matches(slots.fingerprint(slot)))) {
+                        enough = false;
+                        break;
+                    }
+                    slotAmounts[slot] = required;
+                }
+            }
+            if (enough) return new Match(candidate.recipe, slotAmounts);
+        }
+        return null;
+    }
+
+    private Match matchShapeless(Slots grid, int filled) {
+        ItemStack[] matrix = grid.matrix;
+        long[] slots = new long[filled];
+        int index = 0;
+        for (int i = 0; i < matrix.length; i++) {
+            ItemStack item = matrix[i];
+            if (isEmpty(item)) continue;
+            slots[index++] = pack(item.getType().ordinal(), item.getAmount(), i);
+        }
+        Arrays.sort(slots);
+
+        int[] key = new int[filled];
+        for (int i = 0; i < filled; i++) {
+            key[i] = (int) (slots[i] >>> (SLOT_BITS + AMOUNT_BITS));
+        }
+
+        Candidate[] candidates = shapeless.get(new Signature(key));
+        if (candidates == null) return null;
+
+        // Both sides are sorted by material and amount descending, so pairing them in order is
+        // the best assignment of grid stacks to ingredients
+        for (Candidate entry : candidates) {
+            Candidate candidate = entry;
+            if (entry.byLevel != null) {
+                candidate = null;
+                for (long packed : slots) {
+                    if ((int) (packed >>> (SLOT_BITS + AMOUNT_BITS)) != entry.tierOrdinal) continue;
+                    int level = grid.minionLevel((int) (packed & ((1 << SLOT_BITS) - 1)), entry.tierMinion);
+                    if (level >= 0) {
+                        candidate = entry.forLevel(level);
+                        break;
+                    }
+                }
+                if (candidate == null) continue;
+            }
+
+            if (candidate.custom) {
+                // Which stack goes to which ingredient depends on the item meta as well
+                int[] slotAmounts = new int[matrix.length];
+                if (assign(candidate, grid, slots, 0, 0, slotAmounts)) {
+                    return new Match(candidate.recipe, slotAmounts);
+                }
+                continue;
+            }
+
+            int[] slotAmounts = new int[matrix.length];
+            boolean enough = true;
+            for (int i = 0; i < filled; i++) {
+                int amount = MAX_AMOUNT - (int) ((slots[i] >>> SLOT_BITS) & MAX_AMOUNT);
+                if (amount < candidate.amounts[i]) {
+                    enough = false;
+                    break;
+                }
+                slotAmounts[(int) (slots[i] & ((1 << SLOT_BITS) - 1))] = candidate.amounts[i];
+            }
+            if (enough) return new Match(candidate.recipe, slotAmounts);
+        }
+        return null;
+    }
+
+    /**
+     * Assign grid stacks to the ingredients of a shapeless candidate with custom ingredients
+     * Stacks can only go to ingredients of the same material, which sit at the same sorted positions.
+     *
+     * @param position The ingredient to assign next
+     * @param used Bit mask of the stacks already assigned
+     * @return true if every ingredient got a stack
+     */
+    private static boolean assign(Candidate candidate, Slots grid, long[] slots, int position, int used, int[] slotAmounts) {
+        if (position == slots.length) return true;
+
+        int ordinal = (int) (slots[position] >>> (SLOT_BITS + AMOUNT_BITS));
+        Ingredient ingredient = candidate.ingredients[position];
+        for (int i = 0; i < slots.length; i++) {
+            if ((used & (1 << i)) != 0 || (int) (slots[i] >>> (SLOT_BITS + AMOUNT_BITS)) != ordinal) continue;
+
+            int slot = (int) (slots[i] & ((1 << SLOT_BITS) - 1));
+            if (grid.matrix[slot].getAmount() < ingredient.getAmount()) continue;
+            if (ingredient.isCustom() && !ingredient.matches(grid.fingerprint(slot))) continue;
+
+            slotAmounts[slot] = ingredient.getAmount();
+            if (assign(candidate, grid, slots, position + 1, used | (1 << i), slotAmounts)) return true;
+            slotAmounts[slot] = 0;
+        }
+        return false;
+    }
+
+    private static void addShaped(Map<Signature, List<Candidate>> index, RecipeManager.RecipeData data, Ingredient[][] grid) {
+        // Trim empty rows and columns
+        int minRow = 3, maxRow = -1, minColumn = 3, maxColumn = -1;
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                if (grid[row][column] == null) continue;
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+                minColumn = Math.min(minColumn, column);
+                maxColumn = Math.max(maxColumn, column);
+            }
+        }
+        if (maxRow < 0) return;
+
+        int width = maxColumn - minColumn + 1;
+        int height = maxRow - minRow + 1;
+        int[] key = new int[2 + width * height];
+        int[] amounts = new int[width * height];
+        Ingredient[] ingredients = new Ingredient[width * height];
+        key[0] = width;
+        key[1] = height;
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                Ingredient ingredient = grid[minRow + row][minColumn + column];
+                if (ingredient == null) continue;
+                key[2 + row * width + column] = ingredient.getMaterial().ordinal() + 1;
+                amounts[row * width + column] = ingredient.getAmount();
+                ingredients[row * width + column] = ingredient;
+            }
+        }
+        index.computeIfAbsent(new Signature(key), k -> new ArrayList<>()).add(new Candidate(data, amounts, ingredients, true));
+    }
+
+    private static void addShapeless(Map<Signature, List<Candidate>> index, RecipeManager.RecipeData data, List<Ingredient> ingredients) {
+        if (ingredients.isEmpty()) return;
+
+        long[] packed = new long[ingredients.size()];
+        for (int i = 0; i < packed.length; i++) {
+            Ingredient ingredient = ingredients.get(i);
+            packed[i] = pack(ingredient.getMaterial().ordinal(), ingredient.getAmount(), i);
+        }
+        Arrays.sort(packed);
+
+        int[] key = new int[packed.length];
+        int[] amounts = new int[packed.length];
+        Ingredient[] sorted = new Ingredient[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            key[i] = (int) (packed[i] >>> (SLOT_BITS + AMOUNT_BITS));
+            amounts[i] = MAX_AMOUNT - (int) ((packed[i] >>> SLOT_BITS) & MAX_AMOUNT);
+            sorted[i] = ingredients.get((int) (packed[i] & ((1 << SLOT_BITS) - 1)));
+        }
+        index.computeIfAbsent(new Signature(key), k -> new ArrayList<>()).add(new Candidate(data, amounts, sorted, false));
+    }
+
+    private static Map<Signature, Candidate[]> toArrays(Map<Signature, List<Candidate>> lists) {
+        Map<Signature, Candidate[]> arrays = new HashMap<>(Math.max(16, lists.size() * 2));
+        for (Map.Entry<Signature, List<Candidate>> entry : lists.entrySet()) {
+            List<Candidate> candidates = groupTiers(entry.getValue());
+            // Custom ingredients and then the most demanding first, so a more specific recipe is
+            // not hidden by a cheaper one with the same materials
+            candidates.sort(Comparator.comparing((Candidate c) -> !c.custom)
+                    .thenComparingInt(c -> -c.total)
+                    .thenComparing(c -> c.recipe.getKey().toString()));
+            arrays.put(entry.getKey(), candidates.toArray(new Candidate[0]));
+        }
+        return arrays;
+    }
+
+    /**
+     * Replace the tier-ups of each minion by one candidate indexed by the level they upgrade from
+     * Tiers that upgrade from the same level stay separate candidates.
+     */
+    private static List<Candidate> groupTiers(List<Candidate> candidates) {
+        Map<String, Map<Integer, Candidate>> groups = new HashMap<>();
+        List<Candidate> result = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.tierMinion == null) {
+                result.add(candidate);
+                continue;
+            }
+            // Shaped tiers share the minion's position, shapeless tiers the minion's material
+            String group = candidate.tierMinion + (candidate.tierPosition >= 0 ? "@" + candidate.tierPosition : "#" + candidate.tierOrdinal);
+            Candidate previous = groups.computeIfAbsent(group, k -> new HashMap<>()).putIfAbsent(candidate.tierFrom, candidate);
+            if (previous != null) {
+                result.add(candidate);
+            }
+        }
+
+        for (Map<Integer, Candidate> tiers : groups.values()) {
+            if (tiers.size() == 1) {
+                result.addAll(tiers.values());
+                continue;
+            }
+            int maxLevel = tiers.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            Candidate[] byLevel = new Candidate[maxLevel + 1];
+            for (Map.Entry<Integer, Candidate> tier : tiers.entrySet()) {
+                byLevel[tier.getKey()] = tier.getValue();
+            }
+            result.add(new Candidate(byLevel, tiers.values().iterator().next()));
+        }
+        return result;
+    }
+
+    /**
+     * Lay out a shaped recipe on a 3x3 grid of ingredients (null for empty slots)
+     */
+    private static Ingredient[][] toGrid(RecipeDefinition definition) {
+        Ingredient[][] grid = new Ingredient[3][3];
+        List<String> shape = definition.getShape();
+        for (int row = 0; row < Math.min(3, shape.size()); row++) {
+            String line = shape.get(row);
+            for (int column = 0; column < Math.min(3, line.length()); column++) {
+                grid[row][column] = definition.getShapedIngredients().get(line.charAt(column));
+            }
+        }
+        return grid;
+    }
+
+    private static Ingredient[][] mirror(Ingredient[][] grid) {
+        Ingredient[][] mirrored = new Ingredient[3][3];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                mirrored[row][2 - column] = grid[row][column];
+            }
+        }
+        return mirrored;
+    }
+
+    private static long pack(int ordinal, int amount, int slot) {
+        return ((long) ordinal << (SLOT_BITS + AMOUNT_BITS))
+                | ((long) (MAX_AMOUNT - Math.min(amount, MAX_AMOUNT)) << SLOT_BITS)
+                | slot;
+    }
+
+    private static boolean isEmpty(ItemStack item) {
+        return item == null || item.getType().isAir();
+    }
+
+    /**
+     * A recipe matched against a crafting grid
+     */
+    public static final class Match {
+        private final RecipeManager.RecipeData recipe;
+        private final int[] slotAmounts;
+
+        Match(RecipeManager.RecipeData recipe, int[] slotAmounts) {
+            this.recipe = recipe;
+            this.slotAmounts = slotAmounts;
+        }
+
+        public RecipeManager.RecipeData getRecipe() {
+            return recipe;
+        }
+
+        /**
+         * @return The number of items one craft takes from each grid slot (0 for slots the recipe does not use)
+         */
+        public int[] getSlotAmounts() {
+            return slotAmounts;
+        }
+    }
+
+    /**
+     * A recipe indexed under a signature, with the ingredient and amount per signature position
+     * A tier group has no recipe of its own; it picks one of its tiers by the minion level in the grid.
+     */
+    private static final class Candidate {
+        private final RecipeManager.RecipeData recipe;
+        private final int[] amounts;
+        private final Ingredient[] ingredients;
+        private final int total;
+        private final boolean custom;
+
+        // Tier-up from the minion at a position (shaped) or of a material (shapeless), or null
+        private final String tierMinion;
+        private final int tierFrom;
+        private final int tierPosition;
+        private final int tierOrdinal;
+        private final Candidate[] byLevel;
+
+        Candidate(RecipeManager.RecipeData recipe, int[] amounts, Ingredient[] ingredients, boolean shaped) {
+            this.recipe = recipe;
+            this.amounts = amounts;
+            this.ingredients = ingredients;
+            this.total = Arrays.stream(amounts).sum();
+            this.custom = Arrays.stream(ingredients).anyMatch(i -> i != null && i.isCustom());
+            this.byLevel = null;
+
+            // Find the minion of the level below the result, if this is a tier-up recipe
+            String minion = null;
+            int from = -1, position = -1, ordinal = -1;
+            if (recipe instanceof RecipeManager.MinionRecipeData) {
+                RecipeManager.MinionRecipeData data = (RecipeManager.MinionRecipeData) recipe;
+                String level = String.valueOf(data.getLevel() - 1);
+                for (int i = 0; i < ingredients.length; i++) {
+                    Ingredient ingredient = ingredients[i];
+                    if (ingredient == null || !data.getMinionId().equals(ingredient.getTags().get(ItemTags.MINION_ID))
+                            || !level.equals(ingredient.getTags().get(ItemTags.MINION_LEVEL))) continue;
+                    minion = data.getMinionId();
+                    from = data.getLevel() - 1;
+                    position = shaped ? i : -1;
+                    ordinal = ingredient.getMaterial().ordinal();
+                    break;
+                }
+            }
+            this.tierMinion = minion;
+            this.tierFrom = from;
+            this.tierPosition = position;
+            this.tierOrdinal = ordinal;
+        }
+
+        /**
+         * Create a tier group
+         *
+         * @param byLevel The tiers, indexed by the level they upgrade from
+         * @param sample Any of the tiers
+         */
+        Candidate(Candidate[] byLevel, Candidate sample) {
+            this.recipe = sample.recipe;
+            this.amounts = sample.amounts;
+            this.ingredients = sample.ingredients;
+            this.total = Arrays.stream(byLevel).filter(Objects::nonNull).mapToInt(c -> c.total).max().orElse(0);
+            this.custom = true;
+            this.tierMinion = sample.tierMinion;
+            this.tierFrom = -1;
+            this.tierPosition = sample.tierPosition;
+            this.tierOrdinal = sample.tierOrdinal;
+            this.byLevel = byLevel;
+        }
+
+        /**
+         * @return The tier that upgrades from a level, or null
+         */
+        Candidate forLevel(int level) {
+            return level >= 0 && level < byLevel.length ? byLevel[level] : null;
+        }
+    }
+
+    /**
+     * The grid being matched, with each slot's fingerprint read at most once
+     */
+    private final class Slots {
+        private final ItemStack[] matrix;
+        private final ItemFingerprint.Cache cache;
+        private ItemFingerprint[] fingerprints;
+
+        Slots(ItemStack[] matrix, ItemFingerprint.Cache cache) {
+            this.matrix = matrix;
+            this.cache = cache;
+        }
+
+        /**
+         * @return The level of the minion in a slot, or -1 if it is not a crafted minion of that ID
+         */
+        int minionLevel(int slot, String minionId) {
+            ItemFingerprint fingerprint = fingerprint(slot);
+            if (!minionId.equals(fingerprint.getTag(ItemTags.MINION_ID))) return -1;
+            try {
+                return Integer.parseInt(fingerprint.getTag(ItemTags.MINION_LEVEL));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        ItemFingerprint fingerprint(int slot) {
+            if (fingerprints == null) {
+                fingerprints = new ItemFingerprint[matrix.length];
+            }
+            if (fingerprints[slot] == null) {
+                fingerprints[slot] = cache != null
+                        ? cache.get(slot, matrix[slot], tagKeys)
+                        : ItemFingerprint.of(matrix[slot], tagKeys);
+            }
+            return fingerprints[slot];
+        }
+    }
+
+    /**
+     * Material layout of a grid: width, height and material ordinal + 1 per cell for shaped recipes,
+     * sorted material ordinals for shapeless recipes
+     * Also used by {@link RecipeConflicts} as the key of its canonical recipe layouts.
+     */
+    static final class Signature {
+        private final int[] values;
+        private final int hash;
+
+        Signature(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Signature)) return false;
+            return Arrays.equals(values, ((Signature) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
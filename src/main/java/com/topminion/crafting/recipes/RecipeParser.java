@@ -0,0 +1,391 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.managers.CraftRateLimiter;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses and validates recipe files into {@link RecipeDefinition}s
+ * Safe to call from worker threads: it only reads the file and logs problems.
+ */
+public class RecipeParser {
+
+    private final TopMinionCrafting plugin;
+    // Whether the last parse on this thread logged a warning, see hadWarnings()
+    private final ThreadLocal<Boolean> warned = ThreadLocal.withInitial(() -> false);
+
+    public RecipeParser(TopMinionCrafting plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Parse a single recipe file
+     *
+     * @param type Whether the file is a minion or upgrade recipe
+     * @param recipeFile The .yml file
+     * @return The parsed recipe, or null if it is disabled or invalid
+     */
+    public RecipeDefinition parse(RecipeManager.RecipeType type, File recipeFile) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(recipeFile.toPath());
+        } catch (Exception e) {
+            plugin.getLogger().severe("Error loading " + type.getLabel() + " recipe from file: " + recipeFile.getName());
+            e.printStackTrace();
+            return null;
+        }
+        return parse(type, recipeFile, content);
+    }
+
+    /**
+     * @return true if the last parse on the calling thread logged a warning, e.g. for an ingredient it
+     * dropped; such a definition is not cached, so the warning is logged again on the next load
+     */
+    public boolean hadWarnings() {
+        return warned.get();
+    }
+
+    private void warn(String message) {
+        warned.set(true);
+        plugin.getLogger().warning(message);
+    }
+
+    /**
+     * Parse the contents of a recipe file that were already read, e.g. from the recipe archive
+     *
+     * @param recipeFile The file (or archive entry) the contents came from, for the name and log messages
+     * @param content The raw file contents
+     * @return The parsed recipe, or null if it is disabled or invalid
+     */
+    public RecipeDefinition parse(RecipeManager.RecipeType type, File recipeFile, byte[] content) {
+        warned.set(false);
+        String label = type.getLabel();
+        try {
+            String fileName = recipeFile.getName().replace(".yml", "");
+            YamlConfiguration config = new YamlConfiguration();
+            config.loadFromString(new String(content, StandardCharsets.UTF_8));
+
+            if (!config.getBoolean("enabled", true)) {
+                plugin.debug(() -> "Skipping disabled " + label + " recipe: " + fileName);
+                return null;
+            }
+
+            String resultId = config.getString(type.getIdField());
+            int level = config.getInt("minion_level", 1);
+            String recipeType = config.getString("recipe_type", "SHAPED");
+            String permission = config.getString("permission", type.getDefaultPermission());
+
+            if (resultId == null) {
+                warn(capitalize(label) + " recipe " + fileName + " is missing " + type.getIdField() + "!");
+                return null;
+            }
+
+            boolean shaped = recipeType.equalsIgnoreCase("SHAPED");
+            if (!shaped && !recipeType.equalsIgnoreCase("SHAPELESS")) {
+                warn("Unknown recipe_type in " + label + " recipe " + fileName + ": " + recipeType);
+                return null;
+            }
+
+            CraftRateLimiter.Limit rateLimit = parseRateLimit(config, null, label, fileName);
+
+            long contentHash = hash(content);
+            if (config.isConfigurationSection("tiers")) {
+                if (type != RecipeManager.RecipeType.MINION) {
+                    warn("Tiers are only supported in minion recipes: " + fileName);
+                    return null;
+                }
+                List<RecipeDefinition> tiers = parseTiers(config, shaped, fileName, recipeFile.getPath(), contentHash, resultId,
+                        permission, rateLimit);
+                if (tiers == null) return null;
+                return new RecipeDefinition(type, fileName, recipeFile.getPath(), contentHash, resultId, 0, permission,
+                        shaped, Collections.emptyList(), Collections.emptyMap(), Collections.emptyList(), tiers, rateLimit);
+            }
+
+            List<String> shape = new ArrayList<>();
+            Map<Character, Ingredient> shapedIngredients = new LinkedHashMap<>();
+            List<Ingredient> shapelessIngredients = new ArrayList<>();
+            if (!readIngredients(config, null, shaped, shape, shapedIngredients, shapelessIngredients, label, fileName)) {
+                return null;
+            }
+
+            return new RecipeDefinition(type, fileName, recipeFile.getPath(), contentHash, resultId, level, permission,
+                    shaped, shape, shapedIngredients, shapelessIngredients, Collections.emptyList(), rateLimit);
+
+        } catch (Exception e) {
+            plugin.getLogger().severe("Error loading " + label + " recipe from file: " + recipeFile.getName());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Read the shape and ingredients of a recipe (or of a tier, on top of the file's shape and ingredients)
+     *
+     * @param section The section to read from
+     * @param base The file's root section when reading a tier, or null
+     * @return false (with a warning) if the recipe is invalid
+     */
+    private boolean readIngredients(ConfigurationSection section, ConfigurationSection base, boolean shaped, List<String> shape,
+                                    Map<Character, Ingredient> shapedIngredients, List<Ingredient> shapelessIngredients,
+                                    String label, String fileName) {
+        if (shaped) {
+            // Set shape
+            List<String> rows = section.getStringList("shape");
+            if (rows.isEmpty() && base != null) {
+                rows = base.getStringList("shape");
+            }
+            if (rows.size() != 3) {
+                warn("Invalid shape in " + label + " recipe " + fileName + " - must have 3 rows!");
+                return false;
+            }
+            shape.addAll(rows);
+
+            // Set ingredients, a tier's ingredients replace the file's per key
+            for (ConfigurationSection source : base != null
+                    ? new ConfigurationSection[]{base, section} : new ConfigurationSection[]{section}) {
+                ConfigurationSection ingredients = source.getConfigurationSection("ingredients");
+                if (ingredients == null) continue;
+                for (String ingredientKey : ingredients.getKeys(false)) {
+                    Ingredient ingredient = parseIngredient(ingredients.get(ingredientKey), label, fileName);
+                    if (ingredient != null) {
+                        shapedIngredients.put(ingredientKey.charAt(0), ingredient);
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Add ingredients, a tier's list replaces the file's
+        List<?> ingredients = section.getList("ingredients", Collections.emptyList());
+        if (ingredients.isEmpty() && base != null) {
+            ingredients = base.getList("ingredients", Collections.emptyList());
+        }
+        if (ingredients.size() > 9) {
+            warn("Too many ingredients in " + label + " recipe " + fileName + " - at most 9!");
+            return false;
+        }
+        for (Object value : ingredients) {
+            Ingredient ingredient = parseIngredient(value, label, fileName);
+            if (ingredient != null) {
+                shapelessIngredients.add(ingredient);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse the tier-up recipes of a minion file: every tier takes the minion of the level below
+     * plus its own ingredients, and results in a minion of the tier's level
+     *
+     * @return One definition per tier, or null (with a warning) if the file is invalid
+     */
+    private List<RecipeDefinition> parseTiers(YamlConfiguration config, boolean shaped, String fileName, String source,
+                                              long contentHash, String minionId, String permission,
+                                              CraftRateLimiter.Limit rateLimit) {
+        String label = RecipeManager.RecipeType.MINION.getLabel();
+        String minionKey = config.getString("minion_key", "M");
+        Material minionMaterial = Material.matchMaterial(config.getString("minion_material", Material.PLAYER_HEAD.name()));
+        if (minionMaterial == null) {
+            warn("Invalid minion_material in " + label + " recipe " + fileName);
+            return null;
+        }
+
+        ConfigurationSection tiers = config.getConfigurationSection("tiers");
+        List<RecipeDefinition> definitions = new ArrayList<>();
+        for (String levelKey : tiers.getKeys(false)) {
+            int level;
+            try {
+                level = Integer.parseInt(levelKey);
+            } catch (NumberFormatException e) {
+                level = 0;
+            }
+            if (level < 2 || !tiers.isConfigurationSection(levelKey)) {
+                warn("Invalid tier in " + label + " recipe " + fileName + ": " + levelKey + " (must be a level of 2 or more)");
+                return null;
+            }
+            ConfigurationSection tier = tiers.getConfigurationSection(levelKey);
+
+            List<String> shape = new ArrayList<>();
+            Map<Character, Ingredient> shapedIngredients = new LinkedHashMap<>();
+            List<Ingredient> shapelessIngredients = new ArrayList<>();
+            if (!readIngredients(tier, config, shaped, shape, shapedIngredients, shapelessIngredients, label, fileName)) {
+                return null;
+            }
+
+            // The minion of the level below, recognized by the tags of crafted minions
+            Map<NamespacedKey, String> tags = new LinkedHashMap<>();
+            tags.put(ItemTags.MINION_ID, minionId);
+            tags.put(ItemTags.MINION_LEVEL, String.valueOf(level - 1));
+            Ingredient minion = new Ingredient(minionMaterial, 1, null, tags);
+            if (shaped) {
+                if (minionKey.isEmpty() || shape.stream().noneMatch(row -> row.indexOf(minionKey.charAt(0)) >= 0)) {
+                    warn("Tier " + level + " in " + label + " recipe " + fileName
+                            + " has no slot for the minion (minion_key: " + minionKey + ")");
+                    return null;
+                }
+                shapedIngredients.put(minionKey.charAt(0), minion);
+            } else {
+                if (shapelessIngredients.size() >= 9) {
+                    warn("Too many ingredients in tier " + level + " of " + label + " recipe " + fileName + " - at most 8 plus the minion!");
+                    return null;
+                }
+                shapelessIngredients.add(minion);
+            }
+
+            definitions.add(new RecipeDefinition(RecipeManager.RecipeType.MINION, fileName + "/" + level, source, contentHash,
+                    minionId, level, tier.getString("permission", permission), shaped, shape, shapedIngredients, shapelessIngredients,
+                    Collections.emptyList(), parseRateLimit(tier, rateLimit, label, fileName)));
+        }
+
+        if (definitions.isEmpty()) {
+            warn("No tiers in " + label + " recipe " + fileName);
+            return null;
+        }
+        return definitions;
+    }
+
+    /**
+     * Parse a recipe's own craft rate limit:
+     * <pre>
+     * rate_limit: { crafts_per_second: 1, burst: 2 }
+     * rate_limit: false
+     * </pre>
+     * false (or crafts_per_second: 0) exempts the recipe from the default limit.
+     *
+     * @param fallback The limit to use if the section has no rate_limit
+     * @return The limit, or the fallback
+     */
+    private CraftRateLimiter.Limit parseRateLimit(ConfigurationSection section, CraftRateLimiter.Limit fallback,
+                                                  String label, String fileName) {
+        Object value = section.get("rate_limit");
+        if (value == null) return fallback;
+        if (Boolean.FALSE.equals(value)) return CraftRateLimiter.Limit.UNLIMITED;
+
+        Map<?, ?> limit = asMap(value);
+        if (limit == null || !(limit.get("crafts_per_second") instanceof Number)) {
+            warn("Invalid rate_limit in " + label + " recipe " + fileName + ", using the default limit");
+            return fallback;
+        }
+        double craftsPerSecond = ((Number) limit.get("crafts_per_second")).doubleValue();
+        int burst = limit.get("burst") instanceof Number
+                ? ((Number) limit.get("burst")).intValue() : (int) Math.ceil(craftsPerSecond);
+        return new CraftRateLimiter.Limit(craftsPerSecond, burst);
+    }
+
+    /**
+     * Parse one ingredient: either a material name, or a section with material and amount
+     * A section can also require custom model data, tags, or a crafted minion or upgrade:
+     * <pre>
+     * C: { material: COBBLESTONE, amount: 64 }
+     * M: { minion: MINER, level: 3 }
+     * U: { material: PAPER, upgrade: compactor }
+     * E: { material: DIAMOND, custom_model_data: 1001, tags: { "someplugin:item_id": "enchanted_diamond" } }
+     * </pre>
+     *
+     * @return The ingredient, or null (with a warning) if it is invalid
+     */
+    private Ingredient parseIngredient(Object value, String label, String fileName) {
+        Map<?, ?> section = asMap(value);
+        if (section == null) {
+            return parseIngredient(value != null ? String.valueOf(value) : null, 1, null, Collections.emptyMap(), label, fileName);
+        }
+
+        String materialName = section.get("material") != null ? String.valueOf(section.get("material")) : null;
+        int amount = section.get("amount") instanceof Number ? ((Number) section.get("amount")).intValue() : 1;
+        Integer customModelData = section.get("custom_model_data") instanceof Number
+                ? ((Number) section.get("custom_model_data")).intValue() : null;
+
+        Map<NamespacedKey, String> tags = new LinkedHashMap<>();
+        Map<?, ?> tagSection = asMap(section.get("tags"));
+        if (tagSection != null) {
+            for (Map.Entry<?, ?> tag : tagSection.entrySet()) {
+                NamespacedKey key = NamespacedKey.fromString(String.valueOf(tag.getKey()).toLowerCase(Locale.ROOT));
+                if (key == null) {
+                    warn("Invalid tag key in " + label + " recipe " + fileName + ": " + tag.getKey());
+                    return null;
+                }
+                tags.put(key, String.valueOf(tag.getValue()));
+            }
+        }
+
+        // Minions and upgrades crafted by this plugin carry their ID in our own tags
+        if (section.get("minion") != null) {
+            tags.put(ItemTags.MINION_ID, String.valueOf(section.get("minion")));
+            if (section.get("level") instanceof Number) {
+                tags.put(ItemTags.MINION_LEVEL, String.valueOf(((Number) section.get("level")).intValue()));
+            }
+            if (materialName == null) {
+                materialName = Material.PLAYER_HEAD.name();
+            }
+        }
+        if (section.get("upgrade") != null) {
+            tags.put(ItemTags.UPGRADE_ID, String.valueOf(section.get("upgrade")));
+        }
+
+        return parseIngredient(materialName, amount, customModelData, tags, label, fileName);
+    }
+
+    private Ingredient parseIngredient(String materialName, int amount, Integer customModelData, Map<NamespacedKey, String> tags,
+                                       String label, String fileName) {
+        Material material = materialName != null ? Material.matchMaterial(materialName) : null;
+        if (material == null) {
+            warn("Invalid material in " + label + " recipe " + fileName + ": " + materialName);
+            return null;
+        }
+        if (amount < 1 || amount > material.getMaxStackSize()) {
+            warn("Invalid amount in " + label + " recipe " + fileName + ": " + amount + " " + material
+                    + " (must be 1-" + material.getMaxStackSize() + ")");
+            return null;
+        }
+        return new Ingredient(material, amount, customModelData, tags);
+    }
+
+    /**
+     * @return The keys and values of a configuration section or map, or null for anything else
+     */
+    private static Map<?, ?> asMap(Object value) {
+        if (value instanceof ConfigurationSection) {
+            return ((ConfigurationSection) value).getValues(false);
+        }
+        if (value instanceof Map) {
+            return (Map<?, ?>) value;
+        }
+        return null;
+    }
+
+    /**
+     * Hash file contents, so unchanged files can be skipped when reloading
+     *
+     * @return The first 64 bits of the SHA-256 digest
+     */
+    public static long hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,95 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.managers.RecipeManager;
+import org.bukkit.NamespacedKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all registered recipes
+ *
+ * A new snapshot is built for every change and published as a whole by {@link RecipeManager},
+ * so readers on any thread always see either the old or the new complete set of recipes.
+ */
+public final class RecipeRegistry {
+
+    private static final RecipeRegistry EMPTY = new RecipeRegistry(Collections.emptyMap());
+
+    private final Map<NamespacedKey, RecipeManager.RecipeData> recipesByKey;
+    private final Map<NamespacedKey, List<RecipeManager.RecipeData>> recipesByFile;
+    private final Map<RecipeManager.RecipeType, Integer> counts;
+    private final RecipeMatcher matcher;
+
+    public RecipeRegistry(Map<NamespacedKey, RecipeManager.RecipeData> recipes) {
+        this.recipesByKey = Collections.unmodifiableMap(new HashMap<>(recipes));
+
+        Map<RecipeManager.RecipeType, Integer> counts = new EnumMap<>(RecipeManager.RecipeType.class);
+        for (RecipeManager.RecipeType type : RecipeManager.RecipeType.values()) {
+            counts.put(type, 0);
+        }
+        for (RecipeManager.RecipeData data : recipes.values()) {
+            counts.merge(data.getType(), 1, Integer::sum);
+        }
+        this.counts = Collections.unmodifiableMap(counts);
+
+        // Tiered files register several recipes under one file key
+        Map<NamespacedKey, List<RecipeManager.RecipeData>> byFile = new HashMap<>();
+        for (RecipeManager.RecipeData data : recipesByKey.values()) {
+            byFile.computeIfAbsent(data.getFileKey(), k -> new ArrayList<>(1)).add(data);
+        }
+        this.recipesByFile = byFile;
+
+        this.matcher = new RecipeMatcher(recipesByKey.values());
+    }
+
+    public static RecipeRegistry empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return The recipe registered under the key, or null
+     */
+    public RecipeManager.RecipeData get(NamespacedKey key) {
+        return recipesByKey.get(key);
+    }
+
+    /**
+     * @return The recipes registered from a file (several for a tiered file), or an empty list
+     */
+    public List<RecipeManager.RecipeData> getFileRecipes(NamespacedKey fileKey) {
+        List<RecipeManager.RecipeData> recipes = recipesByFile.get(fileKey);
+        return recipes != null ? recipes : Collections.emptyList();
+    }
+
+    /**
+     * @return The ingredient signature index of this snapshot's recipes
+     */
+    public RecipeMatcher getMatcher() {
+        return matcher;
+    }
+
+    public Collection<RecipeManager.RecipeData> getRecipes() {
+        return recipesByKey.values();
+    }
+
+    /**
+     * @return A modifiable copy of the recipes, to build the next snapshot from
+     */
+    public Map<NamespacedKey, RecipeManager.RecipeData> copyRecipes() {
+        return new HashMap<>(recipesByKey);
+    }
+
+    public int getCount(RecipeManager.RecipeType type) {
+        return counts.get(type);
+    }
+
+    public int size() {
+        return recipesByKey.size();
+    }
+}
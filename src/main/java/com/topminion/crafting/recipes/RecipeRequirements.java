@@ -0,0 +1,314 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.utils.CraftingUtil;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The items one craft of a recipe takes, summed over its slots, for crafting straight from an
+ * inventory instead of a crafting grid
+ *
+ * Counting walks the inventory once into a histogram indexed by material ordinal; only items of a
+ * material that a recipe asks for have their meta read. An item is only counted once: items that
+ * match a custom ingredient are not available to plain ones, and neither are minions, upgrades or
+ * auto-crafters handed out by this plugin.
+ *
+ * An item can match several custom ingredients, e.g. {minion_id: miner} and {minion_id: miner,
+ * minion_level: 2}. Like the grid matcher, each item goes to one ingredient only: items are grouped
+ * by the set of custom ingredients they match, and the groups are split between the ingredients.
+ */
+public final class RecipeRequirements {
+
+    /** Returned by {@link #craft} when the contents no longer hold the ingredients */
+    public static final int MISSING_INGREDIENTS = -1;
+
+    private static final int MATERIALS = Material.values().length;
+
+    private final RecipeDefinition definition;
+    private final Ingredient[] ingredients;
+    private final int customCount;
+    private final boolean[] customMaterials = new boolean[MATERIALS];
+    private final boolean[] plainMaterials = new boolean[MATERIALS];
+    private final Set<NamespacedKey> tagKeys = new HashSet<>();
+
+    public RecipeRequirements(RecipeDefinition definition) {
+        this.definition = definition;
+
+        // Keyed by the ingredient with amount 1, so slots of the same item add up
+        Map<Ingredient, Integer> totals = new LinkedHashMap<>();
+        if (definition.isShaped()) {
+            for (String row : definition.getShape()) {
+                for (char symbol : row.toCharArray()) {
+                    Ingredient ingredient = definition.getShapedIngredients().get(symbol);
+                    if (ingredient != null) add(totals, ingredient);
+                }
+            }
+        } else {
+            for (Ingredient ingredient : definition.getShapelessIngredients()) {
+                add(totals, ingredient);
+            }
+        }
+
+        List<Ingredient> sorted = new ArrayList<>(totals.size());
+        for (Map.Entry<Ingredient, Integer> total : totals.entrySet()) {
+            Ingredient ingredient = total.getKey();
+            sorted.add(new Ingredient(ingredient.getMaterial(), total.getValue(),
+                    ingredient.getCustomModelData(), ingredient.getTags()));
+        }
+        sorted.sort(Comparator.comparing(ingredient -> !ingredient.isCustom()));
+        this.ingredients = sorted.toArray(new Ingredient[0]);
+
+        int custom = 0;
+        for (Ingredient ingredient : ingredients) {
+            if (!ingredient.isCustom()) {
+                plainMaterials[ingredient.getMaterial().ordinal()] = true;
+                continue;
+            }
+            customMaterials[ingredient.getMaterial().ordinal()] = true;
+            tagKeys.addAll(ingredient.getTags().keySet());
+            custom++;
+        }
+        this.customCount = custom;
+    }
+
+    private static void add(Map<Ingredient, Integer> totals, Ingredient ingredient) {
+        Ingredient single = new Ingredient(ingredient.getMaterial(), 1, ingredient.getCustomModelData(), ingredient.getTags());
+        totals.merge(single, ingredient.getAmount(), Integer::sum);
+    }
+
+    /**
+     * @return The recipe these requirements were built from
+     */
+    public RecipeDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Count how many crafts inventory contents hold the ingredients for
+     *
+     * @param contents The storage contents of an inventory
+     * @param limit Stop at this many crafts
+     * @return The number of crafts, at most limit
+     */
+    public int getMaxCrafts(ItemStack[] contents, int limit) {
+        int[] counts = new int[MATERIALS];
+        int[] groups = new int[1 << customCount];
+        for (ItemStack item : contents) {
+            if (item == null) continue;
+
+            int ordinal = item.getType().ordinal();
+            int matched = customMaterials[ordinal] ? matchCustom(item) : 0;
+            if (matched != 0) {
+                groups[matched] += item.getAmount();
+            } else if (plainMaterials[ordinal] && !ItemTags.isTagged(item)) {
+                counts[ordinal] += item.getAmount();
+            }
+        }
+
+        int crafts = Math.min(limit, getMaxCustomCrafts(groups));
+        for (int i = customCount; i < ingredients.length && crafts > 0; i++) {
+            Ingredient ingredient = ingredients[i];
+            crafts = Math.min(crafts, counts[ingredient.getMaterial().ordinal()] / ingredient.getAmount());
+        }
+        return crafts;
+    }
+
+    /**
+     * Count the crafts the custom ingredients can be split into
+     * Every set of custom ingredients needs at most as many items as the groups matching any of
+     * them hold (Hall's condition), and the tightest set decides.
+     *
+     * @param groups Item counts by the bit set of custom ingredients they match
+     */
+    private int getMaxCustomCrafts(int[] groups) {
+        if (customCount == 0) return Integer.MAX_VALUE;
+
+        // within[set] = items that match only ingredients in the set
+        int[] within = groups.clone();
+        for (int bit = 0; bit < customCount; bit++) {
+            for (int set = 0; set < within.length; set++) {
+                if ((set & (1 << bit)) != 0) within[set] += within[set ^ (1 << bit)];
+            }
+        }
+
+        int all = within.length - 1;
+        int crafts = Integer.MAX_VALUE;
+        for (int set = 1; set <= all; set++) {
+            int needed = 0;
+            for (int i = 0; i < customCount; i++) {
+                if ((set & (1 << i)) != 0) needed += ingredients[i].getAmount();
+            }
+            int available = within[all] - within[all & ~set];
+            crafts = Math.min(crafts, available / needed);
+        }
+        return crafts;
+    }
+
+    /**
+     * Take the ingredients of up to a number of crafts from inventory contents and add the results
+     * When the results do not fit into the space the ingredients left, fewer crafts are made.
+     *
+     * @param contents The storage contents of an inventory; only changed if anything was crafted
+     * @param result The result of one craft
+     * @param crafts The most crafts to make, see {@link #getMaxCrafts}
+     * @return The number of crafts made, 0 if the results did not fit, or {@link #MISSING_INGREDIENTS}
+     */
+    public int craft(ItemStack[] contents, ItemStack result, int crafts) {
+        int perCraft = result.getAmount();
+        while (crafts > 0) {
+            // Storage contents may mirror the live items, so changes go to copies
+            ItemStack[] updated = contents.clone();
+            if (!take(updated, crafts)) return MISSING_INGREDIENTS;
+
+            int space = CraftingUtil.getFreeSpace(updated, result, crafts * perCraft);
+            if (space >= crafts * perCraft) {
+                CraftingUtil.addToContents(updated, result, crafts * perCraft);
+                System.arraycopy(updated, 0, contents, 0, contents.length);
+                return crafts;
+            }
+            crafts = Math.min(crafts - 1, space / perCraft);
+        }
+        return 0;
+    }
+
+    /**
+     * Remove the ingredients of several crafts from the contents
+     *
+     * @return false if the contents did not hold all of them
+     */
+    private boolean take(ItemStack[] contents, int crafts) {
+        // Split the custom groups between the ingredients first, then take by group
+        int[] matched = new int[contents.length];
+        int[] groups = new int[1 << customCount];
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack item = contents[i];
+            if (item == null || !customMaterials[item.getType().ordinal()]) continue;
+
+            matched[i] = matchCustom(item);
+            groups[matched[i]] += item.getAmount();
+        }
+        int[][] shares = split(groups, crafts);
+        if (shares == null) return false;
+
+        for (int i = 0; i < contents.length; i++) {
+            if (matched[i] == 0) continue;
+
+            int[] share = shares[matched[i]];
+            for (int j = 0; j < customCount && contents[i] != null; j++) {
+                int taken = Math.min(share[j], contents[i].getAmount());
+                if (taken == 0) continue;
+
+                share[j] -= taken;
+                contents[i] = CraftingUtil.withAmount(contents[i], contents[i].getAmount() - taken);
+            }
+        }
+
+        for (int i = customCount; i < ingredients.length; i++) {
+            Ingredient ingredient = ingredients[i];
+            int remaining = ingredient.getAmount() * crafts;
+            for (int j = 0; j < contents.length && remaining > 0; j++) {
+                ItemStack item = contents[j];
+                if (matched[j] != 0 || item == null || item.getType() != ingredient.getMaterial() || ItemTags.isTagged(item)) continue;
+
+                int taken = Math.min(remaining, item.getAmount());
+                contents[j] = CraftingUtil.withAmount(item, item.getAmount() - taken);
+                remaining -= taken;
+            }
+            if (remaining > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Split the custom groups between the custom ingredients, moving items between ingredients
+     * along augmenting paths when a group an ingredient needs was given to another one
+     *
+     * @param groups Item counts by the bit set of custom ingredients they match
+     * @return How many items of each group go to each ingredient, or null if they are not enough
+     */
+    private int[][] split(int[] groups, int crafts) {
+        int[][] shares = new int[groups.length][customCount];
+        int[] free = groups.clone();
+        for (int i = 0; i < customCount; i++) {
+            int needed = ingredients[i].getAmount() * crafts;
+            while (needed > 0) {
+                int moved = augment(i, needed, shares, free);
+                if (moved == 0) return null;
+                needed -= moved;
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * Find the shortest path from an ingredient to a group with free items, where each step takes
+     * items of a shared group away from the next ingredient, and move as many items along it as it allows
+     *
+     * @return The number of items the ingredient gained, 0 if there is no path
+     */
+    private int augment(int start, int needed, int[][] shares, int[] free) {
+        int[] previous = new int[customCount];
+        int[] via = new int[customCount];
+        Arrays.fill(previous, -2);
+        previous[start] = -1;
+
+        int[] queue = new int[customCount];
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int ingredient = queue[head++];
+            for (int set = 1; set < free.length; set++) {
+                if ((set & (1 << ingredient)) == 0) continue;
+
+                if (free[set] > 0) {
+                    // Walk back to the start, limited by the free items and every share moved
+                    int amount = Math.min(needed, free[set]);
+                    for (int at = ingredient; previous[at] >= 0; at = previous[at]) {
+                        amount = Math.min(amount, shares[via[at]][at]);
+                    }
+
+                    free[set] -= amount;
+                    shares[set][ingredient] += amount;
+                    for (int at = ingredient; previous[at] >= 0; at = previous[at]) {
+                        shares[via[at]][at] -= amount;
+                        shares[via[at]][previous[at]] += amount;
+                    }
+                    return amount;
+                }
+                for (int other = 0; other < customCount; other++) {
+                    if (previous[other] != -2 || shares[set][other] == 0) continue;
+
+                    previous[other] = ingredient;
+                    via[other] = set;
+                    queue[tail++] = other;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return The bit set of the custom ingredients an item matches
+     */
+    private int matchCustom(ItemStack item) {
+        ItemFingerprint fingerprint = ItemFingerprint.of(item, tagKeys);
+        int matched = 0;
+        for (int i = 0; i < customCount; i++) {
+            if (ingredients[i].getMaterial() == item.getType() && ingredients[i].matches(fingerprint)) {
+                matched |= 1 << i;
+            }
+        }
+        return matched;
+    }
+}
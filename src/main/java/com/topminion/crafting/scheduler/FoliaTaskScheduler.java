@@ -0,0 +1,190 @@
+package com.topminion.crafting.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler for Folia's region threads
+ *
+ * The plugin is compiled against the Spigot API, so Folia's schedulers are resolved once with
+ * method handles: the global region scheduler, the region scheduler, the async scheduler and each
+ * entity's scheduler.
+ */
+final class FoliaTaskScheduler implements TaskScheduler {
+
+    private static final String SCHEDULER_PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+
+    private final Plugin plugin;
+    private final Object globalScheduler;
+    private final Object asyncScheduler;
+    private final Object regionScheduler;
+
+    private final MethodHandle globalExecute;
+    private final MethodHandle globalRunAtFixedRate;
+    private final MethodHandle regionExecute;
+    private final MethodHandle asyncRunNow;
+    private final MethodHandle asyncRunAtFixedRate;
+    private final MethodHandle entityGetScheduler;
+    private final MethodHandle entityExecute;
+    private final MethodHandle isOwnedByCurrentRegion;
+    private final MethodHandle taskCancel;
+
+    FoliaTaskScheduler(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+        Class<?> globalType = Class.forName(SCHEDULER_PACKAGE + "GlobalRegionScheduler");
+        Class<?> asyncType = Class.forName(SCHEDULER_PACKAGE + "AsyncScheduler");
+        Class<?> regionType = Class.forName(SCHEDULER_PACKAGE + "RegionScheduler");
+        Class<?> entityType = Class.forName(SCHEDULER_PACKAGE + "EntityScheduler");
+        Class<?> taskType = Class.forName(SCHEDULER_PACKAGE + "ScheduledTask");
+
+        Server server = Bukkit.getServer();
+        this.globalScheduler = invoke(lookup.findVirtual(Server.class, "getGlobalRegionScheduler", MethodType.methodType(globalType)), server);
+        this.asyncScheduler = invoke(lookup.findVirtual(Server.class, "getAsyncScheduler", MethodType.methodType(asyncType)), server);
+        this.regionScheduler = invoke(lookup.findVirtual(Server.class, "getRegionScheduler", MethodType.methodType(regionType)), server);
+
+        this.globalExecute = lookup.findVirtual(globalType, "execute",
+                MethodType.methodType(void.class, Plugin.class, Runnable.class));
+        this.globalRunAtFixedRate = lookup.findVirtual(globalType, "runAtFixedRate",
+                MethodType.methodType(taskType, Plugin.class, Consumer.class, long.class, long.class));
+        this.regionExecute = lookup.findVirtual(regionType, "execute",
+                MethodType.methodType(void.class, Plugin.class, World.class, int.class, int.class, Runnable.class));
+        this.asyncRunNow = lookup.findVirtual(asyncType, "runNow",
+                MethodType.methodType(taskType, Plugin.class, Consumer.class));
+        this.asyncRunAtFixedRate = lookup.findVirtual(asyncType, "runAtFixedRate",
+                MethodType.methodType(taskType, Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class));
+        this.entityGetScheduler = lookup.findVirtual(Entity.class, "getScheduler", MethodType.methodType(entityType));
+        this.entityExecute = lookup.findVirtual(entityType, "execute",
+                MethodType.methodType(boolean.class, Plugin.class, Runnable.class, Runnable.class, long.class));
+        this.isOwnedByCurrentRegion = lookup.findVirtual(Server.class, "isOwnedByCurrentRegion",
+                MethodType.methodType(boolean.class, Entity.class));
+        this.taskCancel = lookup.findVirtual(taskType, "cancel",
+                MethodType.methodType(Class.forName(SCHEDULER_PACKAGE + "ScheduledTask$CancelledState")));
+    }
+
+    /**
+     * @return true if the server is Folia (or another server with region threading)
+     */
+    static boolean isSupported() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        try {
+            globalExecute.invoke(globalScheduler, plugin, task);
+        } catch (Throwable t) {
+            throw failure("run a global task", t);
+        }
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        try {
+            Consumer<Object> consumer = scheduled -> task.run();
+            return handle(globalRunAtFixedRate.invoke(globalScheduler, plugin, consumer, Math.max(1, delayTicks), periodTicks));
+        } catch (Throwable t) {
+            throw failure("schedule a global timer", t);
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        try {
+            Consumer<Object> consumer = scheduled -> task.run();
+            asyncRunNow.invoke(asyncScheduler, plugin, consumer);
+        } catch (Throwable t) {
+            throw failure("run an async task", t);
+        }
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        try {
+            Consumer<Object> consumer = scheduled -> task.run();
+            return handle(asyncRunAtFixedRate.invoke(asyncScheduler, plugin, consumer,
+                    Math.max(1, delayTicks) * 50L, periodTicks * 50L, TimeUnit.MILLISECONDS));
+        } catch (Throwable t) {
+            throw failure("schedule an async timer", t);
+        }
+    }
+
+    @Override
+    public void runAtEntity(Entity entity, Runnable task) {
+        try {
+            if ((boolean) isOwnedByCurrentRegion.invoke(Bukkit.getServer(), entity)) {
+                task.run();
+                return;
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw failure("run a task for " + entity.getName(), t);
+        }
+        runAtEntityLater(entity, task);
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task) {
+        try {
+            // Returns false if the entity was already removed; the task is dropped then
+            Object scheduler = entityGetScheduler.invoke(entity);
+            entityExecute.invoke(scheduler, plugin, task, null, 1L);
+        } catch (Throwable t) {
+            throw failure("schedule a task for " + entity.getName(), t);
+        }
+    }
+
+    @Override
+    public void runAtRegion(World world, int chunkX, int chunkZ, Runnable task) {
+        try {
+            regionExecute.invoke(regionScheduler, plugin, world, chunkX, chunkZ, task);
+        } catch (Throwable t) {
+            throw failure("run a task in " + world.getName() + " at chunk " + chunkX + "," + chunkZ, t);
+        }
+    }
+
+    @Override
+    public boolean isFolia() {
+        return true;
+    }
+
+    private TaskHandle handle(Object scheduled) {
+        return () -> {
+            try {
+                taskCancel.invoke(scheduled);
+            } catch (Throwable t) {
+                plugin.getLogger().warning("Could not cancel task: " + t);
+            }
+        };
+    }
+
+    private static Object invoke(MethodHandle handle, Object target) throws ReflectiveOperationException {
+        try {
+            return handle.invoke(target);
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new ReflectiveOperationException(t);
+        }
+    }
+
+    private static IllegalStateException failure(String action, Throwable cause) {
+        return new IllegalStateException("Could not " + action + " on Folia", cause);
+    }
+}
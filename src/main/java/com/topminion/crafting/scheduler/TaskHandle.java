@@ -0,0 +1,12 @@
+package com.topminion.crafting.scheduler;
+
+/**
+ * A scheduled repeating task
+ */
+public interface TaskHandle {
+
+    /**
+     * Stop the task; a run that already started still completes
+     */
+    void cancel();
+}
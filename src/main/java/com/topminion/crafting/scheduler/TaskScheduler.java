@@ -0,0 +1,81 @@
+package com.topminion.crafting.scheduler;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Runs tasks on the right thread on both Bukkit/Paper and Folia
+ *
+ * On Bukkit and Paper everything that touches the world runs on the main thread. Folia has no
+ * main thread: players are ticked by the region that owns them, and global work runs on the
+ * global region thread. Code that touches a player (inventories, messages) therefore goes
+ * through {@link #runAtEntity(Entity, Runnable)}.
+ */
+public interface TaskScheduler {
+
+    /**
+     * Run a task on the main thread, or on the global region thread on Folia, on the next tick
+     */
+    void runGlobal(Runnable task);
+
+    /**
+     * Repeat a task on the main thread, or on the global region thread on Folia
+     *
+     * @param delayTicks Ticks before the first run, at least 1
+     * @param periodTicks Ticks between runs
+     */
+    TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Run a task off the server threads
+     */
+    void runAsync(Runnable task);
+
+    /**
+     * Repeat a task off the server threads
+     *
+     * @param delayTicks Ticks (of 50 ms) before the first run, at least 1
+     * @param periodTicks Ticks (of 50 ms) between runs
+     */
+    TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Run a task on the thread that owns an entity
+     * Runs right away if the calling thread owns the entity, otherwise on the next tick of its
+     * owner. The task is dropped if the entity is removed (e.g. the player quits) before then.
+     */
+    void runAtEntity(Entity entity, Runnable task);
+
+    /**
+     * Run a task on the thread that owns an entity, always on its next tick
+     * The task is dropped if the entity is removed before then.
+     */
+    void runAtEntityLater(Entity entity, Runnable task);
+
+    /**
+     * Run a task on the thread that owns a chunk
+     * Runs right away on Bukkit/Paper when called from the main thread; on Folia it runs on the
+     * next tick of the chunk's region, whether or not the chunk is loaded.
+     */
+    void runAtRegion(World world, int chunkX, int chunkZ, Runnable task);
+
+    /**
+     * @return true if running on Folia's region threads
+     */
+    boolean isFolia();
+
+    /**
+     * Create the scheduler for the running server
+     */
+    static TaskScheduler create(Plugin plugin) {
+        if (FoliaTaskScheduler.isSupported()) {
+            try {
+                return new FoliaTaskScheduler(plugin);
+            } catch (ReflectiveOperationException e) {
+                plugin.getLogger().severe("Folia detected, but its schedulers could not be resolved: " + e);
+            }
+        }
+        return new BukkitTaskScheduler(plugin);
+    }
+}
@@ -0,0 +1,173 @@
+package com.topminion.crafting.utils;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for crafting several results at once from a crafting matrix
+ */
+public final class CraftingUtil {
+
+    private CraftingUtil() {
+    }
+
+    /**
+     * Get how many times the matrix can be crafted
+     *
+     * @param matrix The crafting matrix
+     * @param slotAmounts The number of items one craft takes from each slot
+     * @return The number of crafts the ingredients allow
+     */
+    public static int getMaxCrafts(ItemStack[] matrix, int[] slotAmounts) {
+        int max = Integer.MAX_VALUE;
+        for (int i = 0; i < matrix.length; i++) {
+            if (slotAmounts[i] == 0) continue;
+            ItemStack item = matrix[i];
+            if (item == null || item.getType().isAir()) return 0;
+            max = Math.min(max, item.getAmount() / slotAmounts[i]);
+        }
+        return max == Integer.MAX_VALUE ? 0 : max;
+    }
+
+    /**
+     * Get how many of an item fit into the storage slots of an inventory
+     *
+     * @param inventory The inventory to insert into
+     * @param item The item to insert (amount is ignored)
+     * @param limit Stop counting once this many fit
+     * @return The number of items that fit, at most limit
+     */
+    public static int getFreeSpace(Inventory inventory, ItemStack item, int limit) {
+        return getFreeSpace(inventory.getStorageContents(), item, limit);
+    }
+
+    /**
+     * Get how many of an item fit into storage contents that were already read
+     *
+     * @param contents The storage contents of an inventory
+     * @param item The item to insert (amount is ignored)
+     * @param limit Stop counting once this many fit
+     * @return The number of items that fit, at most limit
+     */
+    public static int getFreeSpace(ItemStack[] contents, ItemStack item, int limit) {
+        int maxStack = item.getMaxStackSize();
+        int space = 0;
+        for (ItemStack slot : contents) {
+            if (slot == null || slot.getType().isAir()) {
+                space += maxStack;
+            } else if (slot.getType() == item.getType() && slot.getAmount() < maxStack && slot.isSimilar(item)) {
+                space += maxStack - slot.getAmount();
+            }
+            if (space >= limit) return limit;
+        }
+        return space;
+    }
+
+    /**
+     * Remove the ingredients of several crafts from the matrix with a single update
+     * Like vanilla, used-up container ingredients (water buckets, honey bottles, ...) leave their
+     * crafting remainder behind, in their slot if it was emptied.
+     *
+     * @param inventory The crafting inventory
+     * @param matrix The matrix as read from the inventory
+     * @param slotAmounts The number of items one craft takes from each slot
+     * @param crafts The number of crafts to consume
+     * @return Remainders that did not fit into their slot, to give to the player
+     */
+    public static List<ItemStack> consumeMatrix(CraftingInventory inventory, ItemStack[] matrix, int[] slotAmounts, int crafts) {
+        List<ItemStack> leftovers = new ArrayList<>(0);
+        for (int i = 0; i < matrix.length; i++) {
+            ItemStack item = matrix[i];
+            if (item == null || item.getType().isAir() || slotAmounts[i] == 0) continue;
+
+            int consumed = Math.min(item.getAmount(), slotAmounts[i] * crafts);
+            int remaining = item.getAmount() - consumed;
+            Material remainder = item.getType().getCraftingRemainingItem();
+            if (remaining > 0) {
+                item.setAmount(remaining);
+            } else {
+                matrix[i] = null;
+            }
+
+            if (remainder == null) continue;
+            if (matrix[i] == null && consumed <= remainder.getMaxStackSize()) {
+                matrix[i] = new ItemStack(remainder, consumed);
+            } else {
+                leftovers.add(new ItemStack(remainder, consumed));
+            }
+        }
+        inventory.setMatrix(matrix);
+        return leftovers;
+    }
+
+    /**
+     * Give a number of copies of an item to a player in one inventory operation, dropping what does not fit
+     *
+     * @param player The player to give the items to
+     * @param template The item to give (amount is ignored); the instance is reused for the first stack
+     * @param amount The total number of items
+     */
+    public static void giveItems(Player player, ItemStack template, int amount) {
+        int maxStack = template.getMaxStackSize();
+        ItemStack[] stacks = new ItemStack[(amount + maxStack - 1) / maxStack];
+        for (int i = 0; i < stacks.length; i++) {
+            ItemStack stack = i == 0 ? template : template.clone();
+            stack.setAmount(Math.min(maxStack, amount - i * maxStack));
+            stacks[i] = stack;
+        }
+
+        Map<Integer, ItemStack> overflow = player.getInventory().addItem(stacks);
+        for (ItemStack leftover : overflow.values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+        }
+    }
+
+    /**
+     * Add items to inventory contents, filling similar stacks before empty slots
+     *
+     * @param contents The storage contents of an inventory
+     * @param item The item to add (amount is ignored)
+     * @param amount The total number of items
+     * @return false if not everything fit
+     */
+    public static boolean addToContents(ItemStack[] contents, ItemStack item, int amount) {
+        int maxStack = item.getMaxStackSize();
+        for (int i = 0; i < contents.length && amount > 0; i++) {
+            ItemStack slot = contents[i];
+            if (slot == null || slot.getType().isAir() || slot.getAmount() >= maxStack || !slot.isSimilar(item)) continue;
+
+            int added = Math.min(amount, maxStack - slot.getAmount());
+            contents[i] = withAmount(slot, slot.getAmount() + added);
+            amount -= added;
+        }
+        for (int i = 0; i < contents.length && amount > 0; i++) {
+            ItemStack slot = contents[i];
+            if (slot != null && !slot.getType().isAir()) continue;
+
+            int added = Math.min(amount, maxStack);
+            contents[i] = withAmount(item, added);
+            amount -= added;
+        }
+        return amount == 0;
+    }
+
+    /**
+     * Copy a stack with another amount
+     *
+     * @return The copy, or null if the amount is 0 or less
+     */
+    public static ItemStack withAmount(ItemStack item, int amount) {
+        if (amount <= 0) return null;
+
+        ItemStack copy = item.clone();
+        copy.setAmount(amount);
+        return copy;
+    }
+}
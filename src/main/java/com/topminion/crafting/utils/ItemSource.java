@@ -0,0 +1,51 @@
+package com.topminion.crafting.utils;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Source of the minion and upgrade items that recipes hand out
+ *
+ * The default source reads TopMinion's config managers. Config objects are compared by identity
+ * to validate cached templates, so a source must return a new object when a config changes.
+ */
+public interface ItemSource {
+
+    /**
+     * Get the config of a minion
+     *
+     * @param minionId The minion ID
+     * @return The config object, or null if the ID is unknown
+     */
+    Object getMinion(String minionId);
+
+    /**
+     * Create the item of a minion
+     *
+     * @param minion A config object returned by {@link #getMinion(String)}
+     * @param level The minion level
+     * @return The item, or null if the minion has none
+     */
+    ItemStack createMinionItem(Object minion, int level);
+
+    /**
+     * Get the config of an upgrade
+     *
+     * @param upgradeId The upgrade ID
+     * @return The config object, or null if the ID is unknown
+     */
+    Object getUpgrade(String upgradeId);
+
+    /**
+     * @param upgrade A config object returned by {@link #getUpgrade(String)}
+     * @return false for upgrades that cannot be crafted, like TopMinion's SKIN upgrades
+     */
+    boolean isCraftable(Object upgrade);
+
+    /**
+     * Create the item of an upgrade
+     *
+     * @param upgrade A config object returned by {@link #getUpgrade(String)}
+     * @return The item, or null if the upgrade has none
+     */
+    ItemStack createUpgradeItem(Object upgrade);
+}
@@ -0,0 +1,110 @@
+package com.topminion.crafting.utils;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+/**
+ * PersistentDataContainer tags written on the items this plugin hands out
+ *
+ * Crafted minions and upgrades carry their ID (and minion level), so they can be recognized again
+ * when a recipe uses them as an ingredient. Auto-crafter items carry the recipe they craft.
+ */
+public final class ItemTags {
+
+    /** Same namespace as the recipe keys */
+    public static final String NAMESPACE = "topminion-crafting";
+
+    public static final NamespacedKey MINION_ID = new NamespacedKey(NAMESPACE, "minion_id");
+    public static final NamespacedKey MINION_LEVEL = new NamespacedKey(NAMESPACE, "minion_level");
+    public static final NamespacedKey UPGRADE_ID = new NamespacedKey(NAMESPACE, "upgrade_id");
+    public static final NamespacedKey AUTO_CRAFTER = new NamespacedKey(NAMESPACE, "auto_crafter");
+
+    private ItemTags() {
+    }
+
+    /**
+     * Tag a minion item with its ID and level
+     */
+    public static void tagMinion(ItemStack item, String minionId, int level) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return;
+
+        PersistentDataContainer data = meta.getPersistentDataContainer();
+        data.set(MINION_ID, PersistentDataType.STRING, minionId);
+        data.set(MINION_LEVEL, PersistentDataType.INTEGER, level);
+        item.setItemMeta(meta);
+    }
+
+    /**
+     * Tag an upgrade item with its ID
+     */
+    public static void tagUpgrade(ItemStack item, String upgradeId) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return;
+
+        meta.getPersistentDataContainer().set(UPGRADE_ID, PersistentDataType.STRING, upgradeId);
+        item.setItemMeta(meta);
+    }
+
+    /**
+     * Tag an auto-crafter item with the recipe it crafts
+     *
+     * @param recipe The recipe key, without the namespace
+     */
+    public static void tagAutoCrafter(ItemStack item, String recipe) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return;
+
+        meta.getPersistentDataContainer().set(AUTO_CRAFTER, PersistentDataType.STRING, recipe);
+        item.setItemMeta(meta);
+    }
+
+    /**
+     * Read the recipe of an auto-crafter item
+     *
+     * @return The recipe key without the namespace, or null if the item is not an auto-crafter
+     */
+    public static String readAutoCrafter(ItemStack item) {
+        if (item == null || !item.hasItemMeta()) return null;
+
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return null;
+        return meta.getPersistentDataContainer().get(AUTO_CRAFTER, PersistentDataType.STRING);
+    }
+
+    /**
+     * @return true if the item was handed out by this plugin: a minion, upgrade or auto-crafter
+     */
+    public static boolean isTagged(ItemStack item) {
+        if (item == null || !item.hasItemMeta()) return false;
+
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return false;
+
+        PersistentDataContainer data = meta.getPersistentDataContainer();
+        return data.has(MINION_ID, PersistentDataType.STRING)
+                || data.has(UPGRADE_ID, PersistentDataType.STRING)
+                || data.has(AUTO_CRAFTER, PersistentDataType.STRING);
+    }
+
+    /**
+     * Read a tag as text, whether it was stored as a string or a number
+     *
+     * @return The value, or null if the tag is missing or has another type
+     */
+    public static String read(PersistentDataContainer data, NamespacedKey key) {
+        if (data.has(key, PersistentDataType.STRING)) {
+            return data.get(key, PersistentDataType.STRING);
+        }
+        if (data.has(key, PersistentDataType.INTEGER)) {
+            return String.valueOf(data.get(key, PersistentDataType.INTEGER));
+        }
+        if (data.has(key, PersistentDataType.LONG)) {
+            return String.valueOf(data.get(key, PersistentDataType.LONG));
+        }
+        return null;
+    }
+}
@@ -1,33 +1,114 @@
 package com.topminion.crafting.utils;
 
 import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.config.MessageTemplate;
+import com.topminion.crafting.managers.RecipeManager;
 import com.sarry20.topminion.api.TopMinionProvider;
 import com.sarry20.topminion.api.manager.ConfigMinionManager;
 import com.sarry20.topminion.api.manager.ConfigUpgradeManager;
-import com.sarry20.topminion.api.manager.MinionManager;
-import com.sarry20.topminion.api.minion.Minion;
-import com.sarry20.topminion.api.minion.config.ConfigMinion;
-import com.sarry20.topminion.api.minion.upgrade.UpgradeType;
-import com.sarry20.topminion.api.minion.upgrade.config.ConfigUpgrade;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for interacting with TopMinion API to get minion and upgrade items
+ *
+ * The TopMinion config managers are resolved once in {@link #initialize()} into an {@link ItemSource},
+ * and result items are cached as templates per (id, level), so a craft only costs a map lookup and a clone.
+ * Templates are tagged with {@link ItemTags}, so crafted items can be recognized as ingredients.
  */
 public class ItemUtil {
 
     private final TopMinionCrafting plugin;
 
+    private volatile ItemSource source;
+
+    private final Map<TemplateKey, CachedTemplate> minionTemplates = new ConcurrentHashMap<>();
+    private final Map<TemplateKey, CachedTemplate> upgradeTemplates = new ConcurrentHashMap<>();
+
     public ItemUtil(TopMinionCrafting plugin) {
         this.plugin = plugin;
     }
 
     /**
-     * Get a minion item from TopMinion API
+     * Resolve the TopMinion config managers and clear all cached templates
      *
      * NOTE: Current TopMinion v3 dev build has limited API
-     * This method uses reflection as a workaround until full API is released
+     * The managers are read with reflection as a workaround until full API is released
+     *
+     * @return true if both managers were resolved
+     */
+    public boolean initialize() {
+        invalidate();
+        source = null;
+
+        Plugin topMinionPlugin = Bukkit.getPluginManager().getPlugin("TopMinion");
+        if (topMinionPlugin == null || !topMinionPlugin.isEnabled()) {
+            plugin.getLogger().severe("TopMinion plugin not found or not enabled - minions and upgrades cannot be crafted!");
+            return false;
+        }
+
+        ConfigMinionManager configMinionManager = resolveManager(topMinionPlugin, "configMinionManager", ConfigMinionManager.class);
+        ConfigUpgradeManager configUpgradeManager = resolveManager(topMinionPlugin, "configUpgradeManager", ConfigUpgradeManager.class);
+        source = new TopMinionItemSource(configMinionManager, configUpgradeManager);
+
+        boolean healthy = configMinionManager != null && configUpgradeManager != null;
+        if (healthy) {
+            plugin.debug(() -> "Resolved TopMinion config managers from " + topMinionPlugin.getClass().getName());
+        } else {
+            plugin.getLogger().severe("TopMinion API health check failed:");
+            plugin.getLogger().severe("  ConfigMinionManager: " + (configMinionManager != null ? "OK" : "UNAVAILABLE"));
+            plugin.getLogger().severe("  ConfigUpgradeManager: " + (configUpgradeManager != null ? "OK" : "UNAVAILABLE"));
+            plugin.getLogger().severe("Your TopMinion version may not be supported. Affected recipes will fail to craft.");
+        }
+        return healthy;
+    }
+
+    private <T> T resolveManager(Plugin topMinionPlugin, String fieldName, Class<T> type) {
+        try {
+            Field field = topMinionPlugin.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            Object value = field.get(topMinionPlugin);
+            if (value == null) {
+                plugin.getLogger().severe("TopMinion field '" + fieldName + "' is not initialized");
+                return null;
+            }
+            return type.cast(value);
+        } catch (NoSuchFieldException e) {
+            plugin.getLogger().severe("TopMinion field '" + fieldName + "' not found in " + topMinionPlugin.getClass().getName());
+        } catch (Exception e) {
+            plugin.getLogger().severe("Could not access TopMinion field '" + fieldName + "': " + e);
+        }
+        return null;
+    }
+
+    /**
+     * Use a different item source, e.g. a stand-in when running outside a server
+     * Clears all cached templates.
+     */
+    public void setItemSource(ItemSource source) {
+        invalidate();
+        this.source = source;
+    }
+
+    /**
+     * Drop every cached template (positive and negative)
+     */
+    public void invalidate() {
+        minionTemplates.clear();
+        upgradeTemplates.clear();
+    }
+
+    /**
+     * Get a minion item from TopMinion API
      *
      * @param player The player who will own the minion
      * @param minionId The ConfigMinion ID
@@ -35,107 +116,128 @@ public class ItemUtil {
      * @return ItemStack representing the minion, or null if not found
      */
     public ItemStack getMinionItem(Player player, String minionId, int level) {
-        try {
-            // Try to get TopMinion plugin instance
-            org.bukkit.plugin.Plugin topMinionPlugin = org.bukkit.Bukkit.getPluginManager().getPlugin("TopMinion");
-            if (topMinionPlugin == null) {
-                plugin.getLogger().severe("TopMinion plugin not found!");
-                return null;
-            }
+        ItemSource current = source;
+        if (current == null) return null;
 
-            // Use reflection to access ConfigMinionManager
-            java.lang.reflect.Field configManagerField = topMinionPlugin.getClass().getDeclaredField("configMinionManager");
-            configManagerField.setAccessible(true);
-            ConfigMinionManager configManager = (ConfigMinionManager) configManagerField.get(topMinionPlugin);
+        long start = System.nanoTime();
+        Object configMinion = current.getMinion(minionId);
+        TemplateKey key = new TemplateKey(minionId, level);
+        CachedTemplate cached = minionTemplates.get(key);
 
-            if (configManager == null) {
-                plugin.getLogger().warning("Could not access ConfigMinionManager");
-                return null;
-            }
+        // TopMinion creates new ConfigMinion objects when it reloads, which invalidates the entry
+        if (cached == null || cached.source != configMinion) {
+            cached = buildMinionTemplate(current, configMinion, minionId, level);
+            minionTemplates.put(key, cached);
+        }
 
-            // Get the config minion
-            ConfigMinion configMinion = configManager.getConfigMinion(minionId);
+        ItemStack item = cached.template != null ? cached.template.clone() : null;
+        plugin.getMetrics().getItemCreation().recordSince(start);
+        return item;
+    }
 
-            if (configMinion == null) {
-                plugin.getLogger().warning("ConfigMinion not found for ID: " + minionId);
-                return null;
-            }
+    private CachedTemplate buildMinionTemplate(ItemSource source, Object configMinion, String minionId, int level) {
+        if (configMinion == null) {
+            plugin.getLogger().warning("ConfigMinion not found for ID: " + minionId);
+            return new CachedTemplate(null, null);
+        }
 
-            // Get the display item
-            ItemStack item = configMinion.getDisplayItem();
+        ItemStack item = source.createMinionItem(configMinion, level);
+        if (item == null) {
+            plugin.getLogger().warning("Display item is null for minion: " + minionId);
+            return new CachedTemplate(configMinion, null);
+        }
 
-            if (item == null) {
-                plugin.getLogger().warning("Display item is null for minion: " + minionId);
-                return null;
-            }
+        // Tag the item so it can be used as an ingredient in other recipes
+        ItemStack template = item.clone();
+        ItemTags.tagMinion(template, minionId, level);
+        if (level > 1) {
+            addTierLore(template, level);
+        }
 
-            plugin.debug("Created minion item for: " + minionId + " level: " + level);
-            return item.clone();
+        plugin.debug(() -> "Cached minion item for: " + minionId + " level: " + level);
+        return new CachedTemplate(configMinion, template);
+    }
 
-        } catch (Exception e) {
-            plugin.getLogger().severe("Error getting minion item for " + minionId + ": " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
+    /**
+     * Show the tier of a minion in its lore
+     * TopMinion gives every level the same display item, so the tier is otherwise only in our tag.
+     */
+    private void addTierLore(ItemStack item, int level) {
+        MessageTemplate tierLore = plugin.getSettings().getMinionTierLore();
+        ItemMeta meta = item.getItemMeta();
+        if (tierLore.isEmpty() || meta == null) return;
+
+        List<String> lore = meta.hasLore() ? new ArrayList<>(meta.getLore()) : new ArrayList<>();
+        lore.add(tierLore.render("level", String.valueOf(level)));
+        meta.setLore(lore);
+        item.setItemMeta(meta);
     }
 
     /**
      * Get an upgrade item from TopMinion API
      *
-     * NOTE: Current TopMinion v3 dev build has limited API
-     * This method uses reflection as a workaround until full API is released
-     *
      * @param upgradeId The ConfigUpgrade ID
      * @return ItemStack representing the upgrade, or null if not found
      */
     public ItemStack getUpgradeItem(String upgradeId) {
-        try {
-            // Try to get TopMinion plugin instance
-            org.bukkit.plugin.Plugin topMinionPlugin = org.bukkit.Bukkit.getPluginManager().getPlugin("TopMinion");
-            if (topMinionPlugin == null) {
-                plugin.getLogger().severe("TopMinion plugin not found!");
-                return null;
-            }
+        ItemSource current = source;
+        if (current == null) return null;
 
-            // Use reflection to access ConfigUpgradeManager
-            java.lang.reflect.Field upgradeManagerField = topMinionPlugin.getClass().getDeclaredField("configUpgradeManager");
-            upgradeManagerField.setAccessible(true);
-            ConfigUpgradeManager upgradeManager = (ConfigUpgradeManager) upgradeManagerField.get(topMinionPlugin);
+        long start = System.nanoTime();
+        Object configUpgrade = current.getUpgrade(upgradeId);
+        TemplateKey key = new TemplateKey(upgradeId, 0);
+        CachedTemplate cached = upgradeTemplates.get(key);
 
-            if (upgradeManager == null) {
-                plugin.getLogger().warning("Could not access ConfigUpgradeManager");
-                return null;
-            }
+        if (cached == null || cached.source != configUpgrade) {
+            cached = buildUpgradeTemplate(current, configUpgrade, upgradeId);
+            upgradeTemplates.put(key, cached);
+        }
 
-            // Get the config upgrade
-            ConfigUpgrade configUpgrade = upgradeManager.getConfigUpgrade(upgradeId);
+        ItemStack item = cached.template != null ? cached.template.clone() : null;
+        plugin.getMetrics().getItemCreation().recordSince(start);
+        return item;
+    }
 
-            if (configUpgrade == null) {
-                plugin.getLogger().warning("ConfigUpgrade not found for ID: " + upgradeId);
-                return null;
-            }
+    private CachedTemplate buildUpgradeTemplate(ItemSource source, Object configUpgrade, String upgradeId) {
+        if (configUpgrade == null) {
+            plugin.getLogger().warning("ConfigUpgrade not found for ID: " + upgradeId);
+            return new CachedTemplate(null, null);
+        }
 
-            // Check if it's a SKIN type (not craftable)
-            if (configUpgrade.getType() == UpgradeType.SKIN) {
-                plugin.getLogger().warning("Cannot craft SKIN type upgrades: " + upgradeId);
-                return null;
-            }
+        // Check if it's a SKIN type (not craftable)
+        if (!source.isCraftable(configUpgrade)) {
+            plugin.getLogger().warning("Cannot craft SKIN type upgrades: " + upgradeId);
+            return new CachedTemplate(configUpgrade, null);
+        }
 
-            // Get the display item
-            ItemStack item = configUpgrade.getDisplayItem();
+        ItemStack item = source.createUpgradeItem(configUpgrade);
+        if (item == null) {
+            plugin.getLogger().warning("Display item is null for upgrade: " + upgradeId);
+            return new CachedTemplate(configUpgrade, null);
+        }
 
-            if (item == null) {
-                plugin.getLogger().warning("Display item is null for upgrade: " + upgradeId);
-                return null;
-            }
+        ItemStack template = item.clone();
+        ItemTags.tagUpgrade(template, upgradeId);
 
-            plugin.debug("Created upgrade item for: " + upgradeId + " type: " + configUpgrade.getType());
-            return item.clone();
+        plugin.debug(() -> "Cached upgrade item for: " + upgradeId);
+        return new CachedTemplate(configUpgrade, template);
+    }
 
-        } catch (Exception e) {
-            plugin.getLogger().severe("Error getting upgrade item for " + upgradeId + ": " + e.getMessage());
-            e.printStackTrace();
-            return null;
+    /**
+     * Get the result item of a registered recipe
+     *
+     * @param data The recipe to get the result for
+     * @return A fresh copy of the minion or upgrade item, or null if it could not be created
+     */
+    public ItemStack getResultItem(RecipeManager.RecipeData data) {
+        switch (data.getType()) {
+            case MINION:
+                RecipeManager.MinionRecipeData minion = (RecipeManager.MinionRecipeData) data;
+                return getMinionItem(null, minion.getMinionId(), minion.getLevel());
+            case UPGRADE:
+                return getUpgradeItem(((RecipeManager.UpgradeRecipeData) data).getUpgradeId());
+            default:
+                return null;
         }
     }
 
@@ -152,4 +254,44 @@ public class ItemUtil {
             return false;
         }
     }
+
+    /**
+     * Cache key for a result template
+     */
+    private static final class TemplateKey {
+        private final String id;
+        private final int level;
+
+        TemplateKey(String id, int level) {
+            this.id = id;
+            this.level = level;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TemplateKey)) return false;
+            TemplateKey other = (TemplateKey) o;
+            return level == other.level && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id.hashCode() + level;
+        }
+    }
+
+    /**
+     * A cached result item together with the TopMinion config object it was built from.
+     * A null template is a cached negative result (unknown ID, SKIN upgrade or missing display item).
+     */
+    private static final class CachedTemplate {
+        private final Object source;
+        private final ItemStack template;
+
+        CachedTemplate(Object source, ItemStack template) {
+            this.source = source;
+            this.template = template;
+        }
+    }
 }
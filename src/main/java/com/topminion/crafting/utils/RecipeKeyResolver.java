@@ -0,0 +1,70 @@
+package com.topminion.crafting.utils;
+
+import org.bukkit.Keyed;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.Recipe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Resolves the NamespacedKey of a Recipe without per-call reflection
+ *
+ * Recipes implementing Keyed (every crafting recipe on modern servers) are read directly.
+ * Anything else falls back to a getKey() MethodHandle resolved once per recipe class.
+ */
+public final class RecipeKeyResolver {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final MethodType GET_KEY_TYPE = MethodType.methodType(NamespacedKey.class);
+
+    private static final ClassValue<MethodHandle> GET_KEY_HANDLES = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return LOOKUP.findVirtual(type, "getKey", GET_KEY_TYPE);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+    };
+
+    private RecipeKeyResolver() {
+    }
+
+    /**
+     * Get the key of a recipe
+     *
+     * @param recipe The recipe from a crafting event
+     * @return The recipe key, or null if the recipe has none
+     */
+    public static NamespacedKey getKey(Recipe recipe) {
+        if (recipe == null) return null;
+        if (recipe instanceof Keyed) {
+            return ((Keyed) recipe).getKey();
+        }
+
+        MethodHandle handle = GET_KEY_HANDLES.get(recipe.getClass());
+        if (handle == null) return null;
+
+        try {
+            return (NamespacedKey) handle.invoke(recipe);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the key of a recipe, but only if it belongs to the given namespace
+     *
+     * @param recipe The recipe from a crafting event
+     * @param namespace The namespace to accept (already lower case)
+     * @return The recipe key, or null if the recipe has none or belongs to another namespace
+     */
+    public static NamespacedKey getKey(Recipe recipe, String namespace) {
+        NamespacedKey key = getKey(recipe);
+        if (key == null || !namespace.equals(key.getNamespace())) return null;
+        return key;
+    }
+}
@@ -0,0 +1,91 @@
+package com.topminion.crafting.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.inventory.Recipe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Adds and removes recipes in batches, sending the recipe list to players only once per batch
+ *
+ * Paper resends every recipe to every online player on each addRecipe/removeRecipe call.
+ * Where the server offers the variants with a resend flag and updateRecipes(), they are used
+ * so a batch of changes costs a single sync. Otherwise this falls back to the plain Bukkit calls.
+ */
+public final class RecipeSync {
+
+    private static final MethodHandle ADD_RECIPE = find("addRecipe",
+            MethodType.methodType(boolean.class, Recipe.class, boolean.class));
+    private static final MethodHandle REMOVE_RECIPE = find("removeRecipe",
+            MethodType.methodType(boolean.class, NamespacedKey.class, boolean.class));
+    private static final MethodHandle UPDATE_RECIPES = find("updateRecipes",
+            MethodType.methodType(void.class));
+
+    private static final boolean BATCHED = ADD_RECIPE != null && REMOVE_RECIPE != null && UPDATE_RECIPES != null;
+
+    private RecipeSync() {
+    }
+
+    private static MethodHandle find(String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Server.class, name, type);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if changes are batched and synced once, false if every change is sent by the server itself
+     */
+    public static boolean isBatched() {
+        return BATCHED;
+    }
+
+    /**
+     * Register a recipe without sending it to players yet
+     */
+    public static boolean addRecipe(Recipe recipe) {
+        if (BATCHED) {
+            try {
+                return (boolean) ADD_RECIPE.invoke(Bukkit.getServer(), recipe, false);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Could not add recipe", t);
+            }
+        }
+        return Bukkit.addRecipe(recipe);
+    }
+
+    /**
+     * Unregister a recipe without sending the change to players yet
+     */
+    public static boolean removeRecipe(NamespacedKey key) {
+        if (BATCHED) {
+            try {
+                return (boolean) REMOVE_RECIPE.invoke(Bukkit.getServer(), key, false);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Could not remove recipe", t);
+            }
+        }
+        return Bukkit.removeRecipe(key);
+    }
+
+    /**
+     * Send the current recipe list to all online players once
+     */
+    public static void sync() {
+        if (!BATCHED) return;
+        try {
+            UPDATE_RECIPES.invoke(Bukkit.getServer());
+        } catch (Throwable t) {
+            Bukkit.getLogger().warning("Could not send recipe updates to players: " + t);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.topminion.crafting.utils;
+
+import com.sarry20.topminion.api.manager.ConfigMinionManager;
+import com.sarry20.topminion.api.manager.ConfigUpgradeManager;
+import com.sarry20.topminion.api.minion.config.ConfigMinion;
+import com.sarry20.topminion.api.minion.upgrade.UpgradeType;
+import com.sarry20.topminion.api.minion.upgrade.config.ConfigUpgrade;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Item source backed by TopMinion's config managers
+ * Either manager may be null if it could not be resolved; its IDs are then unknown.
+ */
+final class TopMinionItemSource implements ItemSource {
+
+    private final ConfigMinionManager configMinionManager;
+    private final ConfigUpgradeManager configUpgradeManager;
+
+    TopMinionItemSource(ConfigMinionManager configMinionManager, ConfigUpgradeManager configUpgradeManager) {
+        this.configMinionManager = configMinionManager;
+        this.configUpgradeManager = configUpgradeManager;
+    }
+
+    @Override
+    public Object getMinion(String minionId) {
+        return configMinionManager != null ? configMinionManager.getConfigMinion(minionId) : null;
+    }
+
+    @Override
+    public ItemStack createMinionItem(Object minion, int level) {
+        return ((ConfigMinion) minion).getDisplayItem();
+    }
+
+    @Override
+    public Object getUpgrade(String upgradeId) {
+        return configUpgradeManager != null ? configUpgradeManager.getConfigUpgrade(upgradeId) : null;
+    }
+
+    @Override
+    public boolean isCraftable(Object upgrade) {
+        return ((ConfigUpgrade) upgrade).getType() != UpgradeType.SKIN;
+    }
+
+    @Override
+    public ItemStack createUpgradeItem(Object upgrade) {
+        return ((ConfigUpgrade) upgrade).getDisplayItem();
+    }
+}
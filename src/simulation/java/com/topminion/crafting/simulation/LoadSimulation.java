@@ -0,0 +1,248 @@
+package com.topminion.crafting.simulation;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.listeners.CraftListener;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.metrics.CraftMetrics;
+import com.topminion.crafting.metrics.LatencyHistogram;
+import com.topminion.crafting.standins.StandIns;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.ShapedRecipe;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load simulation: many players crafting, shift-clicking and reloading at once
+ *
+ * The plugin runs against stand-ins for Bukkit and TopMinion. Every tick, the scheduler runs its
+ * due tasks (including the craft queue) and a random share of the players craft one recipe,
+ * all on the simulation's main thread. Recipe reloads are parsed on the async pool while the
+ * ticks continue. The report covers main-thread time per tick, main-thread allocations and
+ * craft throughput.
+ *
+ * Usage: LoadSimulation [--players=500] [--ticks=6000] [--warmup-ticks=600] [--recipes=200]
+ *        [--crafts-per-minute=6] [--shift-ratio=0.2] [--denied-ratio=0.05]
+ *        [--reload-every=1200] [--reload-changes=10] [--seed=1]
+ */
+public final class LoadSimulation {
+
+    private static final long TICK_BUDGET_NANOS = 50_000_000L;
+
+    private final Map<String, String> options;
+    private final Random random;
+
+    private File dataFolder;
+    private TopMinionCrafting plugin;
+    private TickScheduler scheduler;
+    private ExecutorService async;
+    private CraftListener listener;
+    private final List<SimulatedPlayer> players = new ArrayList<>();
+    private final List<SimulatedRecipe> recipes = new ArrayList<>();
+
+    private LoadSimulation(Map<String, String> options) {
+        this.options = options;
+        this.random = new Random(getLong("seed", 1));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Unknown argument: " + arg + " (expected --name=value)");
+                System.exit(2);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadSimulation simulation = new LoadSimulation(options);
+        try {
+            simulation.setup();
+            simulation.run();
+        } finally {
+            simulation.shutdown();
+        }
+    }
+
+    private void setup() throws IOException {
+        int recipeCount = getInt("recipes", 200);
+        dataFolder = Files.createTempDirectory("tmc-simulation").toFile();
+        StandIns.generateRecipes(dataFolder, recipeCount / 2, recipeCount - recipeCount / 2);
+
+        async = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "Simulation-Async");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = new TickScheduler(async);
+        StandIns.installServer(scheduler.asBukkitScheduler());
+
+        plugin = StandIns.enablePlugin(dataFolder);
+        plugin.getItemUtil().setItemSource(new StandIns.FakeItemSource());
+        listener = new CraftListener(plugin);
+
+        for (RecipeManager.RecipeData data : plugin.getRecipeManager().getRegistry().getRecipes()) {
+            recipes.add(new SimulatedRecipe(data));
+        }
+
+        int playerCount = getInt("players", 500);
+        double deniedRatio = getDouble("denied-ratio", 0.05);
+        for (int i = 0; i < playerCount; i++) {
+            players.add(new SimulatedPlayer(i, random.nextDouble() >= deniedRatio));
+        }
+    }
+
+    private void run() throws Exception {
+        int warmupTicks = getInt("warmup-ticks", 600);
+        int ticks = getInt("ticks", 6000);
+        double craftChance = getDouble("crafts-per-minute", 6) / (60 * 20);
+        double shiftRatio = getDouble("shift-ratio", 0.2);
+        int reloadEvery = getInt("reload-every", 1200);
+
+        System.out.println("Warming up for " + warmupTicks + " ticks...");
+        for (int i = 0; i < warmupTicks; i++) {
+            tick(craftChance, shiftRatio, 0, null);
+        }
+
+        CraftMetrics metrics = plugin.getMetrics();
+        long craftedBefore = metrics.getCrafted();
+        long deniedBefore = metrics.getDenied();
+        long failedBefore = metrics.getFailed();
+        long throttledBefore = metrics.getThrottled();
+        long reloadsBefore = metrics.getReload().getCount();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        System.out.println("Simulating " + players.size() + " players for " + ticks + " ticks...");
+        LatencyHistogram tickTimes = new LatencyHistogram();
+        int[] clicks = new int[2];
+        long overBudget = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long wallStart = System.nanoTime();
+        for (int i = 1; i <= ticks; i++) {
+            long start = System.nanoTime();
+            tick(craftChance, shiftRatio, reloadEvery > 0 && i % reloadEvery == 0 ? getInt("reload-changes", 10) : -1, clicks);
+            long elapsed = System.nanoTime() - start;
+            tickTimes.record(elapsed);
+            // Counted exactly; the histogram buckets are too coarse to tell 35ms from 50ms
+            if (elapsed > TICK_BUDGET_NANOS) overBudget++;
+        }
+        long wallNanos = System.nanoTime() - wallStart;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // Let reloads that are still parsing finish so their cost is reported
+        async.shutdown();
+        async.awaitTermination(30, TimeUnit.SECONDS);
+
+        long crafted = metrics.getCrafted() - craftedBefore;
+        double wallSeconds = wallNanos / 1e9;
+
+        System.out.println();
+        System.out.println("=== TopMinion-Crafting load simulation ===");
+        System.out.printf(Locale.ROOT, "Players: %d, recipes: %d, ticks: %d (%.1fs of game time, %.1fs wall)%n",
+                players.size(), recipes.size(), ticks, ticks / 20.0, wallSeconds);
+        System.out.printf(Locale.ROOT, "Clicks: %d normal, %d shift%n", clicks[0], clicks[1]);
+        System.out.printf(Locale.ROOT, "Crafts: %d completed, %d denied, %d failed, %d throttled%n",
+                crafted, metrics.getDenied() - deniedBefore, metrics.getFailed() - failedBefore,
+                metrics.getThrottled() - throttledBefore);
+        System.out.printf(Locale.ROOT, "Throughput: %.0f crafts/s wall, %.2f crafts/tick%n",
+                crafted / wallSeconds, (double) crafted / ticks);
+        System.out.printf(Locale.ROOT, "Main thread per tick: mean %.3fms, p50 < %.3fms, p99 < %.3fms, max %.3fms, %d tick(s) over 50ms%n",
+                tickTimes.getMeanNanos() / 1e6, tickTimes.getPercentileNanos(0.50) / 1e6,
+                tickTimes.getPercentileNanos(0.99) / 1e6, tickTimes.getMaxNanos() / 1e6, overBudget);
+        System.out.printf(Locale.ROOT, "Main thread allocations: %.1f MB total, %.1f KB/tick, %.0f bytes/click%n",
+                allocated / 1048576.0, allocated / 1024.0 / ticks, (double) allocated / Math.max(1, clicks[0] + clicks[1]));
+        System.out.printf(Locale.ROOT, "Reloads: %d completed, mean %.1fms, max %.1fms (parse + apply)%n",
+                metrics.getReload().getCount() - reloadsBefore, metrics.getReload().getMeanNanos() / 1e6,
+                metrics.getReload().getMaxNanos() / 1e6);
+        System.out.printf(Locale.ROOT, "Craft handler: mean %.1fus, p99 < %.1fus; item creation: mean %.1fus%n",
+                metrics.getCraftHandler().getMeanNanos() / 1e3, metrics.getCraftHandler().getPercentileNanos(0.99) / 1e3,
+                metrics.getItemCreation().getMeanNanos() / 1e3);
+    }
+
+    /**
+     * Run one server tick
+     *
+     * @param reloadChanges Change this many recipe files and reload, or -1 to not reload
+     * @param clicks Counts of normal and shift clicks, or null during warm-up
+     */
+    private void tick(double craftChance, double shiftRatio, int reloadChanges, int[] clicks) throws IOException {
+        scheduler.tick();
+
+        for (SimulatedPlayer player : players) {
+            if (random.nextDouble() >= craftChance) continue;
+
+            SimulatedRecipe recipe = recipes.get(random.nextInt(recipes.size()));
+            boolean shift = random.nextDouble() < shiftRatio;
+            player.craft(listener, recipe.recipe, recipe.ingredients, shift);
+            if (clicks != null) clicks[shift ? 1 : 0]++;
+        }
+
+        if (reloadChanges >= 0) {
+            reload(reloadChanges);
+        }
+    }
+
+    /**
+     * Edit some generated recipe files off the main thread, then reload like /tmc reload does
+     */
+    private void reload(int changes) {
+        int minionFiles = getInt("recipes", 200) / 2;
+        long round = scheduler.getCurrentTick();
+        async.execute(() -> {
+            try {
+                for (int i = 0; i < changes && minionFiles > 0; i++) {
+                    String filler = (round + i) % 2 == 0 ? "STONE" : "COBBLESTONE";
+                    StandIns.writeMinionRecipe(dataFolder, (int) ((round * 31 + i) % minionFiles), filler);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not change recipe files: " + e.getMessage());
+            }
+            plugin.getRecipeManager().reloadRecipes(() -> { });
+        });
+    }
+
+    private void shutdown() throws IOException {
+        if (async != null) async.shutdownNow();
+        if (plugin != null) plugin.onDisable();
+        if (dataFolder != null) StandIns.delete(dataFolder);
+    }
+
+    private int getInt(String name, int def) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : def;
+    }
+
+    private long getLong(String name, long def) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : def;
+    }
+
+    private double getDouble(String name, double def) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : def;
+    }
+
+    /**
+     * A registered recipe with the grid contents of one crafting
+     */
+    private static final class SimulatedRecipe {
+        private final Recipe recipe;
+        private final ItemStack[] ingredients;
+
+        SimulatedRecipe(RecipeManager.RecipeData data) {
+            this.recipe = new ShapedRecipe(data.getKey(), new ItemStack(data.getType().getPlaceholder()));
+            this.ingredients = StandIns.grid(data.getDefinition());
+        }
+    }
+}
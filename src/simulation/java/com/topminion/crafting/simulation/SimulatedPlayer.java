@@ -0,0 +1,126 @@
+package com.topminion.crafting.simulation;
+
+import com.topminion.crafting.listeners.CraftListener;
+import com.topminion.crafting.standins.StandIns;
+import com.topminion.crafting.utils.CraftingUtil;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.Recipe;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * A player standing at a crafting table with an empty inventory
+ * The crafting grid keeps its state between events, so queued shift-click crafts see what vanilla would.
+ */
+final class SimulatedPlayer {
+
+    private static final int[] VANILLA_AMOUNTS = {1, 1, 1, 1, 1, 1, 1, 1, 1};
+
+    private final Player player;
+    private final CraftingInventory inventory;
+    private final InventoryView view;
+
+    private ItemStack[] matrix = new ItemStack[9];
+    private ItemStack result;
+    private Recipe recipe;
+
+    SimulatedPlayer(int index, boolean hasPermission) {
+        UUID uuid = new UUID(0, index);
+        String name = "Player" + index;
+
+        PlayerInventory playerInventory = StandIns.stub(PlayerInventory.class, (method, args) -> {
+            switch (method) {
+                case "getStorageContents":
+                    return new ItemStack[36];
+                case "addItem":
+                    return new HashMap<Integer, ItemStack>();
+                case "getSize":
+                    return 36;
+                default:
+                    return StandIns.DEFAULT;
+            }
+        });
+        this.inventory = StandIns.stub(CraftingInventory.class, (method, args) -> {
+            switch (method) {
+                case "getMatrix":
+                    return matrix.clone();
+                case "setMatrix":
+                    matrix = ((ItemStack[]) args[0]).clone();
+                    return null;
+                case "getResult":
+                    return result;
+                case "setResult":
+                    result = (ItemStack) args[0];
+                    return null;
+                case "getRecipe":
+                    return recipe;
+                case "getSize":
+                    return 10;
+                default:
+                    return StandIns.DEFAULT;
+            }
+        });
+        this.player = StandIns.stub(Player.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return name;
+                case "getUniqueId":
+                    return uuid;
+                case "isOnline":
+                    return true;
+                case "hasPermission":
+                    return hasPermission;
+                case "getInventory":
+                    return playerInventory;
+                case "getOpenInventory":
+                    return getView();
+                default:
+                    return StandIns.DEFAULT;
+            }
+        });
+        this.view = new StandIns.CraftingView(inventory, playerInventory, player);
+    }
+
+    private InventoryView getView() {
+        return view;
+    }
+
+    /**
+     * Fill the grid, let the plugin prepare the result and click it, as the server would
+     *
+     * @param recipe The recipe the grid matches
+     * @param ingredients One crafting of the recipe, laid out in grid slots with their amounts
+     * @param shiftClick true to shift-click, which fills every ingredient stack to 64
+     * @return true if the click went through vanilla (not cancelled)
+     */
+    boolean craft(CraftListener listener, Recipe recipe, ItemStack[] ingredients, boolean shiftClick) {
+        this.recipe = recipe;
+        ItemStack[] grid = new ItemStack[9];
+        for (int i = 0; i < grid.length; i++) {
+            if (ingredients[i] == null) continue;
+            grid[i] = ingredients[i].clone();
+            if (shiftClick) grid[i].setAmount(64);
+        }
+        matrix = grid;
+
+        listener.onPrepareCraft(new PrepareItemCraftEvent(inventory, view, false));
+        CraftItemEvent event = StandIns.craftEvent(view, recipe, shiftClick);
+        listener.onCraft(event);
+        if (event.isCancelled()) return false;
+
+        // Vanilla consumes one item per slot and hands out the result
+        CraftingUtil.consumeMatrix(inventory, inventory.getMatrix(), VANILLA_AMOUNTS, 1);
+        return true;
+    }
+
+    Player getPlayer() {
+        return player;
+    }
+}
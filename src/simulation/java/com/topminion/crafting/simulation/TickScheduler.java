@@ -0,0 +1,140 @@
+package com.topminion.crafting.simulation;
+
+import com.topminion.crafting.standins.StandIns;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduler stand-in driven by the simulation's main thread, one {@link #tick()} per server tick
+ *
+ * Sync tasks run on the main thread during tick(); async tasks run on an executor, like the
+ * Bukkit scheduler's async pool. Tasks may be scheduled from any thread.
+ */
+final class TickScheduler {
+
+    private final ExecutorService async;
+    private final Queue<ScheduledTask> incoming = new ConcurrentLinkedQueue<>();
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private long currentTick;
+
+    TickScheduler(ExecutorService async) {
+        this.async = async;
+    }
+
+    /**
+     * @return A BukkitScheduler backed by this scheduler
+     */
+    BukkitScheduler asBukkitScheduler() {
+        return StandIns.stub(BukkitScheduler.class, (name, args) -> {
+            switch (name) {
+                case "runTask":
+                    return schedule((Runnable) args[1], 1, 0, false);
+                case "runTaskLater":
+                    return schedule((Runnable) args[1], (long) args[2], 0, false);
+                case "runTaskTimer":
+                    return schedule((Runnable) args[1], (long) args[2], (long) args[3], false);
+                case "runTaskAsynchronously":
+                    return schedule((Runnable) args[1], 0, 0, true);
+                case "runTaskTimerAsynchronously":
+                    return schedule((Runnable) args[1], (long) args[2], (long) args[3], true);
+                default:
+                    return StandIns.DEFAULT;
+            }
+        });
+    }
+
+    private BukkitTask schedule(Runnable runnable, long delay, long period, boolean asynchronous) {
+        ScheduledTask task = new ScheduledTask(nextId.getAndIncrement(), runnable, Math.max(1, delay), period, asynchronous);
+        if (asynchronous && delay <= 0) {
+            async.execute(runnable);
+        } else {
+            incoming.offer(task);
+        }
+        return task.handle;
+    }
+
+    /**
+     * Run one server tick: every sync task that is due runs on the calling thread
+     */
+    void tick() {
+        currentTick++;
+
+        ScheduledTask added;
+        while ((added = incoming.poll()) != null) {
+            added.nextTick = currentTick - 1 + added.nextTick;
+            tasks.add(added);
+        }
+
+        Iterator<ScheduledTask> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            ScheduledTask task = iterator.next();
+            if (task.cancelled) {
+                iterator.remove();
+                continue;
+            }
+            if (task.nextTick > currentTick) continue;
+
+            if (task.asynchronous) {
+                async.execute(task.runnable);
+            } else {
+                task.runnable.run();
+            }
+
+            if (task.period > 0) {
+                task.nextTick = currentTick + task.period;
+            } else {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The number of ticks run so far
+     */
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * A task waiting for its tick; nextTick holds the delay until the task is picked up by tick()
+     */
+    private static final class ScheduledTask {
+        private final Runnable runnable;
+        private final long period;
+        private final boolean asynchronous;
+        private final BukkitTask handle;
+        private volatile boolean cancelled;
+        private long nextTick;
+
+        ScheduledTask(int id, Runnable runnable, long delay, long period, boolean asynchronous) {
+            this.runnable = runnable;
+            this.nextTick = delay;
+            this.period = period;
+            this.asynchronous = asynchronous;
+            this.handle = StandIns.stub(BukkitTask.class, (name, args) -> {
+                switch (name) {
+                    case "cancel":
+                        cancelled = true;
+                        return null;
+                    case "isCancelled":
+                        return cancelled;
+                    case "getTaskId":
+                        return id;
+                    case "isSync":
+                        return !asynchronous;
+                    default:
+                        return StandIns.DEFAULT;
+                }
+            });
+        }
+    }
+}
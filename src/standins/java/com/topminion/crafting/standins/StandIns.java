@@ -0,0 +1,578 @@
+package com.topminion.crafting.standins;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.recipes.Ingredient;
+import com.topminion.crafting.recipes.RecipeDefinition;
+import com.topminion.crafting.utils.ItemSource;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Local stand-ins for the Bukkit server and the TopMinion managers
+ *
+ * Bukkit interfaces are implemented with dynamic proxies that answer the few calls the plugin
+ * makes and return defaults (false, 0, null) for everything else. Unless another scheduler is
+ * installed, scheduled tasks run inline. Item meta keeps custom model data and tags only.
+ */
+public final class StandIns {
+
+    /**
+     * Returned by an answer function to fall back to the default value
+     */
+    public static final Object DEFAULT = new Object();
+
+    private static final Logger LOGGER = Logger.getLogger("StandInServer");
+
+    private StandIns() {
+    }
+
+    /**
+     * Create a proxy for an interface
+     *
+     * @param type The interface
+     * @param answers Called with the method name and arguments; returns the result or {@link #DEFAULT}
+     */
+    public static <T> T stub(Class<T> type, BiFunction<String, Object[], Object> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return type.getSimpleName() + "StandIn";
+            }
+
+            Object answer = answers.apply(method.getName(), args);
+            return answer != DEFAULT ? answer : defaultValue(method);
+        });
+        return type.cast(proxy);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) return false;
+        if (returnType == int.class) return 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == double.class) return 0D;
+        if (returnType == float.class) return 0F;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == char.class) return (char) 0;
+        return null;
+    }
+
+    /**
+     * Item factory whose item meta only holds custom model data and PersistentDataContainer tags
+     * Meta without either equals no meta at all, so plain stacks stay similar to each other.
+     */
+    public static ItemFactory itemFactory() {
+        Object proxy = Proxy.newProxyInstance(ItemFactory.class.getClassLoader(), new Class<?>[]{ItemFactory.class}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    // Object.equals, or ItemFactory.equals(meta1, meta2) which ItemStack uses for hasItemMeta and isSimilar
+                    return args.length == 1 ? self == args[0] : MetaData.of(args[0]).equals(MetaData.of(args[1]));
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "ItemFactoryStandIn";
+                case "getItemMeta":
+                    return new MetaData().toMeta();
+                case "isApplicable":
+                    return true;
+                case "asMetaFor":
+                    return args[0];
+                case "updateMaterial":
+                    return args[1];
+                default:
+                    return defaultValue(method);
+            }
+        });
+        return ItemFactory.class.cast(proxy);
+    }
+
+    /**
+     * Install a stand-in server whose scheduler runs tasks inline, once per JVM
+     */
+    public static void installServer() {
+        installServer(inlineScheduler());
+    }
+
+    /**
+     * Install a stand-in server with the given scheduler, once per JVM
+     */
+    public static synchronized void installServer(BukkitScheduler scheduler) {
+        if (Bukkit.getServer() != null) return;
+        LOGGER.setLevel(Level.WARNING);
+
+        PluginManager pluginManager = stub(PluginManager.class, (name, args) -> DEFAULT);
+        ItemFactory itemFactory = itemFactory();
+        Server server = stub(Server.class, (name, args) -> {
+            switch (name) {
+                case "getLogger":
+                    return LOGGER;
+                case "getName":
+                    return "StandInServer";
+                case "getVersion":
+                case "getBukkitVersion":
+                    return "1.20.1-R0.1-SNAPSHOT";
+                case "getPluginManager":
+                    return pluginManager;
+                case "getScheduler":
+                    return scheduler;
+                case "getItemFactory":
+                    return itemFactory;
+                case "recipeIterator":
+                    return Collections.emptyIterator();
+                case "isPrimaryThread":
+                case "addRecipe":
+                case "removeRecipe":
+                    return true;
+                default:
+                    return DEFAULT;
+            }
+        });
+        Bukkit.setServer(server);
+    }
+
+    /**
+     * Scheduler that runs tasks inline on the calling thread and never runs repeating tasks
+     * A reload therefore completes before the call returns.
+     */
+    public static BukkitScheduler inlineScheduler() {
+        BukkitTask task = stub(BukkitTask.class, (name, args) -> DEFAULT);
+        return stub(BukkitScheduler.class, (name, args) -> {
+            switch (name) {
+                case "runTask":
+                case "runTaskAsynchronously":
+                    ((Runnable) args[1]).run();
+                    return task;
+                case "runTaskLater":
+                case "runTaskTimer":
+                case "runTaskTimerAsynchronously":
+                    return task;
+                default:
+                    return DEFAULT;
+            }
+        });
+    }
+
+    /**
+     * Create and enable the plugin on the stand-in server, installing an inline server if there is none
+     *
+     * @param dataFolder The plugin folder, with any generated recipe files already in place
+     */
+    public static TopMinionCrafting enablePlugin(File dataFolder) {
+        TopMinionCrafting plugin = createPlugin(dataFolder);
+        plugin.onEnable();
+        return plugin;
+    }
+
+    /**
+     * Create the plugin on the stand-in server without enabling it, installing an inline server if there is none
+     * Enough for classes that only use the plugin folder and logger.
+     */
+    @SuppressWarnings("deprecation")
+    public static TopMinionCrafting createPlugin(File dataFolder) {
+        installServer();
+        JavaPluginLoader loader = new JavaPluginLoader(Bukkit.getServer());
+        PluginDescriptionFile description = new PluginDescriptionFile("TopMinion-Crafting", "standin",
+                TopMinionCrafting.class.getName());
+
+        StandInPlugin plugin = new StandInPlugin(loader, description, dataFolder, new File(dataFolder, "plugin.jar"));
+        plugin.getLogger().setLevel(Level.WARNING);
+        return plugin;
+    }
+
+    /**
+     * A player that is online and has every permission
+     */
+    public static Player player(String name) {
+        return stub(Player.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return name;
+                case "getUniqueId":
+                    return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+                case "isOnline":
+                case "hasPermission":
+                    return true;
+                default:
+                    return DEFAULT;
+            }
+        });
+    }
+
+    /**
+     * Create a craft event for a click on the result slot of a crafting table
+     *
+     * @param recipe The recipe the grid matches
+     * @param result The item in the result slot
+     * @param shiftClick true for a shift-click craft
+     */
+    public static CraftItemEvent craftEvent(Player player, Recipe recipe, ItemStack result, boolean shiftClick) {
+        return craftEvent(player, recipe, result, new ItemStack[9], shiftClick);
+    }
+
+    /**
+     * Create a craft event for a click on the result slot of a crafting table holding the given grid
+     *
+     * @param matrix The grid contents, see {@link #grid(RecipeDefinition)}
+     */
+    public static CraftItemEvent craftEvent(Player player, Recipe recipe, ItemStack result, ItemStack[] matrix, boolean shiftClick) {
+        CraftingInventory inventory = stub(CraftingInventory.class, (name, args) -> {
+            switch (name) {
+                case "getResult":
+                    return result;
+                case "getRecipe":
+                    return recipe;
+                case "getSize":
+                    return 10;
+                case "getMatrix":
+                    return matrix.clone();
+                default:
+                    return DEFAULT;
+            }
+        });
+        PlayerInventory playerInventory = stub(PlayerInventory.class, (name, args) -> {
+            switch (name) {
+                case "getSize":
+                    return 36;
+                case "getHolder":
+                    return player;
+                default:
+                    return DEFAULT;
+            }
+        });
+
+        return craftEvent(new CraftingView(inventory, playerInventory, player), recipe, shiftClick);
+    }
+
+    /**
+     * Create a craft event for a click on the result slot of an open crafting view
+     */
+    public static CraftItemEvent craftEvent(InventoryView view, Recipe recipe, boolean shiftClick) {
+        return new CraftItemEvent(recipe, view, InventoryType.SlotType.RESULT, 0,
+                shiftClick ? ClickType.SHIFT_LEFT : ClickType.LEFT,
+                shiftClick ? InventoryAction.MOVE_TO_OTHER_INVENTORY : InventoryAction.PICKUP_ALL);
+    }
+
+    /**
+     * Lay out one crafting of a recipe in the 3x3 grid, with the amount each slot needs
+     */
+    public static ItemStack[] grid(RecipeDefinition definition) {
+        ItemStack[] grid = new ItemStack[9];
+        if (definition.isShaped()) {
+            List<String> shape = definition.getShape();
+            for (int row = 0; row < shape.size(); row++) {
+                for (int column = 0; column < shape.get(row).length(); column++) {
+                    Ingredient ingredient = definition.getShapedIngredients().get(shape.get(row).charAt(column));
+                    if (ingredient != null) grid[row * 3 + column] = new ItemStack(ingredient.getMaterial(), ingredient.getAmount());
+                }
+            }
+        } else {
+            List<Ingredient> ingredients = definition.getShapelessIngredients();
+            for (int i = 0; i < ingredients.size() && i < 9; i++) {
+                grid[i] = new ItemStack(ingredients.get(i).getMaterial(), ingredients.get(i).getAmount());
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Write recipe files for generated minion and upgrade IDs
+     *
+     * @param dataFolder The plugin folder
+     * @param minions The number of minion recipes (minion_0 ... minion_n)
+     * @param upgrades The number of upgrade recipes (upgrade_0 ... upgrade_n)
+     */
+    public static void generateRecipes(File dataFolder, int minions, int upgrades) throws IOException {
+        Path minionFolder = new File(dataFolder, "MinionRecipes").toPath();
+        Path upgradeFolder = new File(dataFolder, "UpgradeRecipes").toPath();
+        Files.createDirectories(minionFolder);
+        Files.createDirectories(upgradeFolder);
+
+        for (int i = 0; i < minions; i++) {
+            writeMinionRecipe(dataFolder, i, "COBBLESTONE");
+        }
+        for (int i = 0; i < upgrades; i++) {
+            String yaml = "enabled: true\n"
+                    + "upgrade_id: \"upgrade_" + i + "\"\n"
+                    + "recipe_type: \"SHAPELESS\"\n"
+                    + "ingredients:\n  - COAL\n  - IRON_INGOT\n";
+            Files.write(upgradeFolder.resolve("generated_" + i + ".yml"), yaml.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Write (or overwrite) the generated minion recipe with the given index
+     *
+     * @param filler The material around the pickaxe; changing it changes the recipe's content hash
+     */
+    public static void writeMinionRecipe(File dataFolder, int index, String filler) throws IOException {
+        String yaml = "enabled: true\n"
+                + "minion_id: \"MINION_" + index + "\"\n"
+                + "minion_level: 1\n"
+                + "recipe_type: \"SHAPED\"\n"
+                + "shape:\n  - \"CCC\"\n  - \"CPC\"\n  - \"CCC\"\n"
+                + "ingredients:\n  C: " + filler + "\n  P: DIAMOND_PICKAXE\n";
+        Path file = new File(dataFolder, "MinionRecipes").toPath().resolve("generated_" + index + ".yml");
+        Files.write(file, yaml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Delete a folder and everything in it
+     */
+    public static void delete(File folder) throws IOException {
+        if (!folder.exists()) return;
+        try (Stream<Path> paths = Files.walk(folder.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Crafting table view; title methods are declared without @Override as they vary between API versions
+     */
+    public static final class CraftingView extends InventoryView {
+        private final Inventory top;
+        private final Inventory bottom;
+        private final HumanEntity player;
+        private String title = "Crafting";
+
+        public CraftingView(Inventory top, Inventory bottom, HumanEntity player) {
+            this.top = top;
+            this.bottom = bottom;
+            this.player = player;
+        }
+
+        @Override
+        public Inventory getTopInventory() {
+            return top;
+        }
+
+        @Override
+        public Inventory getBottomInventory() {
+            return bottom;
+        }
+
+        @Override
+        public HumanEntity getPlayer() {
+            return player;
+        }
+
+        @Override
+        public InventoryType getType() {
+            return InventoryType.WORKBENCH;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getOriginalTitle() {
+            return "Crafting";
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+    }
+
+    /**
+     * Plugin subclass that can be constructed outside a server
+     */
+    static final class StandInPlugin extends TopMinionCrafting {
+        StandInPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+            super(loader, description, dataFolder, file);
+        }
+    }
+
+    /**
+     * The state behind a stand-in item meta; the meta proxy also answers as {@link Damageable}
+     * because ItemStack reads the durability through it
+     */
+    private static final class MetaData {
+        private Integer customModelData;
+        private final Map<NamespacedKey, Object> tags = new HashMap<>();
+
+        static MetaData of(Object meta) {
+            return meta == null ? new MetaData() : ((MetaHandler) Proxy.getInvocationHandler(meta)).data;
+        }
+
+        MetaData copy() {
+            MetaData copy = new MetaData();
+            copy.customModelData = customModelData;
+            copy.tags.putAll(tags);
+            return copy;
+        }
+
+        ItemMeta toMeta() {
+            return (ItemMeta) Proxy.newProxyInstance(ItemMeta.class.getClassLoader(),
+                    new Class<?>[]{ItemMeta.class, Damageable.class}, new MetaHandler(this));
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        PersistentDataContainer container() {
+            return stub(PersistentDataContainer.class, (name, args) -> {
+                switch (name) {
+                    case "set":
+                        tags.put((NamespacedKey) args[0], ((PersistentDataType) args[1]).toPrimitive(args[2], null));
+                        return null;
+                    case "has":
+                        return args.length == 1 ? tags.containsKey(args[0]) : hasType(tags.get(args[0]), (PersistentDataType) args[1]);
+                    case "get": {
+                        Object value = tags.get(args[0]);
+                        return hasType(value, (PersistentDataType) args[1]) ? ((PersistentDataType) args[1]).fromPrimitive(value, null) : null;
+                    }
+                    case "remove":
+                        tags.remove(args[0]);
+                        return null;
+                    case "getKeys":
+                        return new HashSet<>(tags.keySet());
+                    case "isEmpty":
+                        return tags.isEmpty();
+                    default:
+                        return DEFAULT;
+                }
+            });
+        }
+
+        private static boolean hasType(Object value, PersistentDataType<?, ?> type) {
+            return value != null && type.getPrimitiveType().isInstance(value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MetaData)) return false;
+            MetaData other = (MetaData) o;
+            return Objects.equals(customModelData, other.customModelData) && tags.equals(other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(customModelData, tags);
+        }
+    }
+
+    private static final class MetaHandler implements InvocationHandler {
+        private final MetaData data;
+
+        MetaHandler(MetaData data) {
+            this.data = data;
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "ItemMetaStandIn";
+                case "clone":
+                    return data.copy().toMeta();
+                case "hasCustomModelData":
+                    return data.customModelData != null;
+                case "getCustomModelData":
+                    return data.customModelData != null ? data.customModelData : 0;
+                case "setCustomModelData":
+                    data.customModelData = (Integer) args[0];
+                    return null;
+                case "getPersistentDataContainer":
+                    return data.container();
+                default:
+                    return defaultValue(method);
+            }
+        }
+    }
+
+    /**
+     * Item source that knows every minion and upgrade ID and hands out plain items
+     * Config objects stay the same until {@link #reload()}, like TopMinion's managers.
+     */
+    public static final class FakeItemSource implements ItemSource {
+        private final Map<String, Object> minions = new ConcurrentHashMap<>();
+        private final Map<String, Object> upgrades = new ConcurrentHashMap<>();
+
+        @Override
+        public Object getMinion(String minionId) {
+            return minions.computeIfAbsent(minionId, id -> new Object());
+        }
+
+        @Override
+        public ItemStack createMinionItem(Object minion, int level) {
+            return new ItemStack(Material.PLAYER_HEAD);
+        }
+
+        @Override
+        public Object getUpgrade(String upgradeId) {
+            return upgrades.computeIfAbsent(upgradeId, id -> new Object());
+        }
+
+        @Override
+        public boolean isCraftable(Object upgrade) {
+            return true;
+        }
+
+        @Override
+        public ItemStack createUpgradeItem(Object upgrade) {
+            return new ItemStack(Material.PAPER);
+        }
+
+        /**
+         * Replace every config object, as TopMinion does when it reloads
+         */
+        public void reload() {
+            minions.clear();
+            upgrades.clear();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.topminion.crafting.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageTemplateTest {
+
+    @Test
+    void translatesColorCodes() {
+        assertEquals("\u00A7aCrafted \u00A7lminion", MessageTemplate.compile("&aCrafted &lminion").render());
+    }
+
+    @Test
+    void emptyAndMissingMessagesAreEmpty() {
+        assertTrue(MessageTemplate.compile(null).isEmpty());
+        assertTrue(MessageTemplate.compile("").isEmpty());
+        assertEquals("", MessageTemplate.compile(null).render("amount", "1"));
+        assertFalse(MessageTemplate.compile(" ").isEmpty());
+    }
+
+    @Test
+    void replacesOnePlaceholder() {
+        MessageTemplate template = MessageTemplate.compile("Crafted {amount}x {item}");
+
+        assertEquals("Crafted 3x {item}", template.render("amount", "3"));
+        assertEquals("Crafted {amount}x Miner", template.render("item", "Miner"));
+        assertEquals("Crafted {amount}x {item}", template.render());
+    }
+
+    @Test
+    void replacesSeveralPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("{player} crafted {amount}x {item}");
+
+        assertEquals("Steve crafted 3x Miner", template.render("item", "Miner", "player", "Steve", "amount", "3"));
+        assertEquals("Steve crafted {amount}x {item}", template.render(new String[]{"player", "Steve"}));
+        // A name without a value is ignored
+        assertEquals("Steve crafted {amount}x {item}", template.render("player", "Steve", "amount"));
+    }
+
+    @Test
+    void rendersAdjacentAndRepeatedPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("{a}{b}-{a}");
+
+        assertEquals("12-1", template.render("a", "1", "b", "2"));
+        assertEquals("1{b}-1", template.render("a", "1"));
+    }
+
+    @Test
+    void keepsUnclosedBracesAsText() {
+        MessageTemplate template = MessageTemplate.compile("Cost: {amount} {coins");
+
+        assertEquals("Cost: 5 {coins", template.render("amount", "5"));
+        assertEquals("Cost: {amount} {coins", template.render("coins", "5"));
+    }
+
+    @Test
+    void placeholdersInsideColoredText() {
+        MessageTemplate template = MessageTemplate.compile("&7You have &e{count}&7 recipes");
+
+        assertEquals("\u00A77You have \u00A7e12\u00A77 recipes", template.render("count", "12"));
+    }
+}
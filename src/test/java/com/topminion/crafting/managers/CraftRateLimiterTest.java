@@ -0,0 +1,75 @@
+package com.topminion.crafting.managers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CraftRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void allowsTheBurstThenRejects() {
+        CraftRateLimiter.Limit limit = new CraftRateLimiter.Limit(2, 3);
+        AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+
+        assertTrue(CraftRateLimiter.take(bucket, limit, 0));
+        assertTrue(CraftRateLimiter.take(bucket, limit, 0));
+        assertTrue(CraftRateLimiter.take(bucket, limit, 0));
+        assertFalse(CraftRateLimiter.take(bucket, limit, 0));
+        // A rejected craft does not use up a token
+        assertEquals(3 * SECOND / 2, bucket.get());
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        CraftRateLimiter.Limit limit = new CraftRateLimiter.Limit(2, 3);
+        AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(CraftRateLimiter.take(bucket, limit, 0));
+        }
+
+        assertFalse(CraftRateLimiter.take(bucket, limit, SECOND / 2 - 1));
+        assertTrue(CraftRateLimiter.take(bucket, limit, SECOND / 2));
+        assertFalse(CraftRateLimiter.take(bucket, limit, SECOND / 2));
+    }
+
+    @Test
+    void idleTimeRefillsNoMoreThanTheBurst() {
+        CraftRateLimiter.Limit limit = new CraftRateLimiter.Limit(2, 3);
+        AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+        assertTrue(CraftRateLimiter.take(bucket, limit, 0));
+
+        long later = 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(CraftRateLimiter.take(bucket, limit, later));
+        }
+        assertFalse(CraftRateLimiter.take(bucket, limit, later));
+    }
+
+    @Test
+    void sustainsTheRate() {
+        CraftRateLimiter.Limit limit = new CraftRateLimiter.Limit(4, 1);
+        AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+
+        for (int i = 0; i < 100; i++) {
+            long now = i * SECOND / 4;
+            assertTrue(CraftRateLimiter.take(bucket, limit, now));
+            assertFalse(CraftRateLimiter.take(bucket, limit, now + SECOND / 8));
+        }
+    }
+
+    @Test
+    void limitDefaults() {
+        assertTrue(new CraftRateLimiter.Limit(0, 5).isUnlimited());
+        assertTrue(CraftRateLimiter.Limit.UNLIMITED.isUnlimited());
+        assertFalse(new CraftRateLimiter.Limit(0.5, 1).isUnlimited());
+        assertEquals(1, new CraftRateLimiter.Limit(1, 0).getBurst());
+        assertEquals("unlimited", CraftRateLimiter.Limit.UNLIMITED.toString());
+        assertEquals("2.50/s (burst 4)", new CraftRateLimiter.Limit(2.5, 4).toString());
+    }
+}
@@ -0,0 +1,152 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.TopMinionCrafting;
+import com.topminion.crafting.managers.CraftRateLimiter;
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.standins.StandIns;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecipeCacheTest {
+
+    @TempDir
+    static File dataFolder;
+
+    private static TopMinionCrafting plugin;
+
+    private final File miner = new File("MinionRecipes/miner.yml");
+    private final File hopper = new File("UpgradeRecipes/hopper.yml");
+
+    @BeforeAll
+    static void createPlugin() {
+        plugin = StandIns.createPlugin(dataFolder);
+    }
+
+    @BeforeEach
+    void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(new File(dataFolder, "recipe-cache.bin").toPath());
+    }
+
+    @Test
+    void definitionsSurviveASaveAndLoad() {
+        RecipeDefinition tiered = tieredMinion();
+        RecipeDefinition upgrade = shapelessUpgrade();
+
+        RecipeCache cache = new RecipeCache(plugin);
+        cache.put(miner, 120, 1000, tiered);
+        cache.put(hopper, 80, 2000, upgrade);
+        cache.save();
+
+        RecipeCache loaded = new RecipeCache(plugin);
+        assertSameDefinition(tiered, loaded.get(miner, 120, 1000));
+        assertSameDefinition(upgrade, loaded.get(hopper, 80, 2000));
+    }
+
+    @Test
+    void changedFilesAreNotServed() {
+        RecipeCache cache = new RecipeCache(plugin);
+        cache.put(hopper, 80, 2000, shapelessUpgrade());
+        cache.save();
+
+        RecipeCache loaded = new RecipeCache(plugin);
+        assertNull(loaded.get(hopper, 81, 2000));
+        assertNull(loaded.get(hopper, 80, 2001));
+        assertNull(loaded.get(miner, 80, 2000));
+        assertNotNull(loaded.get(hopper, 80, 2000));
+    }
+
+    @Test
+    void forgottenFilesAreNotSaved() {
+        RecipeCache cache = new RecipeCache(plugin);
+        cache.put(miner, 120, 1000, tieredMinion());
+        cache.put(hopper, 80, 2000, shapelessUpgrade());
+        cache.save();
+
+        cache.put(miner, 120, 1000, null);
+        cache.save();
+        assertNull(new RecipeCache(plugin).get(miner, 120, 1000));
+
+        cache.put(miner, 120, 1000, tieredMinion());
+        cache.retainOnly(Set.of(miner.getPath()));
+        cache.save();
+        RecipeCache loaded = new RecipeCache(plugin);
+        assertNotNull(loaded.get(miner, 120, 1000));
+        assertNull(loaded.get(hopper, 80, 2000));
+    }
+
+    @Test
+    void unreadableSnapshotsAreIgnored() throws IOException {
+        Files.write(new File(dataFolder, "recipe-cache.bin").toPath(), "not a recipe cache".getBytes(StandardCharsets.UTF_8));
+        RecipeCache cache = new RecipeCache(plugin);
+        assertNull(cache.get(hopper, 80, 2000));
+
+        // A truncated snapshot is dropped as a whole
+        cache.put(hopper, 80, 2000, shapelessUpgrade());
+        cache.put(miner, 120, 1000, tieredMinion());
+        cache.save();
+        File snapshot = new File(dataFolder, "recipe-cache.bin");
+        byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        Files.write(snapshot.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+
+        RecipeCache loaded = new RecipeCache(plugin);
+        assertNull(loaded.get(hopper, 80, 2000));
+        assertNull(loaded.get(miner, 120, 1000));
+    }
+
+    private static RecipeDefinition tieredMinion() {
+        Ingredient cobblestone = new Ingredient(Material.COBBLESTONE, 16);
+        Ingredient previous = new Ingredient(Material.PLAYER_HEAD, 1, 12,
+                Map.of(ItemTags.MINION_ID, "miner", ItemTags.MINION_LEVEL, "1"));
+        RecipeDefinition tier = new RecipeDefinition(RecipeManager.RecipeType.MINION, "Miner", "MinionRecipes/miner.yml", 7L,
+                "miner", 2, "topminioncrafting.craft.minion", true, List.of("CCC", "CMC", "CCC"),
+                Map.of('C', cobblestone, 'M', previous), Collections.emptyList(), Collections.emptyList(),
+                new CraftRateLimiter.Limit(0.5, 3));
+        return new RecipeDefinition(RecipeManager.RecipeType.MINION, "Miner", "MinionRecipes/miner.yml", 42L,
+                "miner", 1, "topminioncrafting.craft.minion", true, Collections.emptyList(),
+                Collections.emptyMap(), Collections.emptyList(), List.of(tier));
+    }
+
+    private static RecipeDefinition shapelessUpgrade() {
+        return new RecipeDefinition(RecipeManager.RecipeType.UPGRADE, "Hopper", "UpgradeRecipes/hopper.yml", -3L,
+                "hopper", 0, "", false, Collections.emptyList(), Collections.emptyMap(),
+                List.of(new Ingredient(Material.STICK, 2), new Ingredient(Material.COBBLESTONE, 1)));
+    }
+
+    private static void assertSameDefinition(RecipeDefinition expected, RecipeDefinition actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getSource(), actual.getSource());
+        assertEquals(expected.getContentHash(), actual.getContentHash());
+        assertEquals(expected.getResultId(), actual.getResultId());
+        assertEquals(expected.getLevel(), actual.getLevel());
+        assertEquals(expected.getPermission(), actual.getPermission());
+        assertEquals(expected.isShaped(), actual.isShaped());
+        assertEquals(expected.getShape(), actual.getShape());
+        assertEquals(expected.getShapedIngredients(), actual.getShapedIngredients());
+        assertEquals(expected.getShapelessIngredients(), actual.getShapelessIngredients());
+        assertEquals(String.valueOf(expected.getRateLimit()), String.valueOf(actual.getRateLimit()));
+        assertEquals(expected.getTiers().size(), actual.getTiers().size());
+        for (int i = 0; i < expected.getTiers().size(); i++) {
+            assertSameDefinition(expected.getTiers().get(i), actual.getTiers().get(i));
+        }
+    }
+}
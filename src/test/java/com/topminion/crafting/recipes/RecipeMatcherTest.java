@@ -0,0 +1,203 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.standins.StandIns;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecipeMatcherTest {
+
+    private static final Ingredient COBBLESTONE = new Ingredient(Material.COBBLESTONE, 1);
+    private static final Ingredient STICK = new Ingredient(Material.STICK, 1);
+
+    @BeforeAll
+    static void installServer() {
+        StandIns.installServer();
+    }
+
+    @Test
+    void shapedMatchesAnywhereInTheGrid() {
+        RecipeManager.RecipeData hook = upgrade("hook", shaped(List.of("CC", "S "), Map.of('C', COBBLESTONE, 'S', STICK)));
+        RecipeMatcher matcher = new RecipeMatcher(List.of(hook));
+
+        ItemStack[] grid = new ItemStack[9];
+        grid[4] = new ItemStack(Material.COBBLESTONE, 3);
+        grid[5] = new ItemStack(Material.COBBLESTONE);
+        grid[7] = new ItemStack(Material.STICK);
+        RecipeMatcher.Match match = matcher.match(grid);
+
+        assertNotNull(match);
+        assertEquals(hook, match.getRecipe());
+        assertArrayEquals(new int[]{0, 0, 0, 0, 1, 1, 0, 1, 0}, match.getSlotAmounts());
+
+        // 2x2 grid of the player inventory
+        ItemStack[] small = {new ItemStack(Material.COBBLESTONE), new ItemStack(Material.COBBLESTONE), new ItemStack(Material.STICK), null};
+        assertEquals(hook, matcher.match(small).getRecipe());
+    }
+
+    @Test
+    void shapedMatchesItsMirrorImageOnly() {
+        RecipeManager.RecipeData hook = upgrade("hook", shaped(List.of("CC", "S "), Map.of('C', COBBLESTONE, 'S', STICK)));
+        RecipeMatcher matcher = new RecipeMatcher(List.of(hook));
+
+        ItemStack[] mirrored = new ItemStack[9];
+        mirrored[0] = new ItemStack(Material.COBBLESTONE);
+        mirrored[1] = new ItemStack(Material.COBBLESTONE);
+        mirrored[4] = new ItemStack(Material.STICK);
+        assertEquals(hook, matcher.match(mirrored).getRecipe());
+
+        ItemStack[] flipped = new ItemStack[9];
+        flipped[0] = new ItemStack(Material.STICK);
+        flipped[3] = new ItemStack(Material.COBBLESTONE);
+        flipped[4] = new ItemStack(Material.COBBLESTONE);
+        assertNull(matcher.match(flipped));
+    }
+
+    @Test
+    void shapedChecksAmountsPerSlot() {
+        Ingredient fourCobblestone = new Ingredient(Material.COBBLESTONE, 4);
+        RecipeManager.RecipeData wall = upgrade("wall", shaped(List.of("CC"), Map.of('C', fourCobblestone)));
+        RecipeMatcher matcher = new RecipeMatcher(List.of(wall));
+
+        ItemStack[] grid = new ItemStack[9];
+        grid[0] = new ItemStack(Material.COBBLESTONE, 10);
+        grid[1] = new ItemStack(Material.COBBLESTONE, 3);
+        assertNull(matcher.match(grid));
+
+        grid[1] = new ItemStack(Material.COBBLESTONE, 4);
+        assertArrayEquals(new int[]{4, 4, 0, 0, 0, 0, 0, 0, 0}, matcher.match(grid).getSlotAmounts());
+    }
+
+    @Test
+    void shapelessMatchesInAnyOrder() {
+        RecipeManager.RecipeData torch = upgrade("torch", shapeless(STICK, COBBLESTONE, new Ingredient(Material.COBBLESTONE, 2)));
+        RecipeMatcher matcher = new RecipeMatcher(List.of(torch));
+
+        ItemStack[] grid = new ItemStack[9];
+        grid[1] = new ItemStack(Material.COBBLESTONE, 1);
+        grid[6] = new ItemStack(Material.STICK, 5);
+        grid[8] = new ItemStack(Material.COBBLESTONE, 2);
+        RecipeMatcher.Match match = matcher.match(grid);
+
+        assertNotNull(match);
+        // The larger stack goes to the ingredient that needs two
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0, 0, 1, 0, 2}, match.getSlotAmounts());
+
+        grid[8] = new ItemStack(Material.COBBLESTONE, 1);
+        assertNull(matcher.match(grid));
+        grid[8] = null;
+        assertNull(matcher.match(grid));
+    }
+
+    @Test
+    void emptyOrUnknownGridsDoNotMatch() {
+        RecipeMatcher matcher = new RecipeMatcher(List.of(upgrade("torch", shapeless(STICK, COBBLESTONE))));
+
+        assertNull(matcher.match(new ItemStack[9]));
+        ItemStack[] grid = new ItemStack[9];
+        grid[0] = new ItemStack(Material.STICK);
+        grid[1] = new ItemStack(Material.PAPER);
+        assertNull(matcher.match(grid));
+    }
+
+    @Test
+    void assignTriesEveryStackForCustomIngredients() {
+        Ingredient anyMiner = head(Map.of(ItemTags.MINION_ID, "miner"));
+        Ingredient levelTwo = head(Map.of(ItemTags.MINION_ID, "miner", ItemTags.MINION_LEVEL, "2"));
+        RecipeManager.RecipeData fusion = upgrade("fusion", shapeless(anyMiner, levelTwo));
+        RecipeMatcher matcher = new RecipeMatcher(List.of(fusion));
+
+        // The first stack also matches the first ingredient, but only it can fill the second one
+        ItemStack[] grid = new ItemStack[9];
+        grid[0] = minion("miner", 2);
+        grid[1] = minion("miner", 1);
+        RecipeMatcher.Match match = matcher.match(grid);
+        assertNotNull(match);
+        assertEquals(fusion, match.getRecipe());
+        assertArrayEquals(new int[]{1, 1, 0, 0, 0, 0, 0, 0, 0}, match.getSlotAmounts());
+
+        grid[0] = minion("miner", 1);
+        assertNull(matcher.match(grid));
+        grid[0] = minion("farmer", 2);
+        assertNull(matcher.match(grid));
+    }
+
+    @Test
+    void customIngredientsAreCheckedBeforePlainOnes() {
+        RecipeManager.RecipeData plain = upgrade("plain", shapeless(new Ingredient(Material.PLAYER_HEAD, 1), STICK));
+        RecipeManager.RecipeData custom = upgrade("custom", shapeless(head(Map.of(ItemTags.MINION_ID, "miner")), STICK));
+        RecipeMatcher matcher = new RecipeMatcher(List.of(plain, custom));
+
+        ItemStack[] grid = new ItemStack[9];
+        grid[0] = minion("miner", 1);
+        grid[1] = new ItemStack(Material.STICK);
+        assertEquals(custom, matcher.match(grid).getRecipe());
+
+        grid[0] = new ItemStack(Material.PLAYER_HEAD);
+        assertEquals(plain, matcher.match(grid).getRecipe());
+    }
+
+    @Test
+    void tierUpsPickTheTierByTheMinionLevel() {
+        List<String> shape = List.of("CCC", "CMC", "CCC");
+        RecipeManager.RecipeData levelTwo = minionTier(2, shape);
+        RecipeManager.RecipeData levelThree = minionTier(3, shape);
+        RecipeMatcher matcher = new RecipeMatcher(List.of(levelTwo, levelThree));
+
+        ItemStack[] grid = new ItemStack[9];
+        Arrays.fill(grid, new ItemStack(Material.COBBLESTONE));
+        grid[4] = minion("miner", 1);
+        assertEquals(levelTwo, matcher.match(grid).getRecipe());
+
+        grid[4] = minion("miner", 2);
+        assertEquals(levelThree, matcher.match(grid).getRecipe());
+
+        grid[4] = minion("miner", 3);
+        assertNull(matcher.match(grid));
+    }
+
+    private static RecipeManager.RecipeData minionTier(int level, List<String> shape) {
+        Ingredient previous = head(Map.of(ItemTags.MINION_ID, "miner", ItemTags.MINION_LEVEL, String.valueOf(level - 1)));
+        RecipeDefinition definition = new RecipeDefinition(RecipeManager.RecipeType.MINION, "miner", "MinionRecipes/miner.yml", 0,
+                "miner", level, "", true, shape, Map.of('C', COBBLESTONE, 'M', previous), Collections.emptyList());
+        return new RecipeManager.MinionRecipeData(new NamespacedKey(ItemTags.NAMESPACE, "minion_miner_" + level), definition);
+    }
+
+    private static RecipeManager.RecipeData upgrade(String id, RecipeDefinition definition) {
+        return new RecipeManager.UpgradeRecipeData(new NamespacedKey(ItemTags.NAMESPACE, "upgrade_" + id), definition);
+    }
+
+    private static RecipeDefinition shaped(List<String> shape, Map<Character, Ingredient> ingredients) {
+        return new RecipeDefinition(RecipeManager.RecipeType.UPGRADE, "test", "UpgradeRecipes/test.yml", 0, "test", 0, "",
+                true, shape, ingredients, Collections.emptyList());
+    }
+
+    private static RecipeDefinition shapeless(Ingredient... ingredients) {
+        return new RecipeDefinition(RecipeManager.RecipeType.UPGRADE, "test", "UpgradeRecipes/test.yml", 0, "test", 0, "",
+                false, Collections.emptyList(), Collections.emptyMap(), List.of(ingredients));
+    }
+
+    private static Ingredient head(Map<NamespacedKey, String> tags) {
+        return new Ingredient(Material.PLAYER_HEAD, 1, null, tags);
+    }
+
+    private static ItemStack minion(String id, int level) {
+        ItemStack item = new ItemStack(Material.PLAYER_HEAD);
+        ItemTags.tagMinion(item, id, level);
+        return item;
+    }
+}
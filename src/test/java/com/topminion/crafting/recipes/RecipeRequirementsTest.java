@@ -0,0 +1,163 @@
+package com.topminion.crafting.recipes;
+
+import com.topminion.crafting.managers.RecipeManager;
+import com.topminion.crafting.standins.StandIns;
+import com.topminion.crafting.utils.ItemTags;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecipeRequirementsTest {
+
+    private static final Ingredient COBBLESTONE = new Ingredient(Material.COBBLESTONE, 1);
+    private static final Ingredient STICK = new Ingredient(Material.STICK, 1);
+    private static final Ingredient ANY_MINER = head(null, Map.of(ItemTags.MINION_ID, "miner"));
+    private static final Ingredient MINER_TWO = head(null, Map.of(ItemTags.MINION_ID, "miner", ItemTags.MINION_LEVEL, "2"));
+
+    @BeforeAll
+    static void installServer() {
+        StandIns.installServer();
+    }
+
+    @Test
+    void sumsTheSlotsOfAShapedRecipe() {
+        RecipeRequirements requirements = new RecipeRequirements(shaped(List.of("CCC", "CSC", "CCC"), Map.of('C', COBBLESTONE, 'S', STICK)));
+        ItemStack[] contents = {
+                new ItemStack(Material.COBBLESTONE, 10), new ItemStack(Material.STICK, 5), new ItemStack(Material.COBBLESTONE, 7), null
+        };
+
+        assertEquals(2, requirements.getMaxCrafts(contents, 64));
+        assertEquals(1, requirements.getMaxCrafts(contents, 1));
+        contents[1] = null;
+        assertEquals(0, requirements.getMaxCrafts(contents, 64));
+    }
+
+    @Test
+    void countsIngredientAmounts() {
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(new Ingredient(Material.COBBLESTONE, 3), STICK, STICK));
+        ItemStack[] contents = {new ItemStack(Material.COBBLESTONE, 64), new ItemStack(Material.STICK, 9)};
+
+        assertEquals(4, requirements.getMaxCrafts(contents, 64));
+    }
+
+    @Test
+    void pluginItemsAreNotPlainIngredients() {
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(new Ingredient(Material.PLAYER_HEAD, 1)));
+
+        assertEquals(0, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 1)}, 64));
+        assertEquals(2, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 1), new ItemStack(Material.PLAYER_HEAD, 2)}, 64));
+    }
+
+    @Test
+    void itemsMatchingACustomIngredientAreNotPlain() {
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(ANY_MINER, new Ingredient(Material.PLAYER_HEAD, 1)));
+
+        assertEquals(0, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 1)}, 64));
+        assertEquals(1, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 1), new ItemStack(Material.PLAYER_HEAD)}, 64));
+    }
+
+    @Test
+    void anItemCountsForOneCustomIngredientOnly() {
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(ANY_MINER, MINER_TWO));
+
+        // A level 2 miner matches both ingredients, but can only be used for one of them
+        assertEquals(0, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 2)}, 64));
+        assertEquals(0, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 1), minion("miner", 1)}, 64));
+        assertEquals(1, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 2), minion("miner", 2)}, 64));
+        assertEquals(1, requirements.getMaxCrafts(new ItemStack[]{minion("miner", 2), minion("miner", 1)}, 64));
+        assertEquals(2, requirements.getMaxCrafts(new ItemStack[]{
+                minion("miner", 2), minion("miner", 1), minion("miner", 2), minion("miner", 2)}, 64));
+    }
+
+    @Test
+    void craftTakesIngredientsAndAddsResults() {
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(new Ingredient(Material.COBBLESTONE, 2), STICK));
+        ItemStack[] contents = {new ItemStack(Material.COBBLESTONE, 16), new ItemStack(Material.STICK, 4), null};
+
+        assertEquals(3, requirements.craft(contents, new ItemStack(Material.PAPER, 2), 3));
+        assertEquals(10, contents[0].getAmount());
+        assertEquals(1, contents[1].getAmount());
+        assertEquals(Material.PAPER, contents[2].getType());
+        assertEquals(6, contents[2].getAmount());
+    }
+
+    @Test
+    void craftReportsMissingIngredients() {
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(COBBLESTONE, STICK));
+        ItemStack[] contents = {new ItemStack(Material.COBBLESTONE, 2), null};
+
+        assertEquals(RecipeRequirements.MISSING_INGREDIENTS, requirements.craft(contents, new ItemStack(Material.PAPER), 1));
+        assertEquals(2, contents[0].getAmount());
+    }
+
+    @Test
+    void craftSplitsItemsBetweenCustomIngredients() {
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(ANY_MINER, MINER_TWO));
+        // The level 2 miner comes first, but has to go to the level 2 ingredient; the result takes its slot
+        ItemStack[] contents = {minion("miner", 2), minion("miner", 1), null};
+
+        assertEquals(1, requirements.craft(contents, new ItemStack(Material.PAPER), 1));
+        assertEquals(Material.PAPER, contents[0].getType());
+        assertNull(contents[1]);
+        assertNull(contents[2]);
+    }
+
+    @Test
+    void craftMovesItemsAlongAugmentingPaths() {
+        Ingredient modelSeven = head(7, Collections.emptyMap());
+        Ingredient minerOne = head(null, Map.of(ItemTags.MINION_ID, "miner", ItemTags.MINION_LEVEL, "1"));
+        RecipeRequirements requirements = new RecipeRequirements(shapeless(ANY_MINER, minerOne, modelSeven));
+
+        // Matches any miner and level 1; any miner and model 7; model 7 only
+        ItemStack levelOne = minion("miner", 1);
+        ItemStack levelTwoModel = withModel(minion("miner", 2), 7);
+        ItemStack model = withModel(new ItemStack(Material.PLAYER_HEAD), 7);
+
+        assertEquals(0, requirements.getMaxCrafts(new ItemStack[]{levelOne, levelTwoModel}, 64));
+        assertEquals(1, requirements.getMaxCrafts(new ItemStack[]{levelOne, levelTwoModel, model}, 64));
+
+        ItemStack[] contents = {levelOne, levelTwoModel, model, null};
+        assertEquals(1, requirements.craft(contents, new ItemStack(Material.PAPER), 1));
+        assertEquals(Material.PAPER, contents[0].getType());
+        assertNull(contents[1]);
+        assertNull(contents[2]);
+        assertNull(contents[3]);
+    }
+
+    private static RecipeDefinition shaped(List<String> shape, Map<Character, Ingredient> ingredients) {
+        return new RecipeDefinition(RecipeManager.RecipeType.UPGRADE, "test", "UpgradeRecipes/test.yml", 0, "test", 0, "",
+                true, shape, ingredients, Collections.emptyList());
+    }
+
+    private static RecipeDefinition shapeless(Ingredient... ingredients) {
+        return new RecipeDefinition(RecipeManager.RecipeType.UPGRADE, "test", "UpgradeRecipes/test.yml", 0, "test", 0, "",
+                false, Collections.emptyList(), Collections.emptyMap(), List.of(ingredients));
+    }
+
+    private static Ingredient head(Integer customModelData, Map<NamespacedKey, String> tags) {
+        return new Ingredient(Material.PLAYER_HEAD, 1, customModelData, tags);
+    }
+
+    private static ItemStack minion(String id, int level) {
+        ItemStack item = new ItemStack(Material.PLAYER_HEAD);
+        ItemTags.tagMinion(item, id, level);
+        return item;
+    }
+
+    private static ItemStack withModel(ItemStack item, int customModelData) {
+        ItemMeta meta = item.getItemMeta();
+        meta.setCustomModelData(customModelData);
+        item.setItemMeta(meta);
+        return item;
+    }
+}